@@ -2,15 +2,34 @@ package dev.springtelescope;
 
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
+import dev.springtelescope.aggregate.TelescopeCacheStats;
+import dev.springtelescope.aggregate.TelescopeExceptionGroups;
+import dev.springtelescope.aggregate.TelescopeHttpClientStats;
+import dev.springtelescope.aggregate.TelescopeQueryStats;
+import dev.springtelescope.aggregate.TelescopeScheduleStats;
 import dev.springtelescope.context.DefaultTelescopeUserProvider;
+import dev.springtelescope.context.TelescopeBatchContextAccessor;
+import dev.springtelescope.context.TelescopeContextExecutors;
+import dev.springtelescope.context.TelescopeExecutorPostProcessor;
+import dev.springtelescope.context.TelescopeTaskDecorator;
 import dev.springtelescope.context.TelescopeUserProvider;
 import dev.springtelescope.controller.TelescopeController;
+import dev.springtelescope.controller.TelescopeReactiveController;
 import dev.springtelescope.filter.DefaultTelescopeFilterProvider;
 import dev.springtelescope.filter.TelescopeFilterProvider;
+import dev.springtelescope.id.DefaultTelescopeIdGenerator;
+import dev.springtelescope.id.TelescopeIdGenerator;
+import dev.springtelescope.id.TelescopeIds;
+import dev.springtelescope.sampling.TelescopeOverloadGovernor;
+import dev.springtelescope.sampling.TelescopeSampler;
+import dev.springtelescope.sampling.TelescopeTailSampler;
 import dev.springtelescope.storage.InMemoryTelescopeStorage;
 import dev.springtelescope.storage.TelescopeStorage;
 import dev.springtelescope.watcher.*;
+import io.micrometer.context.ContextRegistry;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -18,18 +37,29 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.boot.web.client.RestTemplateCustomizer;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.Ordered;
+import org.springframework.core.task.TaskDecorator;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.net.URI;
+
 @AutoConfiguration
-@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnWebApplication
 @ConditionalOnProperty(prefix = "telescope", name = "enabled", havingValue = "true", matchIfMissing = true)
 @EnableConfigurationProperties(TelescopeProperties.class)
-@Import(TelescopeController.class)
 public class TelescopeAutoConfiguration {
 
     private final TelescopeProperties properties;
@@ -46,6 +76,144 @@ public class TelescopeAutoConfiguration {
     static class TelescopeSchedulingConfiguration {
     }
 
+    // --- Servlet (Spring MVC) applications ---
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @Import(TelescopeController.class)
+    static class TelescopeServletConfiguration {
+
+        private final TelescopeProperties properties;
+
+        TelescopeServletConfiguration(TelescopeProperties properties) {
+            this.properties = properties;
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = "telescope", name = "access-token")
+        public TelescopeSecurityFilter telescopeSecurityFilter() {
+            return new TelescopeSecurityFilter(properties);
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = "telescope.watchers", name = "requests", havingValue = "true", matchIfMissing = true)
+        public TelescopeRequestFilter telescopeRequestFilter(TelescopeStorage storage, TelescopeSampler sampler,
+                                                             TelescopeTailSampler tailSampler,
+                                                             TelescopeOverloadGovernor governor) {
+            return new TelescopeRequestFilter(storage, sampler, tailSampler, governor, properties);
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = "telescope.watchers", name = "requests", havingValue = "true", matchIfMissing = true)
+        public TelescopeContextCaptureFilter telescopeContextCaptureFilter(TelescopeUserProvider userProvider) {
+            return new TelescopeContextCaptureFilter(userProvider);
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = "telescope.watchers", name = "requests", havingValue = "true", matchIfMissing = true)
+        public TelescopeTimingInterceptor telescopeTimingInterceptor() {
+            return new TelescopeTimingInterceptor();
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = "telescope.watchers", name = "requests", havingValue = "true", matchIfMissing = true)
+        public WebMvcConfigurer telescopeTimingConfigurer(TelescopeTimingInterceptor timingInterceptor) {
+            return new WebMvcConfigurer() {
+                @Override
+                public void addInterceptors(InterceptorRegistry registry) {
+                    registry.addInterceptor(timingInterceptor).order(Ordered.HIGHEST_PRECEDENCE);
+                }
+            };
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = "telescope.watchers", name = "exceptions", havingValue = "true", matchIfMissing = true)
+        @ConditionalOnMissingBean(TelescopeExceptionHandler.class)
+        public TelescopeExceptionHandler telescopeExceptionHandler(TelescopeExceptionRecorder recorder) {
+            return new TelescopeExceptionHandler(recorder);
+        }
+
+        @Bean
+        public WebMvcConfigurer telescopeViewConfigurer() {
+            return new WebMvcConfigurer() {
+                @Override
+                public void addViewControllers(ViewControllerRegistry registry) {
+                    String basePath = properties.getBasePath();
+                    registry.addRedirectViewController(basePath, basePath + "/index.html");
+                    registry.addRedirectViewController(basePath + "/", basePath + "/index.html");
+                }
+            };
+        }
+    }
+
+    // --- Reactive (WebFlux) applications ---
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    static class TelescopeReactiveConfiguration {
+
+        private final TelescopeProperties properties;
+
+        TelescopeReactiveConfiguration(TelescopeProperties properties) {
+            this.properties = properties;
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = "telescope", name = "access-token")
+        public TelescopeReactiveSecurityFilter telescopeReactiveSecurityFilter() {
+            return new TelescopeReactiveSecurityFilter(properties);
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = "telescope.watchers", name = "requests", havingValue = "true", matchIfMissing = true)
+        public TelescopeWebFilter telescopeWebFilter(TelescopeStorage storage, TelescopeSampler sampler,
+                                                     TelescopeOverloadGovernor governor,
+                                                     ObjectProvider<TelescopeExceptionRecorder> exceptionRecorder) {
+            return new TelescopeWebFilter(storage, sampler, governor, exceptionRecorder.getIfAvailable(), properties);
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = "telescope.watchers", name = "requests", havingValue = "true", matchIfMissing = true)
+        public TelescopeReactiveContextCaptureFilter telescopeReactiveContextCaptureFilter(
+                TelescopeUserProvider userProvider) {
+            return new TelescopeReactiveContextCaptureFilter(userProvider);
+        }
+
+        @Bean
+        public TelescopeReactiveController telescopeReactiveController(
+                TelescopeStorage storage, TelescopeFilterProvider filterProvider, TelescopeSampler sampler,
+                TelescopeTailSampler tailSampler, TelescopeOverloadGovernor governor, TelescopeQueryStats queryStats,
+                TelescopeExceptionGroups exceptionGroups, TelescopeCacheStats cacheStats,
+                TelescopeScheduleStats scheduleStats, TelescopeHttpClientStats httpClientStats) {
+            return new TelescopeReactiveController(new TelescopeController(storage, filterProvider, sampler,
+                    tailSampler, governor, queryStats, exceptionGroups, cacheStats, scheduleStats, httpClientStats));
+        }
+
+        @Bean
+        public RouterFunction<ServerResponse> telescopeViewRouter() {
+            String basePath = properties.getBasePath();
+            URI index = URI.create(basePath + "/index.html");
+            return RouterFunctions.route(RequestPredicates.GET(basePath).or(RequestPredicates.GET(basePath + "/")),
+                    request -> ServerResponse.temporaryRedirect(index).build());
+        }
+
+        @Bean
+        @ConditionalOnClass(name = "io.micrometer.context.ContextRegistry")
+        public TelescopeBatchContextAccessorInitializer telescopeBatchContextAccessorInitializer() {
+            return new TelescopeBatchContextAccessorInitializer();
+        }
+    }
+
+    /**
+     * Lets Reactor restore the batch of a reactive request into the
+     * thread-locals watchers read, when automatic context propagation is on.
+     */
+    public static class TelescopeBatchContextAccessorInitializer {
+        public TelescopeBatchContextAccessorInitializer() {
+            ContextRegistry.getInstance().registerThreadLocalAccessor(new TelescopeBatchContextAccessor());
+        }
+    }
+
     // --- Core beans ---
 
     @Bean
@@ -62,97 +230,234 @@ public class TelescopeAutoConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    public TelescopeFilterProvider telescopeFilterProvider(TelescopeStorage storage) {
-        return new DefaultTelescopeFilterProvider(storage);
+    public TelescopeIdGenerator telescopeIdGenerator() {
+        return new DefaultTelescopeIdGenerator();
+    }
+
+    @Bean
+    public TelescopeIdGeneratorInitializer telescopeIdGeneratorInitializer(TelescopeIdGenerator idGenerator) {
+        return new TelescopeIdGeneratorInitializer(idGenerator);
     }
 
-    // --- Security filter ---
+    public static class TelescopeIdGeneratorInitializer {
+        public TelescopeIdGeneratorInitializer(TelescopeIdGenerator idGenerator) {
+            TelescopeIds.configure(idGenerator);
+        }
+    }
 
     @Bean
-    @ConditionalOnProperty(prefix = "telescope", name = "access-token")
-    public TelescopeSecurityFilter telescopeSecurityFilter() {
-        return new TelescopeSecurityFilter(properties);
+    @ConditionalOnMissingBean
+    public TelescopeOverloadGovernor telescopeOverloadGovernor(TelescopeStorage storage) {
+        return new TelescopeOverloadGovernor(storage, properties.getOverload());
     }
 
-    // --- Watchers ---
+    @Bean
+    @ConditionalOnMissingBean
+    public TelescopeSampler telescopeSampler(TelescopeOverloadGovernor governor) {
+        return new TelescopeSampler(properties.getSampling(), governor);
+    }
 
     @Bean
-    @ConditionalOnProperty(prefix = "telescope.watchers", name = "requests", havingValue = "true", matchIfMissing = true)
-    public TelescopeRequestFilter telescopeRequestFilter(TelescopeStorage storage) {
-        return new TelescopeRequestFilter(storage, properties);
+    @ConditionalOnMissingBean
+    public TelescopeTailSampler telescopeTailSampler() {
+        return new TelescopeTailSampler(properties.getSampling().getTail());
     }
 
     @Bean
-    @ConditionalOnProperty(prefix = "telescope.watchers", name = "requests", havingValue = "true", matchIfMissing = true)
-    public TelescopeContextCaptureFilter telescopeContextCaptureFilter(TelescopeUserProvider userProvider) {
-        return new TelescopeContextCaptureFilter(userProvider);
+    @ConditionalOnMissingBean
+    public TelescopeQueryStats telescopeQueryStats() {
+        return new TelescopeQueryStats(properties.getQueries().getMaxFingerprints());
     }
 
     @Bean
-    @ConditionalOnProperty(prefix = "telescope.watchers", name = "exceptions", havingValue = "true", matchIfMissing = true)
-    public TelescopeExceptionRecorder telescopeExceptionRecorder(TelescopeStorage storage, TelescopeUserProvider userProvider) {
-        return new TelescopeExceptionRecorder(storage, userProvider);
+    @ConditionalOnMissingBean
+    public TelescopeScheduleStats telescopeScheduleStats() {
+        return new TelescopeScheduleStats(properties.getSchedules().getRecentRuns());
     }
 
+    @Bean
+    @ConditionalOnMissingBean
+    public TelescopeCacheStats telescopeCacheStats() {
+        return new TelescopeCacheStats();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TelescopeHttpClientStats telescopeHttpClientStats() {
+        return new TelescopeHttpClientStats(properties.getHttpClient().getMaxHosts());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TelescopeExceptionGroups telescopeExceptionGroups() {
+        return new TelescopeExceptionGroups(properties.getExceptions().getMaxGroups(),
+                properties.getExceptions().getFingerprintFrames());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TelescopeFilterProvider telescopeFilterProvider(TelescopeStorage storage) {
+        return new DefaultTelescopeFilterProvider(storage);
+    }
+
+    // --- Batch context propagation across threads ---
+
+    @Bean
+    @ConditionalOnProperty(prefix = "telescope.async", name = "propagate-context", havingValue = "true", matchIfMissing = true)
+    public TelescopeContextExecutorsInitializer telescopeContextExecutorsInitializer(TelescopeUserProvider userProvider) {
+        return new TelescopeContextExecutorsInitializer(userProvider);
+    }
+
+    public static class TelescopeContextExecutorsInitializer {
+        public TelescopeContextExecutorsInitializer(TelescopeUserProvider userProvider) {
+            TelescopeContextExecutors.configure(userProvider);
+        }
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "telescope.async", name = "propagate-context", havingValue = "true", matchIfMissing = true)
+    @ConditionalOnMissingBean(TaskDecorator.class)
+    public TelescopeTaskDecorator telescopeTaskDecorator(TelescopeUserProvider userProvider) {
+        return new TelescopeTaskDecorator(userProvider);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "telescope.async", name = {"propagate-context", "wrap-executors"}, havingValue = "true",
+            matchIfMissing = true)
+    @ConditionalOnClass(name = "org.springframework.aop.framework.ProxyFactory")
+    public static TelescopeExecutorPostProcessor telescopeExecutorPostProcessor() {
+        return new TelescopeExecutorPostProcessor();
+    }
+
+    // --- Watchers ---
+
     @Bean
     @ConditionalOnProperty(prefix = "telescope.watchers", name = "exceptions", havingValue = "true", matchIfMissing = true)
-    @ConditionalOnMissingBean(TelescopeExceptionHandler.class)
-    public TelescopeExceptionHandler telescopeExceptionHandler(TelescopeExceptionRecorder recorder) {
-        return new TelescopeExceptionHandler(recorder);
+    public TelescopeExceptionRecorder telescopeExceptionRecorder(TelescopeStorage storage, TelescopeUserProvider userProvider,
+                                                                 TelescopeSampler sampler,
+                                                                 TelescopeExceptionGroups exceptionGroups) {
+        return new TelescopeExceptionRecorder(storage, userProvider, sampler, exceptionGroups);
     }
 
     @Bean
     @ConditionalOnProperty(prefix = "telescope.watchers", name = "events", havingValue = "true", matchIfMissing = true)
-    public TelescopeEventWatcher telescopeEventWatcher(TelescopeStorage storage, TelescopeUserProvider userProvider) {
-        return new TelescopeEventWatcher(storage, userProvider, properties);
+    public TelescopeEventWatcher telescopeEventWatcher(TelescopeStorage storage, TelescopeUserProvider userProvider,
+                                                       TelescopeSampler sampler) {
+        return new TelescopeEventWatcher(storage, userProvider, sampler, properties);
     }
 
     @Bean
     @ConditionalOnProperty(prefix = "telescope.watchers", name = "schedules", havingValue = "true", matchIfMissing = true)
     @ConditionalOnClass(name = "org.aspectj.lang.ProceedingJoinPoint")
-    public TelescopeScheduleAspect telescopeScheduleAspect(TelescopeStorage storage) {
-        return new TelescopeScheduleAspect(storage);
+    public TelescopeScheduleAspect telescopeScheduleAspect(TelescopeStorage storage, TelescopeUserProvider userProvider,
+                                                           TelescopeSampler sampler, TelescopeTailSampler tailSampler,
+                                                           TelescopeScheduleStats scheduleStats) {
+        return new TelescopeScheduleAspect(storage, userProvider, sampler, tailSampler, scheduleStats, properties);
     }
 
     @Bean
     @ConditionalOnProperty(prefix = "telescope.watchers", name = "cache", havingValue = "true", matchIfMissing = true)
-    @ConditionalOnClass(name = "org.aspectj.lang.ProceedingJoinPoint")
-    public TelescopeCacheAspect telescopeCacheAspect(TelescopeStorage storage, TelescopeUserProvider userProvider) {
-        return new TelescopeCacheAspect(storage, userProvider);
+    @ConditionalOnClass(name = "org.springframework.aop.framework.ProxyFactory")
+    public static TelescopeCacheManagerPostProcessor telescopeCacheManagerPostProcessor(
+            ObjectProvider<TelescopeStorage> storage, ObjectProvider<TelescopeUserProvider> userProvider,
+            ObjectProvider<TelescopeSampler> sampler, ObjectProvider<TelescopeCacheStats> cacheStats) {
+        return new TelescopeCacheManagerPostProcessor(storage, userProvider, sampler, cacheStats);
     }
 
     @Bean
     @ConditionalOnProperty(prefix = "telescope.watchers", name = "mail", havingValue = "true", matchIfMissing = true)
     @ConditionalOnClass(name = {"org.aspectj.lang.ProceedingJoinPoint", "org.springframework.mail.MailSender"})
-    public TelescopeMailWatcher telescopeMailWatcher(TelescopeStorage storage, TelescopeUserProvider userProvider) {
-        return new TelescopeMailWatcher(storage, userProvider);
+    public TelescopeMailWatcher telescopeMailWatcher(TelescopeStorage storage, TelescopeUserProvider userProvider,
+                                                     TelescopeSampler sampler) {
+        return new TelescopeMailWatcher(storage, userProvider, sampler);
     }
 
     @Bean
     @ConditionalOnProperty(prefix = "telescope.watchers", name = "queries", havingValue = "true", matchIfMissing = true)
     @ConditionalOnClass(name = "org.hibernate.SessionFactory")
-    public HibernatePropertiesCustomizer telescopeHibernateCustomizer(TelescopeStorage storage, TelescopeUserProvider userProvider) {
-        return hibernateProperties -> hibernateProperties.put(
-                "hibernate.session_factory.statement_inspector",
-                new TelescopeQueryInspector(storage, userProvider)
-        );
+    public HibernatePropertiesCustomizer telescopeHibernateCustomizer(TelescopeStorage storage, TelescopeUserProvider userProvider,
+                                                                      TelescopeSampler sampler, TelescopeQueryStats queryStats) {
+        return hibernateProperties -> {
+            // The JDBC watcher sees the same statements with timings; avoid recording them twice
+            if (properties.getQueries().isJdbc()) return;
+            hibernateProperties.put(
+                    "hibernate.session_factory.statement_inspector",
+                    new TelescopeQueryInspector(storage, userProvider, sampler, queryStats)
+            );
+        };
     }
 
     @Bean
-    public TelescopePruner telescopePruner(TelescopeStorage storage) {
-        return new TelescopePruner(storage, properties);
+    @ConditionalOnProperty(prefix = "telescope", name = {"watchers.queries", "queries.jdbc"}, havingValue = "true",
+            matchIfMissing = true)
+    @ConditionalOnClass(name = "org.springframework.aop.framework.ProxyFactory")
+    public static TelescopeDataSourcePostProcessor telescopeDataSourcePostProcessor(
+            ObjectProvider<TelescopeStorage> storage, ObjectProvider<TelescopeUserProvider> userProvider,
+            ObjectProvider<TelescopeSampler> sampler, ObjectProvider<TelescopeQueryStats> queryStats,
+            ObjectProvider<TelescopeProperties> properties) {
+        return new TelescopeDataSourcePostProcessor(storage, userProvider, sampler, queryStats, properties);
     }
 
-    @Bean
-    public WebMvcConfigurer telescopeViewConfigurer() {
-        return new WebMvcConfigurer() {
-            @Override
-            public void addViewControllers(ViewControllerRegistry registry) {
-                String basePath = properties.getBasePath();
-                registry.addRedirectViewController(basePath, basePath + "/index.html");
-                registry.addRedirectViewController(basePath + "/", basePath + "/index.html");
+    // --- Outgoing HTTP calls (RestTemplate, RestClient, WebClient) ---
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = "telescope.watchers", name = "http-client", havingValue = "true", matchIfMissing = true)
+    static class TelescopeHttpClientConfiguration {
+
+        @Bean
+        public TelescopeHttpClientWatcher telescopeHttpClientWatcher(TelescopeStorage storage,
+                                                                     TelescopeUserProvider userProvider,
+                                                                     TelescopeSampler sampler,
+                                                                     TelescopeHttpClientStats httpClientStats) {
+            return new TelescopeHttpClientWatcher(storage, userProvider, sampler, httpClientStats);
+        }
+
+        @Bean
+        public RestTemplateCustomizer telescopeRestTemplateCustomizer(TelescopeHttpClientWatcher watcher) {
+            TelescopeHttpClientInterceptor interceptor = new TelescopeHttpClientInterceptor(watcher, "RestTemplate");
+            return restTemplate -> {
+                if (restTemplate.getInterceptors().stream().noneMatch(TelescopeHttpClientInterceptor.class::isInstance)) {
+                    restTemplate.getInterceptors().add(interceptor);
+                }
+            };
+        }
+
+        @Bean
+        public RestClientCustomizer telescopeRestClientCustomizer(TelescopeHttpClientWatcher watcher) {
+            TelescopeHttpClientInterceptor interceptor = new TelescopeHttpClientInterceptor(watcher, "RestClient");
+            return builder -> builder.requestInterceptors(interceptors -> {
+                if (interceptors.stream().noneMatch(TelescopeHttpClientInterceptor.class::isInstance)) {
+                    interceptors.add(interceptor);
+                }
+            });
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = "telescope.http-client", name = "rest-template-beans", havingValue = "true")
+        public static TelescopeRestTemplatePostProcessor telescopeRestTemplatePostProcessor(
+                ObjectProvider<TelescopeHttpClientWatcher> watcher) {
+            return new TelescopeRestTemplatePostProcessor(watcher);
+        }
+
+        @Configuration(proxyBeanMethods = false)
+        @ConditionalOnClass(name = "org.springframework.web.reactive.function.client.WebClient")
+        static class TelescopeWebClientConfiguration {
+
+            @Bean
+            public WebClientCustomizer telescopeWebClientCustomizer(TelescopeHttpClientWatcher watcher) {
+                TelescopeWebClientFilter filter = new TelescopeWebClientFilter(watcher);
+                return builder -> builder.filters(filters -> {
+                    if (filters.stream().noneMatch(TelescopeWebClientFilter.class::isInstance)) {
+                        filters.add(filter);
+                    }
+                });
             }
-        };
+        }
+    }
+
+    @Bean
+    public TelescopePruner telescopePruner(TelescopeStorage storage) {
+        return new TelescopePruner(storage, properties);
     }
 
     // --- Hibernate model listener initialization (uses injected beans) ---
@@ -161,13 +466,14 @@ public class TelescopeAutoConfiguration {
     @ConditionalOnProperty(prefix = "telescope.watchers", name = "models", havingValue = "true", matchIfMissing = true)
     @ConditionalOnClass(name = "org.hibernate.event.spi.PostInsertEventListener")
     public TelescopeModelListenerInitializer telescopeModelListenerInitializer(
-            TelescopeStorage storage, TelescopeUserProvider userProvider) {
-        return new TelescopeModelListenerInitializer(storage, userProvider);
+            TelescopeStorage storage, TelescopeUserProvider userProvider, TelescopeSampler sampler) {
+        return new TelescopeModelListenerInitializer(storage, userProvider, sampler, properties.getModels());
     }
 
     public static class TelescopeModelListenerInitializer {
-        public TelescopeModelListenerInitializer(TelescopeStorage storage, TelescopeUserProvider userProvider) {
-            TelescopeModelListener.configure(storage, userProvider);
+        public TelescopeModelListenerInitializer(TelescopeStorage storage, TelescopeUserProvider userProvider,
+                                                 TelescopeSampler sampler, TelescopeProperties.Models models) {
+            TelescopeModelListener.configure(storage, userProvider, sampler, models);
         }
     }
 
@@ -177,23 +483,42 @@ public class TelescopeAutoConfiguration {
     @ConditionalOnProperty(prefix = "telescope.watchers", name = "logs", havingValue = "true", matchIfMissing = true)
     @ConditionalOnClass(name = "ch.qos.logback.classic.Logger")
     public TelescopeLogAppenderInitializer telescopeLogAppenderInitializer(
-            TelescopeStorage storage, TelescopeUserProvider userProvider) {
-        return new TelescopeLogAppenderInitializer(storage, userProvider, properties.getBasePackage());
+            TelescopeStorage storage, TelescopeUserProvider userProvider, TelescopeSampler sampler) {
+        return new TelescopeLogAppenderInitializer(storage, userProvider, sampler, properties.getBasePackage(),
+                properties.getLogs());
     }
 
-    public static class TelescopeLogAppenderInitializer {
+    public static class TelescopeLogAppenderInitializer implements DisposableBean {
 
-        public TelescopeLogAppenderInitializer(TelescopeStorage storage, TelescopeUserProvider userProvider, String basePackage) {
-            TelescopeLogAppender.configure(storage, userProvider, basePackage);
+        private final TelescopeLogAppender appender;
+
+        public TelescopeLogAppenderInitializer(TelescopeStorage storage, TelescopeUserProvider userProvider,
+                                               TelescopeSampler sampler, String basePackage,
+                                               TelescopeProperties.Logs logs) {
+            TelescopeLogAppender.configure(storage, userProvider, sampler, basePackage);
 
             LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
-            TelescopeLogAppender appender = new TelescopeLogAppender();
+            appender = new TelescopeLogAppender();
             appender.setContext(loggerContext);
             appender.setName("TELESCOPE");
+            appender.setAsync(logs.isAsync());
+            appender.setQueueSize(logs.getQueueSize());
+            appender.setOverflowPolicy(logs.getOverflowPolicy());
+            if (logs.isAggregate()) {
+                appender.setAggregator(new TelescopeLogAggregator(
+                        logs.getAggregationWindowMs(), logs.getMaxGroups(), logs.getMaxSamples()));
+            }
             appender.start();
 
             Logger rootLogger = loggerContext.getLogger(Logger.ROOT_LOGGER_NAME);
             rootLogger.addAppender(appender);
         }
+
+        @Override
+        public void destroy() {
+            LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+            loggerContext.getLogger(Logger.ROOT_LOGGER_NAME).detachAppender(appender);
+            appender.stop();
+        }
     }
 }
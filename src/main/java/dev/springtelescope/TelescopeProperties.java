@@ -1,8 +1,13 @@
 package dev.springtelescope;
 
+import dev.springtelescope.model.TelescopeEntryType;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Data
@@ -16,10 +21,23 @@ public class TelescopeProperties {
     private String basePackage = "";
     private Set<String> ignoredPrefixes = Set.of("/actuator", "/swagger", "/v3/api-docs");
     private String tenantPattern = "";
+    private int maxBodyBytes = 10000;
     private String accessToken = "";
     private String storage = "memory";
     private long flushIntervalMs = 2000;
     private Watchers watchers = new Watchers();
+    private Sampling sampling = new Sampling();
+    private Overload overload = new Overload();
+    private Capture capture = new Capture();
+    private Queries queries = new Queries();
+    private Logs logs = new Logs();
+    private Exceptions exceptions = new Exceptions();
+    private Events events = new Events();
+    private Models models = new Models();
+    private Schedules schedules = new Schedules();
+    private Async async = new Async();
+    private HttpClient httpClient = new HttpClient();
+    private List<RouteRule> routes = new ArrayList<>();
 
     @Data
     public static class Watchers {
@@ -32,5 +50,120 @@ public class TelescopeProperties {
         private boolean events = true;
         private boolean mail = true;
         private boolean models = true;
+        private boolean httpClient = true;
+    }
+
+    @Data
+    public static class Queries {
+        private boolean jdbc = true;
+        private long slowThresholdMs = 100;
+        private int maxFingerprints = 500;
+        private int nPlusOneThreshold = 10;
+    }
+
+    @Data
+    public static class Events {
+        private int maxPayloadDepth = 2;
+        private int maxPayloadSize = 4000;
+    }
+
+    @Data
+    public static class Models {
+        private int detailThreshold = 50;
+        private int sampleIds = 5;
+    }
+
+    @Data
+    public static class Schedules {
+        private int recentRuns = 20;
+    }
+
+    @Data
+    public static class Async {
+        private boolean propagateContext = true;
+        private boolean wrapExecutors = true;
+    }
+
+    @Data
+    public static class HttpClient {
+        private int maxHosts = 200;
+        private boolean restTemplateBeans = false;
+    }
+
+    @Data
+    public static class Exceptions {
+        private int maxGroups = 500;
+        private int fingerprintFrames = 5;
+    }
+
+    @Data
+    public static class Logs {
+        private boolean async = true;
+        private int queueSize = 8192;
+        private LogOverflowPolicy overflowPolicy = LogOverflowPolicy.DROP;
+        private boolean aggregate = false;
+        private long aggregationWindowMs = 10000;
+        private int maxGroups = 1000;
+        private int maxSamples = 3;
+    }
+
+    public enum LogOverflowPolicy {
+        DROP,
+        CALLER_RUNS
+    }
+
+    @Data
+    public static class Capture {
+        private Set<String> bypassContentTypes = Set.of(
+                "text/event-stream", "application/octet-stream", "application/pdf", "application/zip",
+                "application/x-ndjson", "multipart/", "image/", "audio/", "video/");
+        private long maxContentLength = 1048576;
+        private Set<String> metadataOnlyPrefixes = Set.of();
+    }
+
+    public enum CaptureMode {
+        IGNORE,
+        METADATA,
+        BODIES
+    }
+
+    @Data
+    public static class RouteRule {
+        private String pattern;
+        private CaptureMode capture = CaptureMode.BODIES;
+        private double sampleRate = 1.0;
+    }
+
+    @Data
+    public static class Sampling {
+        private Map<TelescopeEntryType, SamplingRule> types = new LinkedHashMap<>();
+        private TailSampling tail = new TailSampling();
+    }
+
+    @Data
+    public static class TailSampling {
+        private boolean enabled = false;
+        private double rate = 0.05;
+        private int minStatus = 500;
+        private long slowThresholdMs = 1000;
+        private int maxBatchEntries = 500;
+    }
+
+    @Data
+    public static class SamplingRule {
+        private double rate = 1.0;
+        private int maxPerSecond = 0;
+        private boolean alwaysKeepErrors = true;
+    }
+
+    @Data
+    public static class Overload {
+        private boolean enabled = false;
+        private long checkIntervalMs = 1000;
+        private long maxEntriesPerSecond = 2000;
+        private double maxCapturePercent = 5.0;
+        private long maxRequestLatencyMs = 0;
+        private double maxGcPercent = 0;
+        private int recoveryChecks = 5;
     }
 }
@@ -0,0 +1,84 @@
+package dev.springtelescope.aggregate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Concurrent map of aggregates keyed by fingerprint, host or similar, holding
+ * at most {@code maxSize} keys.
+ * <p>
+ * Lookups of existing keys are lock-free. New keys are added under a lock so
+ * the bound is never exceeded; when the map is full, the least recently seen
+ * eighth of the keys is evicted in one pass, so the scan is amortized over
+ * the inserts that follow instead of repeated for every new key. The value for
+ * a new key is created outside the lock and discarded if another thread adds
+ * the same key first.
+ */
+public class TelescopeBoundedAggregates<V> {
+
+    private final ConcurrentHashMap<String, V> values = new ConcurrentHashMap<>();
+    private final Object insertLock = new Object();
+    private final int maxSize;
+    private final ToLongFunction<V> lastSeen;
+
+    /**
+     * @param lastSeen when a value was last recorded, in any monotonic unit;
+     *                 the lowest values are evicted first
+     */
+    public TelescopeBoundedAggregates(int maxSize, ToLongFunction<V> lastSeen) {
+        this.maxSize = Math.max(1, maxSize);
+        this.lastSeen = lastSeen;
+    }
+
+    /**
+     * Returns the value for {@code key}, creating it with {@code factory} and
+     * evicting the least recently seen values first if the map is full.
+     */
+    public V getOrCreate(String key, Function<String, V> factory) {
+        V value = values.get(key);
+        if (value != null) return value;
+
+        V created = factory.apply(key);
+        synchronized (insertLock) {
+            value = values.get(key);
+            if (value != null) return value;
+            if (values.size() >= maxSize) {
+                evictLeastRecent();
+            }
+            values.put(key, created);
+            return created;
+        }
+    }
+
+    public Optional<V> get(String key) {
+        return Optional.ofNullable(values.get(key));
+    }
+
+    public Collection<V> values() {
+        return values.values();
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public void clear() {
+        values.clear();
+    }
+
+    private void evictLeastRecent() {
+        // Snapshot the timestamps first; they keep moving while we sort
+        List<Candidate<V>> candidates = new ArrayList<>(values.size());
+        values.forEach((key, value) -> candidates.add(new Candidate<>(key, value, lastSeen.applyAsLong(value))));
+        candidates.sort(Comparator.comparingLong(Candidate::lastSeen));
+        int evict = Math.min(candidates.size(), Math.max(1, maxSize / 8));
+        for (int i = 0; i < evict; i++) {
+            values.remove(candidates.get(i).key(), candidates.get(i).value());
+        }
+    }
+
+    private record Candidate<V>(String key, V value, long lastSeen) {
+    }
+}
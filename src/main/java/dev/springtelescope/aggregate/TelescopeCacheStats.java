@@ -0,0 +1,120 @@
+package dev.springtelescope.aggregate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-cache operation counters: hits, misses, puts, evictions, clears and the
+ * time spent loading missed values.
+ * <p>
+ * Every operation is counted, independently of entry sampling, on striped
+ * {@link LongAdder}s so busy caches do not contend on a shared counter. Cache
+ * managers create a small, stable set of caches, so counters are kept for
+ * every cache name seen and only reset on {@link #clear()}.
+ */
+public class TelescopeCacheStats {
+
+    private final ConcurrentHashMap<String, CacheCounters> caches = new ConcurrentHashMap<>();
+
+    public CacheCounters forCache(String name) {
+        CacheCounters counters = caches.get(name);
+        return counters != null ? counters : caches.computeIfAbsent(name, CacheCounters::new);
+    }
+
+    /**
+     * Returns the counters of every cache, busiest first.
+     */
+    public List<Map<String, Object>> getAll() {
+        return caches.values().stream()
+                .sorted(Comparator.comparingLong(CacheCounters::getRequests).reversed())
+                .map(CacheCounters::toMap)
+                .toList();
+    }
+
+    /**
+     * Resets all counters. Cache decorators keep their counters, so they are
+     * zeroed rather than removed.
+     */
+    public void clear() {
+        caches.values().forEach(CacheCounters::reset);
+    }
+
+    public static final class CacheCounters {
+        private final String name;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder puts = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder clears = new LongAdder();
+        private final LongAdder loads = new LongAdder();
+        private final LongAdder loadNanos = new LongAdder();
+
+        CacheCounters(String name) {
+            this.name = name;
+        }
+
+        public void hit() {
+            hits.increment();
+        }
+
+        public void miss() {
+            misses.increment();
+        }
+
+        public void put() {
+            puts.increment();
+        }
+
+        public void evict() {
+            evictions.increment();
+        }
+
+        public void clear() {
+            clears.increment();
+        }
+
+        /**
+         * Time spent producing a missed value, from the miss to the value
+         * being stored.
+         */
+        public void load(long nanos) {
+            loads.increment();
+            loadNanos.add(nanos);
+        }
+
+        public long getRequests() {
+            return hits.sum() + misses.sum();
+        }
+
+        Map<String, Object> toMap() {
+            long hitCount = hits.sum();
+            long missCount = misses.sum();
+            long loadCount = loads.sum();
+            long loadTotal = loadNanos.sum();
+            long requests = hitCount + missCount;
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("cacheName", name);
+            map.put("hits", hitCount);
+            map.put("misses", missCount);
+            map.put("hitRatio", requests > 0 ? Math.round(hitCount * 10_000.0 / requests) / 10_000.0 : 0.0);
+            map.put("puts", puts.sum());
+            map.put("evictions", evictions.sum());
+            map.put("clears", clears.sum());
+            map.put("loads", loadCount);
+            map.put("totalLoadTime", Math.round(loadTotal / 1_000.0) / 1_000.0);
+            map.put("avgLoadTime", loadCount > 0 ? Math.round(loadTotal / (double) loadCount / 1_000.0) / 1_000.0 : 0.0);
+            return map;
+        }
+
+        void reset() {
+            hits.reset();
+            misses.reset();
+            puts.reset();
+            evictions.reset();
+            clears.reset();
+            loads.reset();
+            loadNanos.reset();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package dev.springtelescope.aggregate;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Groups exceptions by fingerprint: the exception class plus the class and
+ * method of its top stack frames. Line numbers are left out so a group
+ * survives unrelated edits to the same method.
+ * <p>
+ * Sampled-out occurrences still count towards their group. The stack
+ * trace is rendered once, when the group is created, and kept in storage once
+ * per fingerprint (see {@link dev.springtelescope.storage.TelescopeStorage#storeTrace});
+ * occurrences only carry the fingerprint and their top frame, and no
+ * throwable is retained. Traces longer than {@value #MAX_TRACE_LENGTH}
+ * characters are truncated. Groups live in a
+ * {@link TelescopeBoundedAggregates} of at most {@code maxGroups}.
+ */
+public class TelescopeExceptionGroups {
+
+    private static final int MAX_TRACE_LENGTH = 5000;
+
+    private final TelescopeBoundedAggregates<ExceptionGroup> groups;
+    private final int fingerprintFrames;
+
+    public TelescopeExceptionGroups(int maxGroups, int fingerprintFrames) {
+        this.groups = new TelescopeBoundedAggregates<>(maxGroups, g -> g.lastSeen);
+        this.fingerprintFrames = Math.max(0, fingerprintFrames);
+    }
+
+    /**
+     * Counts one occurrence and returns its group.
+     *
+     * @param stack the throwable's stack trace, passed in because
+     *              {@link Throwable#getStackTrace()} copies it on every call
+     */
+    public ExceptionGroup record(Throwable throwable, StackTraceElement[] stack, String batchId) {
+        String fingerprint = fingerprint(throwable, stack);
+        ExceptionGroup group = groups.getOrCreate(fingerprint, f -> new ExceptionGroup(f, throwable, stack));
+        group.record(batchId);
+        return group;
+    }
+
+    public Optional<ExceptionGroup> get(String fingerprint) {
+        return groups.get(fingerprint);
+    }
+
+    /**
+     * Returns the top groups ordered by {@code count}, {@code rate} (last
+     * minute) or {@code recent} (last seen).
+     */
+    public List<Map<String, Object>> getTop(String sort, int limit) {
+        long nowSecond = System.currentTimeMillis() / 1000;
+        Comparator<ExceptionGroup> order = switch (sort == null ? "count" : sort) {
+            case "rate" -> Comparator.comparingLong(g -> g.lastMinute(nowSecond));
+            case "recent" -> Comparator.comparingLong(g -> g.lastSeen);
+            default -> Comparator.comparingLong(g -> g.count.sum());
+        };
+        return groups.values().stream()
+                .sorted(order.reversed())
+                .limit(Math.max(0, limit))
+                .map(g -> g.toMap(nowSecond))
+                .toList();
+    }
+
+    public int size() {
+        return groups.size();
+    }
+
+    public void clear() {
+        groups.clear();
+    }
+
+    private String fingerprint(Throwable throwable, StackTraceElement[] stack) {
+        StringBuilder key = new StringBuilder(throwable.getClass().getName());
+        int frames = Math.min(fingerprintFrames, stack.length);
+        for (int i = 0; i < frames; i++) {
+            key.append('|').append(stack[i].getClassName()).append('.').append(stack[i].getMethodName());
+        }
+        return TelescopeSqlFingerprinter.idOf(key.toString());
+    }
+
+    public static final class ExceptionGroup {
+        private static final int RATE_SECONDS = 60;
+
+        private final String fingerprint;
+        private final String exceptionClass;
+        private final String message;
+        private final String location;
+        private final String trace;
+        private final long firstSeen = System.currentTimeMillis();
+        private final LongAdder count = new LongAdder();
+        // Per-second counters over the last minute, each tagged with its second
+        private final AtomicLongArray secondCounts = new AtomicLongArray(RATE_SECONDS);
+        private final AtomicLongArray seconds = new AtomicLongArray(RATE_SECONDS);
+        // Capture time the trace was last written to storage, in epoch microseconds
+        private final AtomicLong traceStoredAt = new AtomicLong(Long.MIN_VALUE);
+        private volatile long lastSeen = System.currentTimeMillis();
+        private volatile String lastBatchId;
+
+        ExceptionGroup(String fingerprint, Throwable throwable, StackTraceElement[] stack) {
+            this.fingerprint = fingerprint;
+            this.exceptionClass = throwable.getClass().getName();
+            this.message = throwable.getMessage();
+            this.location = stack.length > 0 ? stack[0].getClassName() + "." + stack[0].getMethodName() : null;
+            this.trace = render(throwable);
+        }
+
+        void record(String batchId) {
+            count.increment();
+            long now = System.currentTimeMillis();
+            lastSeen = now;
+            if (batchId != null) lastBatchId = batchId;
+
+            long second = now / 1000;
+            int slot = (int) (second % RATE_SECONDS);
+            long tagged = seconds.get(slot);
+            if (tagged != second && seconds.compareAndSet(slot, tagged, second)) {
+                secondCounts.set(slot, 0);
+            }
+            secondCounts.incrementAndGet(slot);
+        }
+
+        long lastMinute(long nowSecond) {
+            long total = 0;
+            for (int i = 0; i < RATE_SECONDS; i++) {
+                if (nowSecond - seconds.get(i) < RATE_SECONDS) {
+                    total += secondCounts.get(i);
+                }
+            }
+            return total;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public String getTrace() {
+            return trace;
+        }
+
+        /**
+         * Returns true, for one caller, when the trace has not been written to
+         * storage within {@code refreshMicros} of {@code nowMicros}.
+         */
+        public boolean traceDue(long nowMicros, long refreshMicros) {
+            long stored = traceStoredAt.get();
+            return (stored == Long.MIN_VALUE || nowMicros - stored >= refreshMicros)
+                    && traceStoredAt.compareAndSet(stored, nowMicros);
+        }
+
+        public Map<String, Object> toMap(long nowSecond) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("fingerprint", fingerprint);
+            map.put("class", exceptionClass);
+            map.put("message", message);
+            map.put("location", location);
+            map.put("count", count.sum());
+            map.put("lastMinute", lastMinute(nowSecond));
+            map.put("firstSeen", Instant.ofEpochMilli(firstSeen).toString());
+            map.put("lastSeen", Instant.ofEpochMilli(lastSeen).toString());
+            map.put("lastBatchId", lastBatchId);
+            return map;
+        }
+
+        public Map<String, Object> toDetailMap() {
+            Map<String, Object> map = toMap(System.currentTimeMillis() / 1000);
+            map.put("trace", trace);
+            return map;
+        }
+
+        private static String render(Throwable throwable) {
+            StringWriter sw = new StringWriter();
+            throwable.printStackTrace(new PrintWriter(sw));
+            String trace = sw.toString();
+            if (trace.length() > MAX_TRACE_LENGTH) {
+                trace = trace.substring(0, MAX_TRACE_LENGTH) + "\n... [truncated]";
+            }
+            return trace;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package dev.springtelescope.aggregate;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-host aggregates for outgoing HTTP calls: call count, failures, server
+ * errors, bytes sent and received, total, max and percentile time, and the
+ * batch of the slowest call.
+ * <p>
+ * Calls are counted whether or not their entry was sampled. Hosts are held
+ * in a {@link TelescopeBoundedAggregates}, so the least recently called ones
+ * are dropped once {@code maxHosts} is reached.
+ */
+public class TelescopeHttpClientStats {
+
+    private final TelescopeBoundedAggregates<HostAggregate> hosts;
+
+    public TelescopeHttpClientStats(int maxHosts) {
+        this.hosts = new TelescopeBoundedAggregates<>(maxHosts, a -> a.lastSeen);
+    }
+
+    /**
+     * Records one call.
+     *
+     * @param status the response status, or 0 when no response was received
+     * @param nanos  time from sending the request to the end of the response
+     */
+    public void record(String host, int status, long requestBytes, long responseBytes, long nanos, String batchId) {
+        hosts.getOrCreate(host, HostAggregate::new).record(status, requestBytes, responseBytes, nanos, batchId);
+    }
+
+    /**
+     * Returns the hosts ordered by {@code total}, {@code count}, {@code p95},
+     * {@code max} or {@code errors}.
+     */
+    public List<Map<String, Object>> getAll(String sort, int limit) {
+        Comparator<HostAggregate> order = switch (sort == null ? "total" : sort) {
+            case "count" -> Comparator.comparingLong(a -> a.count.sum());
+            case "p95" -> Comparator.comparingDouble(a -> a.histogram.percentileMillis(0.95));
+            case "max" -> Comparator.comparingLong(a -> a.maxNanos.get());
+            case "errors" -> Comparator.comparingLong(a -> a.failures.sum() + a.serverErrors.sum());
+            default -> Comparator.comparingLong(a -> a.totalNanos.sum());
+        };
+        return hosts.values().stream()
+                .sorted(order.reversed())
+                .limit(Math.max(0, limit))
+                .map(HostAggregate::toMap)
+                .toList();
+    }
+
+    public int size() {
+        return hosts.size();
+    }
+
+    public void clear() {
+        hosts.clear();
+    }
+
+    private static final class HostAggregate {
+        private final String host;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder clientErrors = new LongAdder();
+        private final LongAdder serverErrors = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final TelescopeLatencyHistogram histogram = new TelescopeLatencyHistogram();
+        private volatile long lastSeen = System.currentTimeMillis();
+        private volatile String slowestBatchId;
+
+        HostAggregate(String host) {
+            this.host = host;
+        }
+
+        void record(int status, long requestBytes, long responseBytes, long nanos, String batchId) {
+            count.increment();
+            lastSeen = System.currentTimeMillis();
+            if (status == 0) {
+                failures.increment();
+            } else if (status >= 500) {
+                serverErrors.increment();
+            } else if (status >= 400) {
+                clientErrors.increment();
+            }
+            if (requestBytes > 0) bytesSent.add(requestBytes);
+            if (responseBytes > 0) bytesReceived.add(responseBytes);
+
+            totalNanos.add(nanos);
+            histogram.recordNanos(nanos);
+            long max = maxNanos.get();
+            while (nanos > max) {
+                if (maxNanos.compareAndSet(max, nanos)) {
+                    if (batchId != null) slowestBatchId = batchId;
+                    break;
+                }
+                max = maxNanos.get();
+            }
+        }
+
+        Map<String, Object> toMap() {
+            long callCount = count.sum();
+            long total = totalNanos.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("host", host);
+            map.put("count", callCount);
+            map.put("failures", failures.sum());
+            map.put("clientErrors", clientErrors.sum());
+            map.put("serverErrors", serverErrors.sum());
+            map.put("errorRate", callCount > 0
+                    ? Math.round((failures.sum() + serverErrors.sum()) * 10_000.0 / callCount) / 10_000.0 : 0.0);
+            map.put("bytesSent", bytesSent.sum());
+            map.put("bytesReceived", bytesReceived.sum());
+            map.put("totalTime", Math.round(total / 1_000.0) / 1_000.0);
+            map.put("avgTime", callCount > 0 ? Math.round(total / (double) callCount / 1_000.0) / 1_000.0 : 0.0);
+            map.put("maxTime", Math.round(maxNanos.get() / 1_000.0) / 1_000.0);
+            map.put("p50", histogram.percentileMillis(0.50));
+            map.put("p95", histogram.percentileMillis(0.95));
+            map.put("p99", histogram.percentileMillis(0.99));
+            map.put("lastSeen", Instant.ofEpochMilli(lastSeen).toString());
+            map.put("slowestBatchId", slowestBatchId);
+            return map;
+        }
+    }
+}
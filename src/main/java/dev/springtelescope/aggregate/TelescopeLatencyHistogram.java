@@ -0,0 +1,86 @@
+package dev.springtelescope.aggregate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, lock-free latency histogram with log-linear buckets.
+ * <p>
+ * Values are recorded in microseconds. Each power of two is split into 32
+ * sub-buckets, so a bucket is at most 1/32 (about 3%) of its lower bound wide
+ * and a percentile is within about 3% of the true value; it is interpolated
+ * within its bucket and never exceeds the largest recorded value. The
+ * histogram is a fixed 1,184 counters (about 9 KB) regardless of how many
+ * values it has seen.
+ */
+public class TelescopeLatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Covers up to 2^40 microseconds (about 12 days)
+    private static final int BUCKETS = (41 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        counts.incrementAndGet(indexOf(micros));
+        if (micros > maxMicros.get()) {
+            maxMicros.accumulateAndGet(micros, Math::max);
+        }
+    }
+
+    /**
+     * Returns the value in milliseconds below which the given fraction
+     * (0.0 - 1.0) of recorded values fall, or 0 if nothing has been recorded.
+     */
+    public double percentileMillis(double fraction) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (seen + snapshot[i] >= rank) {
+                // Interpolate linearly within the bucket
+                double lower = i == 0 ? 0 : upperBoundMicros(i - 1) + 1;
+                double upper = Math.min(upperBoundMicros(i), Math.max(lower, maxMicros.get()));
+                double micros = lower + (upper - lower) * (rank - seen) / snapshot[i];
+                return Math.round(micros) / 1_000.0;
+            }
+            seen += snapshot[i];
+        }
+        return maxMicros.get() / 1_000.0;
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    static int indexOf(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        int index = (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+        return Math.min(index, BUCKETS - 1);
+    }
+
+    static double upperBoundMicros(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        long base = 1L << magnitude;
+        long step = base >>> SUB_BUCKET_BITS;
+        return base + (sub + 1) * step - 1;
+    }
+}
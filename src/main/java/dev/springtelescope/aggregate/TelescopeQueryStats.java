@@ -0,0 +1,126 @@
+package dev.springtelescope.aggregate;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-fingerprint SQL aggregates: execution count, total, max and percentile
+ * time, when the statement was last seen and the batch of its slowest
+ * execution.
+ * <p>
+ * Every execution is counted, independently of entry sampling, so totals
+ * reflect real traffic. At most {@code maxFingerprints} statements are
+ * tracked (see {@link TelescopeBoundedAggregates}).
+ */
+public class TelescopeQueryStats {
+
+    private final TelescopeSqlFingerprinter fingerprinter = new TelescopeSqlFingerprinter();
+    private final TelescopeBoundedAggregates<QueryAggregate> aggregates;
+
+    public TelescopeQueryStats(int maxFingerprints) {
+        this.aggregates = new TelescopeBoundedAggregates<>(maxFingerprints, a -> a.lastSeen);
+    }
+
+    /**
+     * Records one execution and returns the fingerprint id of the statement.
+     *
+     * @param nanos execution time, or a negative value when it is unknown
+     */
+    public String record(String sql, long nanos, String batchId) {
+        String fingerprint = fingerprinter.fingerprint(sql);
+        QueryAggregate aggregate = aggregates.getOrCreate(fingerprint, QueryAggregate::new);
+        aggregate.record(nanos, batchId);
+        return aggregate.id;
+    }
+
+    public String fingerprint(String sql) {
+        return fingerprinter.fingerprint(sql);
+    }
+
+    /**
+     * Returns the top fingerprints ordered by {@code total}, {@code count},
+     * {@code max} or {@code p95} time.
+     */
+    public List<Map<String, Object>> getTop(String sort, int limit) {
+        Comparator<QueryAggregate> order = switch (sort == null ? "total" : sort) {
+            case "count" -> Comparator.comparingLong(a -> a.count.sum());
+            case "max" -> Comparator.comparingLong(a -> a.maxNanos.get());
+            case "p95" -> Comparator.comparingDouble(a -> a.histogram.percentileMillis(0.95));
+            default -> Comparator.comparingLong(a -> a.totalNanos.sum());
+        };
+        return aggregates.values().stream()
+                .sorted(order.reversed())
+                .limit(Math.max(0, limit))
+                .map(QueryAggregate::toMap)
+                .toList();
+    }
+
+    public int size() {
+        return aggregates.size();
+    }
+
+    public void clear() {
+        aggregates.clear();
+    }
+
+    private static final class QueryAggregate {
+        private final String fingerprint;
+        private final String id;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder timed = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final TelescopeLatencyHistogram histogram = new TelescopeLatencyHistogram();
+        private volatile long lastSeen = System.currentTimeMillis();
+        private volatile String exampleBatchId;
+
+        QueryAggregate(String fingerprint) {
+            this.fingerprint = fingerprint;
+            this.id = TelescopeSqlFingerprinter.idOf(fingerprint);
+        }
+
+        void record(long nanos, String batchId) {
+            count.increment();
+            lastSeen = System.currentTimeMillis();
+            if (exampleBatchId == null && batchId != null) {
+                exampleBatchId = batchId;
+            }
+            if (nanos < 0) return;
+
+            timed.increment();
+            totalNanos.add(nanos);
+            histogram.recordNanos(nanos);
+            long max = maxNanos.get();
+            while (nanos > max) {
+                if (maxNanos.compareAndSet(max, nanos)) {
+                    // Point at the slowest execution seen so far
+                    if (batchId != null) exampleBatchId = batchId;
+                    break;
+                }
+                max = maxNanos.get();
+            }
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            long timedCount = timed.sum();
+            long total = totalNanos.sum();
+            map.put("fingerprint", id);
+            map.put("sql", fingerprint);
+            map.put("count", count.sum());
+            if (timedCount > 0) {
+                map.put("totalTime", Math.round(total / 1_000.0) / 1_000.0);
+                map.put("avgTime", Math.round(total / (double) timedCount / 1_000.0) / 1_000.0);
+                map.put("maxTime", Math.round(maxNanos.get() / 1_000.0) / 1_000.0);
+                map.put("p50", histogram.percentileMillis(0.50));
+                map.put("p95", histogram.percentileMillis(0.95));
+                map.put("p99", histogram.percentileMillis(0.99));
+            }
+            map.put("lastSeen", Instant.ofEpochMilli(lastSeen).toString());
+            map.put("exampleBatchId", exampleBatchId);
+            return map;
+        }
+    }
+}
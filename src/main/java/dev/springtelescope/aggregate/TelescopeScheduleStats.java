@@ -0,0 +1,229 @@
+package dev.springtelescope.aggregate;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Per-job aggregates for scheduled methods: run count, failures, total, max
+ * and percentile time, and a timeline of the most recent runs.
+ * <p>
+ * A run overlaps when it starts while another run of the same job is still
+ * in progress. It overruns when it ends after the job's next scheduled start,
+ * i.e. it took longer than its fixed rate or its cron interval. A fixed-delay
+ * job is next due only after its run ends, so it cannot overrun; a run longer
+ * than its delay is counted under {@code exceedsDelay} instead.
+ * Every run is counted, independently of entry sampling. An application has
+ * a fixed set of scheduled methods, so jobs are never evicted.
+ */
+public class TelescopeScheduleStats {
+
+    private final ConcurrentHashMap<String, Job> jobs = new ConcurrentHashMap<>();
+    private final int recentRuns;
+
+    public TelescopeScheduleStats(int recentRuns) {
+        this.recentRuns = Math.max(1, recentRuns);
+    }
+
+    /**
+     * Returns the aggregate of a job, creating it on its first run.
+     *
+     * @param trigger resolves the trigger of a new job; called once per job
+     */
+    public Job job(String key, Function<String, Trigger> trigger) {
+        Job job = jobs.get(key);
+        return job != null ? job : jobs.computeIfAbsent(key, k -> new Job(k, trigger.apply(k), recentRuns));
+    }
+
+    /**
+     * Returns the jobs ordered by {@code total}, {@code count}, {@code p95},
+     * {@code failures} or {@code recent} (last run).
+     */
+    public List<Map<String, Object>> getAll(String sort, int limit) {
+        Comparator<Job> order = switch (sort == null ? "total" : sort) {
+            case "count" -> Comparator.comparingLong(j -> j.count.sum());
+            case "p95" -> Comparator.comparingDouble(j -> j.histogram.percentileMillis(0.95));
+            case "failures" -> Comparator.comparingLong(j -> j.failures.sum());
+            case "recent" -> Comparator.comparingLong(j -> j.lastStart);
+            default -> Comparator.comparingLong(j -> j.totalNanos.sum());
+        };
+        return jobs.values().stream()
+                .sorted(order.reversed())
+                .limit(Math.max(0, limit))
+                .map(Job::toMap)
+                .toList();
+    }
+
+    public int size() {
+        return jobs.size();
+    }
+
+    public void clear() {
+        jobs.clear();
+    }
+
+    /**
+     * When a job is next due: a description for display, and either the next
+     * start (epoch millis) expected after a run that started at the given
+     * time, or for a fixed-delay job the delay after each run.
+     */
+    public record Trigger(String description, LongUnaryOperator nextStart, long delayMillis) {
+        public static final Trigger UNKNOWN = new Trigger(null, null, 0);
+
+        public Trigger(String description, LongUnaryOperator nextStart) {
+            this(description, nextStart, 0);
+        }
+
+        public static Trigger fixedDelay(long delayMillis) {
+            return new Trigger("fixedDelay " + delayMillis + "ms", null, delayMillis);
+        }
+    }
+
+    public static final class Job {
+        private final String key;
+        private final Trigger trigger;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder overlaps = new LongAdder();
+        private final LongAdder overruns = new LongAdder();
+        private final LongAdder delaysExceeded = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicInteger running = new AtomicInteger();
+        private final TelescopeLatencyHistogram histogram = new TelescopeLatencyHistogram();
+        private final Run[] runs;
+        private int nextRun;
+        private volatile long lastStart;
+
+        Job(String key, Trigger trigger, int recentRuns) {
+            this.key = key;
+            this.trigger = trigger != null ? trigger : Trigger.UNKNOWN;
+            this.runs = new Run[recentRuns];
+        }
+
+        /**
+         * Marks the start of a run.
+         * @return true if another run of this job is still in progress
+         */
+        public boolean start(long startMillis) {
+            lastStart = startMillis;
+            boolean overlapping = running.getAndIncrement() > 0;
+            if (overlapping) overlaps.increment();
+            return overlapping;
+        }
+
+        /**
+         * Records a finished run.
+         * @return true if the run ended after the job's next scheduled start
+         */
+        public boolean finish(long startMillis, long nanos, boolean failed, String batchId) {
+            running.decrementAndGet();
+            count.increment();
+            if (failed) failures.increment();
+            totalNanos.add(nanos);
+            histogram.recordNanos(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+
+            boolean overrun = false;
+            if (trigger.nextStart() != null) {
+                try {
+                    long next = trigger.nextStart().applyAsLong(startMillis);
+                    overrun = next > 0 && startMillis + nanos / 1_000_000 > next;
+                } catch (Exception ignored) {
+                }
+            }
+            if (overrun) overruns.increment();
+            boolean exceedsDelay = exceedsDelay(nanos);
+            if (exceedsDelay) delaysExceeded.increment();
+
+            synchronized (runs) {
+                runs[nextRun] = new Run(startMillis, nanos, failed, overrun, exceedsDelay, batchId);
+                nextRun = (nextRun + 1) % runs.length;
+            }
+            return overrun;
+        }
+
+        /**
+         * Whether a run of a fixed-delay job took longer than its delay.
+         */
+        public boolean exceedsDelay(long nanos) {
+            return trigger.delayMillis() > 0 && nanos / 1_000_000 > trigger.delayMillis();
+        }
+
+        Map<String, Object> toMap() {
+            long runCount = count.sum();
+            long total = totalNanos.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("job", key);
+            if (trigger.description() != null) {
+                map.put("trigger", trigger.description());
+            }
+            map.put("count", runCount);
+            map.put("failures", failures.sum());
+            map.put("failureRate", runCount > 0 ? Math.round(failures.sum() * 10_000.0 / runCount) / 10_000.0 : 0.0);
+            map.put("overlaps", overlaps.sum());
+            map.put("overruns", overruns.sum());
+            if (trigger.delayMillis() > 0) {
+                map.put("exceedsDelay", delaysExceeded.sum());
+            }
+            map.put("running", running.get());
+            map.put("totalTime", millis(total));
+            map.put("avgTime", runCount > 0 ? millis(total / (double) runCount) : 0.0);
+            map.put("maxTime", millis(maxNanos.get()));
+            map.put("p50", histogram.percentileMillis(0.50));
+            map.put("p95", histogram.percentileMillis(0.95));
+            map.put("p99", histogram.percentileMillis(0.99));
+
+            List<Map<String, Object>> recent = recentRuns();
+            if (!recent.isEmpty()) {
+                double recentTotal = 0;
+                for (Map<String, Object> run : recent) {
+                    recentTotal += (double) run.get("duration");
+                }
+                // Compared with avgTime, shows whether the job is getting slower
+                map.put("recentAvgTime", Math.round(recentTotal / recent.size() * 1_000) / 1_000.0);
+                map.put("lastRun", recent.get(0).get("startedAt"));
+            }
+            map.put("recentRuns", recent);
+            return map;
+        }
+
+        /**
+         * The retained runs, most recent first.
+         */
+        private List<Map<String, Object>> recentRuns() {
+            List<Map<String, Object>> recent = new ArrayList<>(runs.length);
+            synchronized (runs) {
+                for (int i = 1; i <= runs.length; i++) {
+                    Run run = runs[Math.floorMod(nextRun - i, runs.length)];
+                    if (run == null) break;
+                    recent.add(run.toMap());
+                }
+            }
+            return recent;
+        }
+
+        private static double millis(double nanos) {
+            return Math.round(nanos / 1_000.0) / 1_000.0;
+        }
+    }
+
+    private record Run(long startMillis, long nanos, boolean failed, boolean overrun, boolean exceedsDelay,
+                       String batchId) {
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("startedAt", Instant.ofEpochMilli(startMillis).toString());
+            map.put("duration", Math.round(nanos / 1_000.0) / 1_000.0);
+            map.put("status", failed ? "failed" : "completed");
+            if (overrun) map.put("overrun", true);
+            if (exceedsDelay) map.put("exceedsDelay", true);
+            map.put("batchId", batchId);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package dev.springtelescope.aggregate;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Normalizes SQL into a fingerprint so that statements differing only in
+ * literal values group together: string and numeric literals become {@code ?},
+ * {@code IN (...)} lists collapse to {@code in (?)}, comments are dropped,
+ * whitespace is collapsed and everything outside quoted identifiers is lower
+ * cased.
+ * <p>
+ * Applications issue a small set of distinct SQL strings, so results are
+ * cached per string in a bounded map; once it is full, new strings are
+ * normalized on every call.
+ */
+public class TelescopeSqlFingerprinter {
+
+    private static final int MAX_CACHED_STATEMENTS = 4096;
+
+    private final ConcurrentHashMap<String, String> cache = new ConcurrentHashMap<>();
+
+    public String fingerprint(String sql) {
+        String cached = cache.get(sql);
+        if (cached != null) return cached;
+
+        String fingerprint = normalize(sql);
+        if (cache.size() < MAX_CACHED_STATEMENTS) {
+            cache.putIfAbsent(sql, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Short stable identifier for a fingerprint, suitable for tags and URLs.
+     */
+    public static String idOf(String fingerprint) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < fingerprint.length(); i++) {
+            h ^= fingerprint.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return Long.toHexString(h);
+    }
+
+    public static String normalize(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        int n = sql.length();
+        int i = 0;
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                i = skipQuoted(sql, i, '\'');
+                appendToken(out, "?");
+            } else if (c == '"' || c == '`') {
+                int end = skipQuoted(sql, i, c);
+                appendToken(out, sql.substring(i, end));
+                i = end;
+            } else if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-') {
+                while (i < n && sql.charAt(i) != '\n') i++;
+            } else if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 2;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else if (isNumberStart(sql, i)) {
+                i++;
+                while (i < n && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) i++;
+                appendToken(out, "?");
+            } else if (Character.isLetterOrDigit(c) || c == '_' || c == '$') {
+                int start = i;
+                while (i < n && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_'
+                        || sql.charAt(i) == '$' || sql.charAt(i) == '.')) i++;
+                appendToken(out, sql.substring(start, i).toLowerCase());
+            } else {
+                appendToken(out, String.valueOf(c));
+                i++;
+            }
+        }
+        return collapseInLists(out.toString());
+    }
+
+    private static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                // Doubled quote is an escaped quote
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isNumberStart(String sql, int i) {
+        char c = sql.charAt(i);
+        if (!Character.isDigit(c)) return false;
+        // A digit inside an identifier (t1_0, col2) is not a literal
+        if (i > 0) {
+            char prev = sql.charAt(i - 1);
+            if (Character.isLetterOrDigit(prev) || prev == '_' || prev == '$') return false;
+        }
+        return true;
+    }
+
+    private static void appendToken(StringBuilder out, String token) {
+        if (!out.isEmpty() && needsSpace(out.charAt(out.length() - 1), token.charAt(0))) {
+            out.append(' ');
+        }
+        out.append(token);
+    }
+
+    private static boolean needsSpace(char prev, char next) {
+        return prev != '(' && prev != '.' && next != ')' && next != ',' && next != '.';
+    }
+
+    /**
+     * Collapses {@code in (?, ?, ?)} into {@code in (?)}.
+     */
+    private static String collapseInLists(String sql) {
+        int idx = sql.indexOf(" in (?,");
+        if (idx < 0) return sql;
+        StringBuilder out = new StringBuilder(sql.length());
+        int from = 0;
+        while (idx >= 0) {
+            int i = idx + " in (?".length();
+            while (sql.startsWith(", ?", i)) i += 3;
+            out.append(sql, from, idx).append(" in (?");
+            from = i;
+            idx = sql.indexOf(" in (?,", i);
+        }
+        out.append(sql, from, sql.length());
+        return out.toString();
+    }
+}
@@ -1,18 +1,29 @@
 package dev.springtelescope.context;
 
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Default implementation that uses Spring Security's SecurityContextHolder.
  * Falls back to null when Spring Security is not on the classpath.
+ * <p>
+ * The Spring Security accessors are resolved into method handles once, when
+ * the class is initialized, so a lookup costs a few direct calls.
  */
 public class DefaultTelescopeUserProvider implements TelescopeUserProvider {
 
+    private static final SecurityAccessors SECURITY = SecurityAccessors.resolve();
+    private static final boolean SERVLET_PRESENT = ClassUtils.isPresent(
+            "jakarta.servlet.http.HttpServletRequest", DefaultTelescopeUserProvider.class.getClassLoader());
+
     private final Pattern tenantPattern;
 
     public DefaultTelescopeUserProvider(String tenantPatternStr) {
@@ -23,46 +34,84 @@ public class DefaultTelescopeUserProvider implements TelescopeUserProvider {
 
     @Override
     public String getCurrentUserIdentifier() {
+        if (SECURITY == null) return null;
         try {
-            // Use reflection to avoid hard dependency on Spring Security
-            Class<?> securityContextHolderClass = Class.forName("org.springframework.security.core.context.SecurityContextHolder");
-            Object securityContext = securityContextHolderClass.getMethod("getContext").invoke(null);
-            Object authentication = securityContext.getClass().getMethod("getAuthentication").invoke(securityContext);
+            Object securityContext = (Object) SECURITY.getContext.invokeExact();
+            if (securityContext == null) return null;
+            Object authentication = (Object) SECURITY.getAuthentication.invokeExact(securityContext);
             if (authentication == null) return null;
 
-            Object principal = authentication.getClass().getMethod("getPrincipal").invoke(authentication);
+            Object principal = (Object) SECURITY.getPrincipal.invokeExact(authentication);
             if (principal == null) return null;
 
             // Check if principal is UserDetails
-            Class<?> userDetailsClass = Class.forName("org.springframework.security.core.userdetails.UserDetails");
-            if (userDetailsClass.isInstance(principal)) {
-                return (String) userDetailsClass.getMethod("getUsername").invoke(principal);
+            if (SECURITY.userDetailsClass.isInstance(principal)) {
+                return (String) SECURITY.getUsername.invokeExact(principal);
             }
 
             // Fallback: use toString if not "anonymousUser"
             String str = principal.toString();
             return "anonymousUser".equals(str) ? null : str;
-        } catch (Exception e) {
+        } catch (Throwable e) {
             return null;
         }
     }
 
     @Override
     public String getCurrentTenantId() {
-        if (tenantPattern == null) return null;
+        if (tenantPattern == null || !SERVLET_PRESENT) return null;
         try {
             ServletRequestAttributes attrs =
                     (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
             if (attrs != null) {
                 HttpServletRequest request = attrs.getRequest();
-                String uri = request.getRequestURI();
-                Matcher matcher = tenantPattern.matcher(uri);
-                if (matcher.find()) {
-                    return matcher.group(1);
-                }
+                return getTenantId(request.getRequestURI());
             }
         } catch (Exception ignored) {
         }
         return null;
     }
+
+    /**
+     * Applies the tenant pattern to a request path; used where no servlet
+     * request is bound to the thread.
+     */
+    public String getTenantId(String path) {
+        if (tenantPattern == null || path == null) return null;
+        Matcher matcher = tenantPattern.matcher(path);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Handles onto Spring Security, adapted to {@code Object} so they can be
+     * invoked exactly without compile-time types; null without Spring Security.
+     */
+    private record SecurityAccessors(MethodHandle getContext, MethodHandle getAuthentication,
+                                     MethodHandle getPrincipal, Class<?> userDetailsClass,
+                                     MethodHandle getUsername) {
+
+        static SecurityAccessors resolve() {
+            try {
+                ClassLoader loader = DefaultTelescopeUserProvider.class.getClassLoader();
+                Class<?> holder = Class.forName("org.springframework.security.core.context.SecurityContextHolder", false, loader);
+                Class<?> context = Class.forName("org.springframework.security.core.context.SecurityContext", false, loader);
+                Class<?> authentication = Class.forName("org.springframework.security.core.Authentication", false, loader);
+                Class<?> userDetails = Class.forName("org.springframework.security.core.userdetails.UserDetails", false, loader);
+
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                return new SecurityAccessors(
+                        lookup.findStatic(holder, "getContext", MethodType.methodType(context))
+                                .asType(MethodType.methodType(Object.class)),
+                        lookup.findVirtual(context, "getAuthentication", MethodType.methodType(authentication))
+                                .asType(MethodType.methodType(Object.class, Object.class)),
+                        lookup.findVirtual(authentication, "getPrincipal", MethodType.methodType(Object.class))
+                                .asType(MethodType.methodType(Object.class, Object.class)),
+                        userDetails,
+                        lookup.findVirtual(userDetails, "getUsername", MethodType.methodType(String.class))
+                                .asType(MethodType.methodType(String.class, Object.class)));
+            } catch (Exception | LinkageError e) {
+                return null;
+            }
+        }
+    }
 }
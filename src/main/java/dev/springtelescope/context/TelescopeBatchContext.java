@@ -1,10 +1,24 @@
 package dev.springtelescope.context;
 
-import java.util.UUID;
+import dev.springtelescope.id.TelescopeIds;
+import dev.springtelescope.model.TelescopeEntry;
+import dev.springtelescope.model.TelescopeEntryType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 public class TelescopeBatchContext {
 
+    /**
+     * Key of the {@link Snapshot} in the Reactor {@code Context} of a reactive request.
+     */
+    public static final String CONTEXT_KEY = "telescope.batch";
+
     private static final ThreadLocal<String> BATCH_ID = new ThreadLocal<>();
+    private static final ThreadLocal<Staged> STAGING = new ThreadLocal<>();
+    private static final ThreadLocal<TelescopeRequestTimings> TIMINGS = new ThreadLocal<>();
+    private static final ThreadLocal<CachedIdentity> IDENTITY = new ThreadLocal<>();
 
     private TelescopeBatchContext() {}
 
@@ -18,14 +32,409 @@ public class TelescopeBatchContext {
 
     public static void clear() {
         BATCH_ID.remove();
+        STAGING.remove();
+        TIMINGS.remove();
+        IDENTITY.remove();
     }
 
     public static String getOrCreate() {
         String id = BATCH_ID.get();
         if (id == null) {
-            id = UUID.randomUUID().toString();
+            id = TelescopeIds.next();
             BATCH_ID.set(id);
         }
         return id;
     }
+
+    // --- Request timings ---
+
+    public static TelescopeRequestTimings getTimings() {
+        return TIMINGS.get();
+    }
+
+    public static void setTimings(TelescopeRequestTimings timings) {
+        TIMINGS.set(timings);
+    }
+
+    /**
+     * Attributes time spent in a SQL, cache, mail or HTTP client call to the
+     * current request. A no-op outside a request.
+     */
+    public static void addTime(TelescopeEntryType type, long nanos) {
+        TelescopeRequestTimings timings = TIMINGS.get();
+        if (timings != null) {
+            timings.add(type, nanos);
+        }
+    }
+
+    /**
+     * Counts a statement execution under its fingerprint for the current
+     * request. A no-op outside a request.
+     */
+    public static void addQuery(String fingerprint, String sql, long nanos) {
+        TelescopeRequestTimings timings = TIMINGS.get();
+        if (timings != null) {
+            timings.addQuery(fingerprint, sql, nanos);
+        }
+    }
+
+    // --- Identity ---
+
+    /**
+     * User and tenant for entries recorded on this thread. Within a batch the
+     * result is cached, so a request resolves its identity once rather than
+     * once per entry. An anonymous result is only cached once
+     * {@link #setIdentity} has pinned it, since authentication may not have
+     * run yet when the first entry of a request is recorded. Requests pin it
+     * after the security filters, scheduled jobs when they start, and
+     * {@link #capture} when work is handed to another thread.
+     */
+    public static Identity identity(TelescopeUserProvider userProvider) {
+        String batchId = BATCH_ID.get();
+        CachedIdentity cached = IDENTITY.get();
+        if (cached != null && batchId != null && batchId.equals(cached.batchId)) {
+            return cached.identity;
+        }
+        if (userProvider == null) return Identity.NONE;
+
+        Identity identity;
+        try {
+            identity = new Identity(userProvider.getCurrentUserIdentifier(), userProvider.getCurrentTenantId());
+        } catch (Exception e) {
+            return Identity.NONE;
+        }
+        if (batchId != null && identity.userIdentifier() != null) {
+            IDENTITY.set(new CachedIdentity(batchId, identity));
+        }
+        return identity;
+    }
+
+    /**
+     * Fixes the identity of the current batch, e.g. once authentication has
+     * completed. A no-op outside a batch.
+     */
+    public static void setIdentity(Identity identity) {
+        String batchId = BATCH_ID.get();
+        if (batchId != null && identity != null) {
+            IDENTITY.set(new CachedIdentity(batchId, identity));
+        }
+    }
+
+    public record Identity(String userIdentifier, String tenantId) {
+        public static final Identity NONE = new Identity(null, null);
+    }
+
+    private record CachedIdentity(String batchId, Identity identity) {
+    }
+
+    // --- Propagation across threads ---
+
+    /**
+     * Captures the batch, request timings and identity bound to this thread so
+     * work handed to another thread is recorded under the same batch. The
+     * identity is resolved here, on the submitting thread, since the security
+     * context is usually not available on the worker, and pinned for the rest
+     * of the batch.
+     * @return null outside a batch
+     */
+    public static Snapshot capture(TelescopeUserProvider userProvider) {
+        String batchId = BATCH_ID.get();
+        if (batchId == null) return null;
+        Identity identity = identity(userProvider);
+        setIdentity(identity);
+        return new Snapshot(batchId, TIMINGS.get(), identity);
+    }
+
+    /**
+     * The batch state bound to this thread, with the identity only if it is
+     * already cached.
+     * @return null outside a batch
+     */
+    public static Snapshot current() {
+        String batchId = BATCH_ID.get();
+        if (batchId == null) return null;
+        CachedIdentity cached = IDENTITY.get();
+        return new Snapshot(batchId, TIMINGS.get(),
+                cached != null && batchId.equals(cached.batchId) ? cached.identity : null);
+    }
+
+    /**
+     * Binds a snapshot to this thread, or clears the batch state if it is null.
+     * Used to put back what {@link #current()} returned earlier.
+     */
+    public static void restore(Snapshot snapshot) {
+        if (snapshot != null) snapshot.attach();
+        else Snapshot.detach(null);
+    }
+
+    /**
+     * Returns the task bound to the current batch, or the task itself outside
+     * a batch or if it is already bound.
+     */
+    public static Runnable propagate(Runnable task, TelescopeUserProvider userProvider) {
+        if (task == null || task instanceof Propagating) return task;
+        Snapshot snapshot = capture(userProvider);
+        return snapshot != null ? snapshot.wrap(task) : task;
+    }
+
+    public static <T> Callable<T> propagate(Callable<T> task, TelescopeUserProvider userProvider) {
+        if (task == null || task instanceof Propagating) return task;
+        Snapshot snapshot = capture(userProvider);
+        return snapshot != null ? snapshot.wrap(task) : task;
+    }
+
+    /**
+     * Batch state captured on one thread and applied on another. Staging is
+     * not carried over: a staging area belongs to the thread that opened it,
+     * so entries recorded on a worker bypass tail sampling.
+     */
+    public record Snapshot(String batchId, TelescopeRequestTimings timings, Identity identity) {
+
+        public Runnable wrap(Runnable task) {
+            return new PropagatingRunnable(this, task);
+        }
+
+        public <T> Callable<T> wrap(Callable<T> task) {
+            return new PropagatingCallable<>(this, task);
+        }
+
+        /**
+         * Binds the snapshot to the current thread and returns the state to
+         * put back afterwards. A thread that was outside a batch, e.g. a fresh
+         * virtual thread, is simply cleared again.
+         */
+        Snapshot attach() {
+            Snapshot previous = current();
+            BATCH_ID.set(batchId);
+            if (timings != null) TIMINGS.set(timings);
+            else TIMINGS.remove();
+            if (identity != null) IDENTITY.set(new CachedIdentity(batchId, identity));
+            else IDENTITY.remove();
+            return previous;
+        }
+
+        static void detach(Snapshot previous) {
+            if (previous == null) {
+                BATCH_ID.remove();
+                TIMINGS.remove();
+                IDENTITY.remove();
+                return;
+            }
+            BATCH_ID.set(previous.batchId);
+            if (previous.timings != null) TIMINGS.set(previous.timings);
+            else TIMINGS.remove();
+            if (previous.identity != null) IDENTITY.set(new CachedIdentity(previous.batchId, previous.identity));
+            else IDENTITY.remove();
+        }
+    }
+
+    /**
+     * Marks tasks that already carry a snapshot, so stacked wrappers (an
+     * executor proxy and a task decorator) capture only once.
+     */
+    private interface Propagating {
+    }
+
+    private record PropagatingRunnable(Snapshot snapshot, Runnable task) implements Runnable, Propagating {
+        @Override
+        public void run() {
+            Snapshot previous = snapshot.attach();
+            try {
+                task.run();
+            } finally {
+                Snapshot.detach(previous);
+            }
+        }
+    }
+
+    private record PropagatingCallable<T>(Snapshot snapshot, Callable<T> task) implements Callable<T>, Propagating {
+        @Override
+        public T call() throws Exception {
+            Snapshot previous = snapshot.attach();
+            try {
+                return task.call();
+            } finally {
+                Snapshot.detach(previous);
+            }
+        }
+    }
+
+    // --- Batch staging (tail sampling) ---
+
+    /**
+     * Starts holding entries produced on this thread until {@link #stopStaging()}.
+     * Returns false if a staging area is already open (nested batch), in which
+     * case the outer owner decides for the whole batch.
+     */
+    public static boolean startStaging(int maxEntries) {
+        if (STAGING.get() != null) return false;
+        STAGING.set(new Staged(maxEntries));
+        return true;
+    }
+
+    /**
+     * Re-opens a staging area holding a batch returned by {@link #stopStaging()},
+     * e.g. on the thread that completes an async request.
+     */
+    public static void resumeStaging(Staged staged) {
+        STAGING.set(staged);
+    }
+
+    /**
+     * Holds the entry in the current staging area, see {@link Staged#add}.
+     * @return false if no staging area is open on this thread.
+     */
+    public static boolean stage(TelescopeEntry entry) {
+        Staged staged = STAGING.get();
+        if (staged == null) return false;
+        staged.add(entry);
+        return true;
+    }
+
+    /**
+     * Holds an entry that is built only if the batch is kept, see
+     * {@link Deferred}.
+     * @return false if no staging area is open on this thread.
+     */
+    public static boolean defer(Deferred deferred) {
+        Staged staged = STAGING.get();
+        if (staged == null) return false;
+        staged.defer(deferred);
+        return true;
+    }
+
+    public static boolean isStaging() {
+        return STAGING.get() != null;
+    }
+
+    /**
+     * Closes the staging area and returns the held batch, empty if none was open.
+     */
+    public static Staged stopStaging() {
+        Staged staged = STAGING.get();
+        STAGING.remove();
+        return staged != null ? staged : new Staged(0);
+    }
+
+    /**
+     * Entries of one batch held under tail sampling.
+     * <p>
+     * Entries that describe the batch as a whole (the REQUEST or SCHEDULE
+     * entry and N+1 summaries, recorded last) are always held. Other entries
+     * are capped at {@code maxEntries} to keep memory bounded: once full, a
+     * new entry displaces a held entry of lower value (queries, logs and cache
+     * operations first, exceptions never) or is dropped. Displaced and dropped
+     * entries are counted, and a recorded exception is remembered even if its
+     * entry could not be held. {@link Deferred} entries count towards the cap
+     * as logs.
+     */
+    public static final class Staged {
+        private static final int SUMMARY = -1;
+        private static final int RANKS = 3;
+
+        private final int maxEntries;
+        private final List<TelescopeEntry> entries = new ArrayList<>();
+        private final List<Deferred> deferred = new ArrayList<>();
+        private final int[] heldByRank = new int[RANKS];
+        private int capped;
+        private int dropped;
+        private boolean exception;
+
+        private Staged(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        void add(TelescopeEntry entry) {
+            if (entry.getType() == TelescopeEntryType.EXCEPTION) exception = true;
+            int rank = rankOf(entry);
+            if (rank == SUMMARY) {
+                entries.add(entry);
+                return;
+            }
+            if (capped < maxEntries) {
+                entries.add(entry);
+                capped++;
+                heldByRank[rank]++;
+                return;
+            }
+            dropped++;
+            if (rank > 0 && !deferred.isEmpty()) {
+                deferred.remove(deferred.size() - 1);
+                entries.add(entry);
+                heldByRank[rank]++;
+                return;
+            }
+            for (int lower = 0; lower < rank; lower++) {
+                if (heldByRank[lower] == 0) continue;
+                // Displace the latest entry of that rank, keeping the start of the batch
+                for (int i = entries.size() - 1; i >= 0; i--) {
+                    if (rankOf(entries.get(i)) == lower) {
+                        entries.set(i, entry);
+                        heldByRank[lower]--;
+                        heldByRank[rank]++;
+                        return;
+                    }
+                }
+            }
+        }
+
+        void defer(Deferred entry) {
+            if (capped < maxEntries) {
+                deferred.add(entry);
+                capped++;
+            } else {
+                dropped++;
+            }
+        }
+
+        public List<TelescopeEntry> getEntries() {
+            return entries;
+        }
+
+        public List<Deferred> getDeferred() {
+            return deferred;
+        }
+
+        public boolean isEmpty() {
+            return entries.isEmpty() && deferred.isEmpty();
+        }
+
+        /**
+         * Entries of the batch that were not held, because the cap was reached.
+         */
+        public int getDropped() {
+            return dropped;
+        }
+
+        public boolean hasException() {
+            return exception;
+        }
+
+        private static int rankOf(TelescopeEntry entry) {
+            return switch (entry.getType()) {
+                case REQUEST, SCHEDULE -> SUMMARY;
+                case EXCEPTION -> 2;
+                case QUERY -> entry.getTags() != null && entry.getTags().contains("n+1") ? SUMMARY : 0;
+                case LOG, CACHE -> 0;
+                default -> 1;
+            };
+        }
+    }
+
+    /**
+     * An entry of a staged batch whose creation is left until the batch is
+     * committed, so work that is only needed for kept batches (e.g. log
+     * formatting) is skipped for discarded ones and can run off the thread
+     * that produced it.
+     */
+    @FunctionalInterface
+    public interface Deferred {
+
+        /**
+         * Records the entry.
+         *
+         * @param rate factor to apply to the entry's sample rate
+         */
+        void commit(double rate);
+    }
 }
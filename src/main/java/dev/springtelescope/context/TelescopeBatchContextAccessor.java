@@ -0,0 +1,44 @@
+package dev.springtelescope.context;
+
+import io.micrometer.context.ThreadLocalAccessor;
+
+/**
+ * Bridges the batch {@link TelescopeBatchContext.Snapshot} stored in the
+ * Reactor {@code Context} to the thread-locals that watchers read. With
+ * automatic context propagation enabled
+ * ({@code spring.reactor.context-propagation=auto}), Reactor restores the
+ * batch on whichever thread delivers a signal, so logs, queries and cache
+ * operations of a reactive request are recorded under its batch.
+ */
+public class TelescopeBatchContextAccessor implements ThreadLocalAccessor<TelescopeBatchContext.Snapshot> {
+
+    @Override
+    public Object key() {
+        return TelescopeBatchContext.CONTEXT_KEY;
+    }
+
+    @Override
+    public TelescopeBatchContext.Snapshot getValue() {
+        return TelescopeBatchContext.current();
+    }
+
+    @Override
+    public void setValue(TelescopeBatchContext.Snapshot snapshot) {
+        TelescopeBatchContext.restore(snapshot);
+    }
+
+    @Override
+    public void setValue() {
+        TelescopeBatchContext.restore(null);
+    }
+
+    @Override
+    public void restore(TelescopeBatchContext.Snapshot previous) {
+        TelescopeBatchContext.restore(previous);
+    }
+
+    @Override
+    public void restore() {
+        TelescopeBatchContext.restore(null);
+    }
+}
@@ -0,0 +1,112 @@
+package dev.springtelescope.context;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executor and thread factory wrappers that carry the batch context to the
+ * threads running the submitted tasks.
+ * <p>
+ * The context is captured explicitly when a task is submitted; nothing relies
+ * on {@link InheritableThreadLocal}, which copies every inheritable value into
+ * each new thread and is not inherited by pooled or virtual threads created
+ * elsewhere. For thread-per-task executors (virtual threads), wrap the thread
+ * factory instead: the context is captured once, when the thread is created
+ * by the submitting thread, and the task runs without any wrapping executor.
+ * <pre>
+ * ExecutorService virtual = Executors.newThreadPerTaskExecutor(
+ *         TelescopeContextExecutors.threadFactory(Thread.ofVirtual().name("worker-", 0).factory()));
+ * </pre>
+ * {@code CompletableFuture.supplyAsync(...)} without an executor runs on the
+ * common pool, which cannot be wrapped; pass a wrapped executor instead.
+ */
+public final class TelescopeContextExecutors {
+
+    private static volatile TelescopeUserProvider userProvider;
+
+    private TelescopeContextExecutors() {}
+
+    public static void configure(TelescopeUserProvider userProvider) {
+        TelescopeContextExecutors.userProvider = userProvider;
+    }
+
+    /**
+     * Returns a proxy of the executor that binds every task submitted with
+     * {@code execute}, {@code submit*} or {@code invoke*} to the submitter's
+     * batch; {@code schedule*} calls are passed through, as scheduled runs
+     * start their own batch. Class-based proxying keeps the concrete type
+     * (e.g. {@code ThreadPoolTaskExecutor}) injectable; final and JDK classes,
+     * which cannot be subclassed, are proxied by their interfaces (see
+     * {@link #keepsType}).
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Executor> T wrap(T executor) {
+        if (executor == null || executor instanceof Wrapped) return executor;
+        ProxyFactory factory = new ProxyFactory(executor);
+        factory.setProxyTargetClass(keepsType(executor.getClass()));
+        factory.addInterface(Wrapped.class);
+        factory.addAdvice((MethodInterceptor) invocation -> {
+            if (submits(invocation.getMethod().getName())) {
+                Object[] arguments = invocation.getArguments();
+                for (int i = 0; i < arguments.length; i++) {
+                    arguments[i] = propagate(arguments[i]);
+                }
+            }
+            return invocation.proceed();
+        });
+        return (T) factory.getProxy(executor.getClass().getClassLoader());
+    }
+
+    /**
+     * Whether a proxy of the given executor class can be a subclass of it,
+     * and so be injected by its concrete type.
+     */
+    public static boolean keepsType(Class<?> type) {
+        return !Modifier.isFinal(type.getModifiers()) && !type.getName().startsWith("java.");
+    }
+
+    /**
+     * Returns a thread factory whose threads start with the batch context of
+     * the thread that created them, and are cleared when the task ends.
+     */
+    public static ThreadFactory threadFactory(ThreadFactory delegate) {
+        return task -> delegate.newThread(TelescopeBatchContext.propagate(task, userProvider));
+    }
+
+    // execute, submit, submitListenable, submitCompletable, invokeAll, invokeAny
+    private static boolean submits(String method) {
+        return method.equals("execute") || method.startsWith("submit") || method.startsWith("invoke");
+    }
+
+    private static Object propagate(Object argument) {
+        if (argument instanceof Runnable runnable) {
+            return TelescopeBatchContext.propagate(runnable, userProvider);
+        }
+        if (argument instanceof Callable<?> callable) {
+            return TelescopeBatchContext.propagate(callable, userProvider);
+        }
+        if (argument instanceof Collection<?> tasks && TelescopeBatchContext.get() != null) {
+            // invokeAll and invokeAny
+            List<Object> propagated = new ArrayList<>(tasks.size());
+            for (Object task : tasks) {
+                propagated.add(propagate(task));
+            }
+            return propagated;
+        }
+        return argument;
+    }
+
+    /**
+     * Marker for executors that are already wrapped.
+     */
+    public interface Wrapped {
+    }
+}
@@ -0,0 +1,34 @@
+package dev.springtelescope.context;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Wraps every {@link Executor} bean with {@link TelescopeContextExecutors#wrap}
+ * so {@code @Async} methods and tasks submitted to application pools keep the
+ * batch of the request or job that submitted them.
+ * <p>
+ * Task schedulers and {@link ScheduledExecutorService}s are left alone:
+ * scheduled runs start their own batch. So are executors whose proxy could not
+ * keep their concrete type, such as the JDK's {@code ThreadPoolExecutor} and
+ * {@code ForkJoinPool}, since the application may inject them by that type;
+ * wrap those explicitly where they are used through their interfaces.
+ */
+public class TelescopeExecutorPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof Executor executor && !(bean instanceof TaskScheduler)
+                && !(bean instanceof ScheduledExecutorService)
+                && TelescopeContextExecutors.keepsType(bean.getClass())) {
+            try {
+                return TelescopeContextExecutors.wrap(executor);
+            } catch (Exception ignored) {
+            }
+        }
+        return bean;
+    }
+}
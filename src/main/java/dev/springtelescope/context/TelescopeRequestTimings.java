@@ -0,0 +1,162 @@
+package dev.springtelescope.context;
+
+import dev.springtelescope.model.TelescopeEntryType;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic phase marks and per-type time accumulators for a single request.
+ * <p>
+ * The request filter creates one per batch; the MVC timing interceptor marks
+ * the handler phases and watchers add the time spent in SQL, cache, mail and
+ * outgoing HTTP calls made under the same batch. All values are
+ * {@link System#nanoTime()} based. Accumulators are atomic because a
+ * {@code Callable} or a reactive client may report from another thread.
+ * <p>
+ * Statements are also counted per SQL fingerprint so repeated executions
+ * within the request (N+1 selects) can be detected when it ends.
+ */
+public class TelescopeRequestTimings {
+
+    private static final TelescopeEntryType[] TYPES = TelescopeEntryType.values();
+    private static final int MAX_TRACKED_FINGERPRINTS = 256;
+
+    private final long startNanos;
+    private volatile long handlerStartNanos;
+    private volatile long handlerEndNanos;
+    private volatile long completionNanos;
+    private final AtomicLongArray totals = new AtomicLongArray(TYPES.length * 2);
+    private final Map<String, QueryRepeat> queries = new ConcurrentHashMap<>();
+
+    public TelescopeRequestTimings(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * Marks the start of handler execution. Only the first call counts, so an
+     * async re-dispatch does not move the mark.
+     */
+    public void markHandlerStart() {
+        if (handlerStartNanos == 0) handlerStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of handler execution, i.e. the start of message conversion
+     * or view rendering. Only the first call counts.
+     */
+    public void markHandlerEnd() {
+        if (handlerEndNanos == 0) handlerEndNanos = System.nanoTime();
+    }
+
+    public void markCompletion() {
+        completionNanos = System.nanoTime();
+    }
+
+    public void add(TelescopeEntryType type, long nanos) {
+        int i = type.ordinal() * 2;
+        totals.addAndGet(i, nanos);
+        totals.incrementAndGet(i + 1);
+    }
+
+    public long getTotalNanos(TelescopeEntryType type) {
+        return totals.get(type.ordinal() * 2);
+    }
+
+    public long getCount(TelescopeEntryType type) {
+        return totals.get(type.ordinal() * 2 + 1);
+    }
+
+    /**
+     * Counts one execution of a statement under its fingerprint.
+     */
+    public void addQuery(String fingerprint, String sql, long nanos) {
+        QueryRepeat repeat = queries.get(fingerprint);
+        if (repeat == null) {
+            if (queries.size() >= MAX_TRACKED_FINGERPRINTS) return;
+            repeat = queries.computeIfAbsent(fingerprint, f -> new QueryRepeat(f, sql));
+        }
+        repeat.count.increment();
+        if (nanos > 0) repeat.nanos.add(nanos);
+    }
+
+    public Collection<QueryRepeat> getQueries() {
+        return queries.values();
+    }
+
+    /**
+     * Builds the phase breakdown in milliseconds (microsecond precision) for a
+     * request that ended at {@code endNanos}. Phases the MVC layer never
+     * reached are omitted.
+     */
+    public Map<String, Object> toMap(long endNanos) {
+        Map<String, Object> phases = new LinkedHashMap<>();
+        long handlerStart = handlerStartNanos;
+        long completion = completionNanos;
+        if (handlerStart != 0) {
+            long handlerEnd = handlerEndNanos != 0 ? handlerEndNanos : (completion != 0 ? completion : endNanos);
+            long renderEnd = completion != 0 ? Math.max(completion, handlerEnd) : handlerEnd;
+            phases.put("preProcessing", millis(handlerStart - startNanos));
+            phases.put("handler", millis(handlerEnd - handlerStart));
+            phases.put("rendering", millis(renderEnd - handlerEnd));
+            phases.put("postProcessing", millis(Math.max(0, endNanos - renderEnd)));
+        }
+        putTotal(phases, "sql", TelescopeEntryType.QUERY);
+        putTotal(phases, "cache", TelescopeEntryType.CACHE);
+        putTotal(phases, "mail", TelescopeEntryType.MAIL);
+        putTotal(phases, "http", TelescopeEntryType.HTTP_CLIENT);
+        return phases;
+    }
+
+    private void putTotal(Map<String, Object> phases, String name, TelescopeEntryType type) {
+        long count = getCount(type);
+        if (count == 0) return;
+        Map<String, Object> total = new LinkedHashMap<>();
+        total.put("count", count);
+        total.put("time", millis(getTotalNanos(type)));
+        phases.put(name, total);
+    }
+
+    public static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    /**
+     * Executions of one SQL fingerprint within the request.
+     */
+    public static final class QueryRepeat {
+        private final String fingerprint;
+        private final String sql;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        QueryRepeat(String fingerprint, String sql) {
+            this.fingerprint = fingerprint;
+            this.sql = sql;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getNanos() {
+            return nanos.sum();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package dev.springtelescope.context;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Carries the submitting thread's batch, request timings and identity to
+ * the thread that runs the task, and restores that thread's own state
+ * afterwards.
+ * <p>
+ * Registered as a bean, Spring Boot applies it to the executors it
+ * auto-configures ({@code applicationTaskExecutor}, including the virtual
+ * thread variant). It can also be set on any {@code ThreadPoolTaskExecutor}
+ * or {@code SimpleAsyncTaskExecutor} explicitly.
+ */
+public class TelescopeTaskDecorator implements TaskDecorator {
+
+    private final TelescopeUserProvider userProvider;
+
+    public TelescopeTaskDecorator(TelescopeUserProvider userProvider) {
+        this.userProvider = userProvider;
+    }
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        return TelescopeBatchContext.propagate(runnable, userProvider);
+    }
+}
@@ -1,16 +1,25 @@
 package dev.springtelescope.controller;
 
 import dev.springtelescope.TelescopeApiResponse;
+import dev.springtelescope.aggregate.TelescopeCacheStats;
+import dev.springtelescope.aggregate.TelescopeExceptionGroups;
+import dev.springtelescope.aggregate.TelescopeHttpClientStats;
+import dev.springtelescope.aggregate.TelescopeQueryStats;
+import dev.springtelescope.aggregate.TelescopeScheduleStats;
 import dev.springtelescope.filter.TelescopeFilterProvider;
+import dev.springtelescope.model.TelescopeClock;
 import dev.springtelescope.model.TelescopeEntry;
 import dev.springtelescope.model.TelescopeEntryType;
+import dev.springtelescope.sampling.TelescopeOverloadGovernor;
+import dev.springtelescope.sampling.TelescopeSampler;
+import dev.springtelescope.sampling.TelescopeTailSampler;
 import dev.springtelescope.storage.TelescopeStorage;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @RestController
@@ -20,6 +29,14 @@ public class TelescopeController {
 
     private final TelescopeStorage storage;
     private final TelescopeFilterProvider filterProvider;
+    private final TelescopeSampler sampler;
+    private final TelescopeTailSampler tailSampler;
+    private final TelescopeOverloadGovernor governor;
+    private final TelescopeQueryStats queryStats;
+    private final TelescopeExceptionGroups exceptionGroups;
+    private final TelescopeCacheStats cacheStats;
+    private final TelescopeScheduleStats scheduleStats;
+    private final TelescopeHttpClientStats httpClientStats;
 
     @GetMapping("/entries")
     public ResponseEntity<TelescopeApiResponse<Map<String, Object>>> getEntries(
@@ -79,8 +96,60 @@ public class TelescopeController {
     }
 
     @GetMapping("/stats")
-    public ResponseEntity<TelescopeApiResponse<Map<String, Long>>> getStats() {
-        return ResponseEntity.ok(TelescopeApiResponse.success("Statistics", storage.getStats()));
+    public ResponseEntity<TelescopeApiResponse<Map<String, Long>>> getStats(
+            @RequestParam(defaultValue = "false") boolean estimated) {
+        Map<String, Long> stats = estimated ? storage.getEstimatedStats() : storage.getStats();
+        return ResponseEntity.ok(TelescopeApiResponse.success("Statistics", stats));
+    }
+
+    @GetMapping("/queries/top")
+    public ResponseEntity<TelescopeApiResponse<List<Map<String, Object>>>> getTopQueries(
+            @RequestParam(defaultValue = "total") String sort,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(TelescopeApiResponse.success("Top queries", queryStats.getTop(sort, limit)));
+    }
+
+    @GetMapping("/exceptions/groups")
+    public ResponseEntity<TelescopeApiResponse<List<Map<String, Object>>>> getExceptionGroups(
+            @RequestParam(defaultValue = "count") String sort,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(TelescopeApiResponse.success("Exception groups", exceptionGroups.getTop(sort, limit)));
+    }
+
+    @GetMapping("/exceptions/groups/{fingerprint}")
+    public ResponseEntity<TelescopeApiResponse<Map<String, Object>>> getExceptionGroup(@PathVariable String fingerprint) {
+        Optional<TelescopeExceptionGroups.ExceptionGroup> group = exceptionGroups.get(fingerprint);
+        if (group.isPresent()) {
+            return ResponseEntity.ok(TelescopeApiResponse.success("Exception group", group.get().toDetailMap()));
+        }
+        // Counts are gone with an evicted group or a restart, but stored entries still need their trace
+        return storage.getTrace(fingerprint)
+                .map(trace -> {
+                    Map<String, Object> detail = new LinkedHashMap<>();
+                    detail.put("fingerprint", fingerprint);
+                    detail.put("trace", trace);
+                    return ResponseEntity.ok(TelescopeApiResponse.success("Exception group", detail));
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/schedules")
+    public ResponseEntity<TelescopeApiResponse<List<Map<String, Object>>>> getSchedules(
+            @RequestParam(defaultValue = "total") String sort,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(TelescopeApiResponse.success("Schedules", scheduleStats.getAll(sort, limit)));
+    }
+
+    @GetMapping("/caches")
+    public ResponseEntity<TelescopeApiResponse<List<Map<String, Object>>>> getCacheStats() {
+        return ResponseEntity.ok(TelescopeApiResponse.success("Cache stats", cacheStats.getAll()));
+    }
+
+    @GetMapping("/http-clients")
+    public ResponseEntity<TelescopeApiResponse<List<Map<String, Object>>>> getHttpClientStats(
+            @RequestParam(defaultValue = "total") String sort,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(TelescopeApiResponse.success("HTTP client stats", httpClientStats.getAll(sort, limit)));
     }
 
     @DeleteMapping("/entries")
@@ -91,6 +160,21 @@ public class TelescopeController {
         } else {
             storage.clear();
         }
+        if (type == null || type == TelescopeEntryType.QUERY) {
+            queryStats.clear();
+        }
+        if (type == null || type == TelescopeEntryType.EXCEPTION) {
+            exceptionGroups.clear();
+        }
+        if (type == null || type == TelescopeEntryType.CACHE) {
+            cacheStats.clear();
+        }
+        if (type == null || type == TelescopeEntryType.SCHEDULE) {
+            scheduleStats.clear();
+        }
+        if (type == null || type == TelescopeEntryType.HTTP_CLIENT) {
+            httpClientStats.clear();
+        }
         return ResponseEntity.ok(TelescopeApiResponse.success("Entries cleared"));
     }
 
@@ -107,13 +191,16 @@ public class TelescopeController {
         Map<String, Object> status = new LinkedHashMap<>();
         status.put("enabled", storage.isEnabled());
         status.put("stats", storage.getStats());
+        status.put("sampling", sampler.getStats());
+        status.put("tailSampling", tailSampler.getStats());
+        status.put("overload", governor.getStatus());
         return ResponseEntity.ok(TelescopeApiResponse.success("Status", status));
     }
 
     @PostMapping("/prune")
     public ResponseEntity<TelescopeApiResponse<Map<String, Object>>> prune(
             @RequestParam(defaultValue = "24") int hours) {
-        LocalDateTime cutoff = LocalDateTime.now().minusHours(hours);
+        long cutoff = TelescopeClock.nowMicros() - TimeUnit.HOURS.toMicros(hours);
         long pruned = storage.pruneOlderThan(cutoff);
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("pruned", pruned);
@@ -0,0 +1,135 @@
+package dev.springtelescope.controller;
+
+import dev.springtelescope.TelescopeApiResponse;
+import dev.springtelescope.model.TelescopeEntry;
+import dev.springtelescope.model.TelescopeEntryType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * The dashboard API for WebFlux applications. Serves the same endpoints as
+ * {@link TelescopeController}, which it delegates to, but runs each call on
+ * the bounded elastic scheduler: storage implementations may block (database
+ * storage, pruning, filter lookups) and must not run on the event loop.
+ */
+@RestController
+@RequestMapping("${telescope.base-path:/telescope}/api")
+public class TelescopeReactiveController {
+
+    private final TelescopeController delegate;
+
+    public TelescopeReactiveController(TelescopeController delegate) {
+        this.delegate = delegate;
+    }
+
+    @GetMapping("/entries")
+    public Mono<ResponseEntity<TelescopeApiResponse<Map<String, Object>>>> getEntries(
+            @RequestParam TelescopeEntryType type,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String userIdentifier,
+            @RequestParam(required = false) String tenantId,
+            @RequestParam(required = false) String method,
+            @RequestParam(required = false) String statusGroup) {
+        return offload(() -> delegate.getEntries(type, page, size, search, userIdentifier, tenantId, method, statusGroup));
+    }
+
+    @GetMapping("/filters")
+    public Mono<ResponseEntity<TelescopeApiResponse<Map<String, Object>>>> getFilters() {
+        return offload(delegate::getFilters);
+    }
+
+    @GetMapping("/entries/{uuid}")
+    public Mono<ResponseEntity<TelescopeApiResponse<TelescopeEntry>>> getEntry(@PathVariable String uuid) {
+        return offload(() -> delegate.getEntry(uuid));
+    }
+
+    @GetMapping("/entries/{uuid}/related")
+    public Mono<ResponseEntity<TelescopeApiResponse<List<TelescopeEntry>>>> getRelatedEntries(@PathVariable String uuid) {
+        return offload(() -> delegate.getRelatedEntries(uuid));
+    }
+
+    @GetMapping("/stats")
+    public Mono<ResponseEntity<TelescopeApiResponse<Map<String, Long>>>> getStats(
+            @RequestParam(defaultValue = "false") boolean estimated) {
+        return offload(() -> delegate.getStats(estimated));
+    }
+
+    @GetMapping("/queries/top")
+    public Mono<ResponseEntity<TelescopeApiResponse<List<Map<String, Object>>>>> getTopQueries(
+            @RequestParam(defaultValue = "total") String sort,
+            @RequestParam(defaultValue = "20") int limit) {
+        return offload(() -> delegate.getTopQueries(sort, limit));
+    }
+
+    @GetMapping("/exceptions/groups")
+    public Mono<ResponseEntity<TelescopeApiResponse<List<Map<String, Object>>>>> getExceptionGroups(
+            @RequestParam(defaultValue = "count") String sort,
+            @RequestParam(defaultValue = "20") int limit) {
+        return offload(() -> delegate.getExceptionGroups(sort, limit));
+    }
+
+    @GetMapping("/exceptions/groups/{fingerprint}")
+    public Mono<ResponseEntity<TelescopeApiResponse<Map<String, Object>>>> getExceptionGroup(
+            @PathVariable String fingerprint) {
+        return offload(() -> delegate.getExceptionGroup(fingerprint));
+    }
+
+    @GetMapping("/schedules")
+    public Mono<ResponseEntity<TelescopeApiResponse<List<Map<String, Object>>>>> getSchedules(
+            @RequestParam(defaultValue = "total") String sort,
+            @RequestParam(defaultValue = "50") int limit) {
+        return offload(() -> delegate.getSchedules(sort, limit));
+    }
+
+    @GetMapping("/caches")
+    public Mono<ResponseEntity<TelescopeApiResponse<List<Map<String, Object>>>>> getCacheStats() {
+        return offload(delegate::getCacheStats);
+    }
+
+    @GetMapping("/http-clients")
+    public Mono<ResponseEntity<TelescopeApiResponse<List<Map<String, Object>>>>> getHttpClientStats(
+            @RequestParam(defaultValue = "total") String sort,
+            @RequestParam(defaultValue = "50") int limit) {
+        return offload(() -> delegate.getHttpClientStats(sort, limit));
+    }
+
+    @DeleteMapping("/entries")
+    public Mono<ResponseEntity<TelescopeApiResponse<String>>> clearEntries(
+            @RequestParam(required = false) TelescopeEntryType type) {
+        return offload(() -> delegate.clearEntries(type));
+    }
+
+    @PostMapping("/toggle")
+    public Mono<ResponseEntity<TelescopeApiResponse<Boolean>>> toggle() {
+        return offload(delegate::toggle);
+    }
+
+    @GetMapping("/status")
+    public Mono<ResponseEntity<TelescopeApiResponse<Map<String, Object>>>> getStatus() {
+        return offload(delegate::getStatus);
+    }
+
+    @PostMapping("/prune")
+    public Mono<ResponseEntity<TelescopeApiResponse<Map<String, Object>>>> prune(
+            @RequestParam(defaultValue = "24") int hours) {
+        return offload(() -> delegate.prune(hours));
+    }
+
+    @GetMapping("/tags")
+    public Mono<ResponseEntity<TelescopeApiResponse<Set<String>>>> getTags() {
+        return offload(delegate::getTags);
+    }
+
+    private static <T> Mono<T> offload(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+}
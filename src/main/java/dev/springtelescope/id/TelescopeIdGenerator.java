@@ -0,0 +1,13 @@
+package dev.springtelescope.id;
+
+/**
+ * Generates entry and batch identifiers.
+ * <p>
+ * Override by registering your own {@code TelescopeIdGenerator} bean. IDs are
+ * stored in 36-character columns, so implementations should stay within that
+ * length.
+ */
+public interface TelescopeIdGenerator {
+
+    String nextId();
+}
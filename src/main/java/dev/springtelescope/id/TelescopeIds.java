@@ -0,0 +1,21 @@
+package dev.springtelescope.id;
+
+/**
+ * Static access to the configured {@link TelescopeIdGenerator}, for watchers
+ * that are not Spring-managed (log appender, Hibernate listeners) and for the
+ * batch context.
+ */
+public final class TelescopeIds {
+
+    private static volatile TelescopeIdGenerator generator = new DefaultTelescopeIdGenerator();
+
+    private TelescopeIds() {}
+
+    public static void configure(TelescopeIdGenerator idGenerator) {
+        generator = (idGenerator != null) ? idGenerator : new DefaultTelescopeIdGenerator();
+    }
+
+    public static String next() {
+        return generator.nextId();
+    }
+}
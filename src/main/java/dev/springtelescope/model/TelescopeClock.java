@@ -0,0 +1,79 @@
+package dev.springtelescope.model;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Epoch-microsecond clock used to timestamp entries.
+ * <p>
+ * The wall clock is read once as an anchor and later readings are derived
+ * from {@link System#nanoTime()}, so capturing a timestamp allocates nothing
+ * and entries recorded within the same millisecond keep their order. At most
+ * once a second the derived value is compared with the wall clock: when it
+ * fell behind by more than a millisecond (suspend, a forward NTP step) the
+ * clock jumps ahead to the wall time; when it ran ahead, it advances at half
+ * speed until the wall clock catches up. Readings therefore never go
+ * backwards.
+ */
+public final class TelescopeClock {
+
+    private static final long MAX_DRIFT_MICROS = 1_000;
+    private static final long CHECK_INTERVAL_NANOS = 1_000_000_000L;
+
+    private static volatile Anchor anchor = new Anchor(toMicros(Instant.now()), System.nanoTime(), false);
+
+    private TelescopeClock() {
+    }
+
+    public static long nowMicros() {
+        long nanos = System.nanoTime();
+        Anchor current = anchor;
+        if (nanos - current.nanos >= CHECK_INTERVAL_NANOS) {
+            current = reanchor(current, nanos);
+        }
+        return current.at(nanos);
+    }
+
+    private static synchronized Anchor reanchor(Anchor current, long nanos) {
+        if (anchor != current) return anchor;
+        long derived = current.at(nanos);
+        long wallMicros = toMicros(Instant.now());
+        Anchor next;
+        if (derived < wallMicros - MAX_DRIFT_MICROS) {
+            next = new Anchor(wallMicros, nanos, false);
+        } else {
+            // Continue from the derived value so no reading is lower than one already returned
+            next = new Anchor(derived, nanos, derived > wallMicros + MAX_DRIFT_MICROS);
+        }
+        anchor = next;
+        return next;
+    }
+
+    public static long toMicros(LocalDateTime dateTime) {
+        return toMicros(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    public static long toMicros(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000 + instant.getNano() / 1_000;
+    }
+
+    public static Instant toInstant(long epochMicros) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochMicros, 1_000_000),
+                Math.floorMod(epochMicros, 1_000_000) * 1_000L);
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochMicros) {
+        return LocalDateTime.ofInstant(toInstant(epochMicros), ZoneId.systemDefault());
+    }
+
+    /**
+     * @param slow whether the clock runs at half speed to let the wall clock catch up
+     */
+    private record Anchor(long epochMicros, long nanos, boolean slow) {
+        long at(long nanoTime) {
+            long elapsedMicros = (nanoTime - nanos) / 1_000;
+            return epochMicros + (slow ? elapsedMicros / 2 : elapsedMicros);
+        }
+    }
+}
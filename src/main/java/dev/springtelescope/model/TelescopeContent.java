@@ -0,0 +1,28 @@
+package dev.springtelescope.model;
+
+import java.util.Map;
+
+/**
+ * Typed content of an entry.
+ * <p>
+ * Watchers on hot paths capture content into a record with primitive fields
+ * instead of a map; the map form with the documented keys is only built when
+ * the entry is serialized or read through {@link TelescopeEntry#getContent()}.
+ */
+public interface TelescopeContent {
+
+    /**
+     * Builds the map form, with the same keys and order the API has always
+     * returned for this entry type. Optional values that were not captured are
+     * omitted.
+     */
+    Map<String, Object> toMap();
+
+    /**
+     * Returns a single content value without building the map. Records
+     * override this for the keys storages filter on.
+     */
+    default Object get(String key) {
+        return toMap().get(key);
+    }
+}
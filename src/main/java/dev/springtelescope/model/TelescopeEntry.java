@@ -1,5 +1,6 @@
 package dev.springtelescope.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,11 +18,60 @@ import java.util.Map;
 public class TelescopeEntry {
     private String uuid;
     private TelescopeEntryType type;
-    private LocalDateTime createdAt;
+    /**
+     * Capture time in microseconds since the epoch, taken once when the entry
+     * is built. Storages order and prune on this value.
+     */
+    @Builder.Default
+    private long timestamp = TelescopeClock.nowMicros();
     private String batchId;
     private Map<String, Object> content;
+    /**
+     * Typed content captured by a watcher. When set and no map content was
+     * given, {@link #getContent()} derives the map from it on each call.
+     */
+    @JsonIgnore
+    private TelescopeContent typedContent;
     private String userIdentifier;
     private String tenantId;
     @Builder.Default
     private List<String> tags = new ArrayList<>();
+    @Builder.Default
+    private double sampleRate = 1.0;
+
+    /**
+     * Capture time in the system time zone, derived from {@link #timestamp}
+     * for API output.
+     */
+    public LocalDateTime getCreatedAt() {
+        return timestamp != 0 ? TelescopeClock.toLocalDateTime(timestamp) : null;
+    }
+
+    public Map<String, Object> getContent() {
+        if (content == null && typedContent != null) {
+            return typedContent.toMap();
+        }
+        return content;
+    }
+
+    /**
+     * Returns a single content value, reading typed content directly instead
+     * of building its map form.
+     */
+    public Object contentValue(String key) {
+        if (content == null && typedContent != null) {
+            return typedContent.get(key);
+        }
+        return content != null ? content.get(key) : null;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.timestamp = createdAt != null ? TelescopeClock.toMicros(createdAt) : 0;
+    }
+
+    public static class TelescopeEntryBuilder {
+        public TelescopeEntryBuilder createdAt(LocalDateTime createdAt) {
+            return timestamp(createdAt != null ? TelescopeClock.toMicros(createdAt) : 0);
+        }
+    }
 }
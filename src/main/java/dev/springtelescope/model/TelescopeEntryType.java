@@ -9,5 +9,6 @@ public enum TelescopeEntryType {
     CACHE,
     EVENT,
     MAIL,
-    MODEL
+    MODEL,
+    HTTP_CLIENT
 }
@@ -0,0 +1,49 @@
+package dev.springtelescope.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Content of an {@link TelescopeEntryType#EXCEPTION} entry. The stack trace
+ * is not repeated per occurrence; it is served with the exception group of
+ * {@code fingerprint}.
+ *
+ * @param location {@code Class.method} of the top stack frame, or {@code null}
+ *                 when the exception has no stack trace; {@code file} and
+ *                 {@code line} are only reported together with it
+ * @param uri      request URI, or {@code null} outside a request
+ */
+public record TelescopeExceptionContent(String className, String message, String fingerprint,
+                                        String file, int line, String location,
+                                        String uri, String method, String cause) implements TelescopeContent {
+
+    @Override
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("class", className);
+        map.put("message", message);
+        if (location != null) {
+            map.put("file", file);
+            map.put("line", line);
+            map.put("location", location);
+        }
+        if (uri != null) {
+            map.put("uri", uri);
+            map.put("method", method);
+        }
+        if (cause != null) map.put("cause", cause);
+        if (fingerprint != null) map.put("fingerprint", fingerprint);
+        return map;
+    }
+
+    @Override
+    public Object get(String key) {
+        return switch (key) {
+            case "class" -> className;
+            case "message" -> message;
+            case "method" -> method;
+            case "fingerprint" -> fingerprint;
+            default -> TelescopeContent.super.get(key);
+        };
+    }
+}
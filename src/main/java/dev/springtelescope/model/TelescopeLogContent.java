@@ -0,0 +1,36 @@
+package dev.springtelescope.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Content of a {@link TelescopeEntryType#LOG} entry.
+ *
+ * @param exception formatted stack trace, or {@code null}
+ * @param mdc       MDC properties, or {@code null} when empty
+ */
+public record TelescopeLogContent(String level, String message, String logger, String thread,
+                                  String exception, Map<String, String> mdc) implements TelescopeContent {
+
+    @Override
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("level", level);
+        map.put("message", message);
+        map.put("logger", logger);
+        map.put("thread", thread);
+        if (exception != null) map.put("exception", exception);
+        if (mdc != null) map.put("mdc", mdc);
+        return map;
+    }
+
+    @Override
+    public Object get(String key) {
+        return switch (key) {
+            case "level" -> level;
+            case "message" -> message;
+            case "logger" -> logger;
+            default -> TelescopeContent.super.get(key);
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package dev.springtelescope.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Content of a LOG entry that stands for every event with the same logger,
+ * level and message pattern within an aggregation window.
+ * <p>
+ * The entry is stored when the first event arrives and this content keeps
+ * counting afterwards, so the map form always reflects the current state of
+ * the group. Argument sets are kept as a uniform reservoir sample.
+ */
+public class TelescopeLogGroupContent implements TelescopeContent {
+
+    private final TelescopeLogContent first;
+    private final String pattern;
+    private final long firstSeen;
+    private final int maxSamples;
+    private final List<List<String>> samples = new ArrayList<>();
+    private long occurrences;
+    private long lastSeen;
+
+    public TelescopeLogGroupContent(TelescopeLogContent first, String pattern, long timestampMicros,
+                                    int maxSamples, Object[] arguments) {
+        this.first = first;
+        this.pattern = pattern;
+        this.firstSeen = timestampMicros;
+        this.maxSamples = maxSamples;
+        add(timestampMicros, arguments);
+    }
+
+    public synchronized void add(long timestampMicros, Object[] arguments) {
+        occurrences++;
+        lastSeen = Math.max(lastSeen, timestampMicros);
+        if (arguments == null || arguments.length == 0 || maxSamples <= 0) return;
+        if (samples.size() < maxSamples) {
+            samples.add(render(arguments));
+        } else {
+            long slot = ThreadLocalRandom.current().nextLong(occurrences);
+            if (slot < maxSamples) samples.set((int) slot, render(arguments));
+        }
+    }
+
+    public synchronized long getOccurrences() {
+        return occurrences;
+    }
+
+    public long getFirstSeen() {
+        return firstSeen;
+    }
+
+    @Override
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = first.toMap();
+        map.put("pattern", pattern);
+        synchronized (this) {
+            map.put("occurrences", occurrences);
+            map.put("firstSeen", TelescopeClock.toInstant(firstSeen).toString());
+            map.put("lastSeen", TelescopeClock.toInstant(lastSeen).toString());
+            if (!samples.isEmpty()) map.put("samples", new ArrayList<>(samples));
+        }
+        return map;
+    }
+
+    @Override
+    public Object get(String key) {
+        return switch (key) {
+            case "level", "message", "logger" -> first.get(key);
+            case "pattern" -> pattern;
+            default -> TelescopeContent.super.get(key);
+        };
+    }
+
+    private static List<String> render(Object[] arguments) {
+        List<String> rendered = new ArrayList<>(arguments.length);
+        for (Object argument : arguments) {
+            String value = String.valueOf(argument);
+            rendered.add(value.length() > 200 ? value.substring(0, 200) + "..." : value);
+        }
+        return rendered;
+    }
+}
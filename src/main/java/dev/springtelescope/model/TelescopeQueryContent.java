@@ -0,0 +1,65 @@
+package dev.springtelescope.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Content of a {@link TelescopeEntryType#QUERY} entry. Times are kept in
+ * nanoseconds and reported in milliseconds; negative or zero values mark
+ * measurements that were not taken and are omitted from the map form.
+ *
+ * @param count  executions summarized by an N+1 entry, 0 for a single statement
+ * @param entity entity an N+1 entry was attributed to
+ */
+public record TelescopeQueryContent(String sql, String type, String fingerprint, long count,
+                                    long durationNanos, long rows, int batchSize,
+                                    long connectionWaitNanos, boolean slow, String error,
+                                    String entity) implements TelescopeContent {
+
+    /**
+     * A statement seen without timing, e.g. by a statement inspector.
+     */
+    public static TelescopeQueryContent untimed(String sql, String type, String fingerprint) {
+        return new TelescopeQueryContent(sql, type, fingerprint, 0, -1, -1, 0, 0, false, null, null);
+    }
+
+    /**
+     * Summary of a statement repeated {@code count} times within one request.
+     */
+    public static TelescopeQueryContent nPlusOne(String sql, String fingerprint, long count,
+                                                 long totalNanos, String entity) {
+        return new TelescopeQueryContent(sql, "N+1", fingerprint, count, totalNanos > 0 ? totalNanos : -1,
+                -1, 0, 0, false, null, entity);
+    }
+
+    @Override
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("sql", sql);
+        map.put("type", type);
+        map.put("fingerprint", fingerprint);
+        if (count > 0) map.put("count", count);
+        if (durationNanos >= 0) map.put("duration", millis(durationNanos));
+        if (rows >= 0) map.put("rows", rows);
+        if (batchSize > 0) map.put("batchSize", batchSize);
+        if (connectionWaitNanos > 0) map.put("connectionWait", millis(connectionWaitNanos));
+        if (slow) map.put("slow", true);
+        if (error != null) map.put("error", error);
+        if (entity != null) map.put("entity", entity);
+        return map;
+    }
+
+    @Override
+    public Object get(String key) {
+        return switch (key) {
+            case "sql" -> sql;
+            case "type" -> type;
+            case "fingerprint" -> fingerprint;
+            default -> TelescopeContent.super.get(key);
+        };
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
@@ -0,0 +1,73 @@
+package dev.springtelescope.model;
+
+import lombok.Builder;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content of a {@link TelescopeEntryType#REQUEST} entry.
+ * <p>
+ * Headers are {@code null} when the overload governor disabled header
+ * capture. Body fields are only reported when the request or response was
+ * wrapped for capture ({@code requestCaptured}, {@code responseCaptured}).
+ *
+ * @param droppedEntries entries of the batch that tail sampling dropped over
+ *                       its per-batch cap, 0 when none were
+ */
+@Builder(toBuilder = true)
+public record TelescopeRequestContent(String method, String uri, String queryString, int status,
+                                      long durationNanos, Map<String, Object> timings,
+                                      String ipAddress, String contentType, String responseContentType,
+                                      Map<String, String> requestHeaders, Map<String, String> responseHeaders,
+                                      boolean requestCaptured, String requestBody, long requestSize,
+                                      String requestBodySkipped,
+                                      boolean responseCaptured, String responseBody, long responseSize,
+                                      String responseBodySkipped,
+                                      List<Map<String, Object>> nPlusOne,
+                                      int droppedEntries) implements TelescopeContent {
+
+    @Override
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("method", method);
+        map.put("uri", uri);
+        map.put("queryString", queryString);
+        map.put("status", status);
+        map.put("duration", durationNanos / 1_000_000);
+        map.put("durationNanos", durationNanos);
+        map.put("timings", timings);
+        map.put("ipAddress", ipAddress);
+        map.put("contentType", contentType);
+        map.put("responseContentType", responseContentType);
+        if (requestHeaders != null) {
+            map.put("requestHeaders", requestHeaders);
+            map.put("responseHeaders", responseHeaders);
+        }
+        if (requestCaptured) {
+            map.put("requestBody", requestBody);
+            map.put("requestSize", requestSize);
+            if (requestBodySkipped != null) map.put("requestBodySkipped", requestBodySkipped);
+        }
+        if (responseCaptured) {
+            map.put("responseBody", responseBody);
+            map.put("responseSize", responseSize);
+            if (responseBodySkipped != null) map.put("responseBodySkipped", responseBodySkipped);
+        }
+        if (nPlusOne != null) map.put("nPlusOne", nPlusOne);
+        if (droppedEntries > 0) map.put("droppedEntries", droppedEntries);
+        return map;
+    }
+
+    @Override
+    public Object get(String key) {
+        return switch (key) {
+            case "method" -> method;
+            case "uri" -> uri;
+            case "status" -> status;
+            case "duration" -> durationNanos / 1_000_000;
+            default -> TelescopeContent.super.get(key);
+        };
+    }
+}
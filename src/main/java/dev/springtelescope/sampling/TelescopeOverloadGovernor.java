@@ -0,0 +1,212 @@
+package dev.springtelescope.sampling;
+
+import dev.springtelescope.TelescopeProperties;
+import dev.springtelescope.id.TelescopeIds;
+import dev.springtelescope.model.TelescopeEntry;
+import dev.springtelescope.model.TelescopeEntryType;
+import dev.springtelescope.storage.TelescopeStorage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Degrades capture in stages when Telescope itself becomes a burden.
+ * <p>
+ * Every check interval the governor looks at Telescope's ingest rate, the
+ * time spent building request entries and, optionally, average request
+ * latency and GC time. While any signal is above its limit the capture level
+ * is raised one stage; once all signals stay comfortably below their limits
+ * for {@code recoveryChecks} intervals it is lowered one stage again.
+ */
+@Slf4j
+public class TelescopeOverloadGovernor {
+
+    public enum CaptureLevel {
+        FULL,
+        NO_BODIES,
+        NO_HEADERS,
+        NO_LOGS_QUERIES,
+        PAUSED
+    }
+
+    private final TelescopeStorage storage;
+    private final boolean enabled;
+    private final long checkIntervalMs;
+    private final long maxEntriesPerSecond;
+    private final double maxCapturePercent;
+    private final long maxRequestLatencyMs;
+    private final double maxGcPercent;
+    private final int recoveryChecks;
+
+    private final LongAdder ingested = new LongAdder();
+    private final LongAdder captureNanos = new LongAdder();
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder requestMillis = new LongAdder();
+
+    private volatile CaptureLevel level = CaptureLevel.FULL;
+    private volatile Map<String, Object> lastSample = Map.of();
+    private long lastCheckNanos = System.nanoTime();
+    private long lastGcMillis = totalGcMillis();
+    private int calmChecks;
+
+    public TelescopeOverloadGovernor(TelescopeStorage storage, TelescopeProperties.Overload overload) {
+        this.storage = storage;
+        this.enabled = overload != null && overload.isEnabled();
+        this.checkIntervalMs = overload != null ? overload.getCheckIntervalMs() : 1000;
+        this.maxEntriesPerSecond = overload != null ? overload.getMaxEntriesPerSecond() : 0;
+        this.maxCapturePercent = overload != null ? overload.getMaxCapturePercent() : 0;
+        this.maxRequestLatencyMs = overload != null ? overload.getMaxRequestLatencyMs() : 0;
+        this.maxGcPercent = overload != null ? overload.getMaxGcPercent() : 0;
+        this.recoveryChecks = overload != null ? Math.max(1, overload.getRecoveryChecks()) : 1;
+    }
+
+    public CaptureLevel getLevel() {
+        return level;
+    }
+
+    public boolean isPaused() {
+        return level == CaptureLevel.PAUSED;
+    }
+
+    public boolean capturesBodies() {
+        return level == CaptureLevel.FULL;
+    }
+
+    public boolean capturesHeaders() {
+        return level.compareTo(CaptureLevel.NO_HEADERS) < 0;
+    }
+
+    /**
+     * Whether entries of the given type may be captured at the current level.
+     */
+    public boolean allows(TelescopeEntryType type) {
+        CaptureLevel current = level;
+        if (current == CaptureLevel.FULL) return true;
+        if (current == CaptureLevel.PAUSED) return false;
+        return current != CaptureLevel.NO_LOGS_QUERIES
+                || (type != TelescopeEntryType.LOG && type != TelescopeEntryType.QUERY);
+    }
+
+    public void recordIngest() {
+        if (enabled) ingested.increment();
+    }
+
+    public void recordCapture(long nanos) {
+        if (enabled) captureNanos.add(nanos);
+    }
+
+    public void recordRequest(long durationMs) {
+        if (enabled) {
+            requestCount.increment();
+            requestMillis.add(durationMs);
+        }
+    }
+
+    @Scheduled(fixedRateString = "${telescope.overload.check-interval-ms:1000}")
+    public synchronized void evaluate() {
+        if (!enabled) return;
+
+        long now = System.nanoTime();
+        long elapsedNanos = Math.max(1, now - lastCheckNanos);
+        lastCheckNanos = now;
+        double elapsedSeconds = elapsedNanos / 1_000_000_000.0;
+
+        long gcMillis = totalGcMillis();
+        long gcDelta = gcMillis - lastGcMillis;
+        lastGcMillis = gcMillis;
+
+        long requests = requestCount.sumThenReset();
+        double entriesPerSecond = ingested.sumThenReset() / elapsedSeconds;
+        double capturePercent = captureNanos.sumThenReset() * 100.0 / elapsedNanos;
+        double avgLatencyMs = requests > 0 ? (double) requestMillis.sumThenReset() / requests : 0;
+        double gcPercent = gcDelta * 100.0 / (elapsedNanos / 1_000_000.0);
+
+        boolean overloaded = exceeds(entriesPerSecond, maxEntriesPerSecond, 1.0)
+                || exceeds(capturePercent, maxCapturePercent, 1.0)
+                || exceeds(avgLatencyMs, maxRequestLatencyMs, 1.0)
+                || exceeds(gcPercent, maxGcPercent, 1.0);
+        boolean calm = !exceeds(entriesPerSecond, maxEntriesPerSecond, 0.5)
+                && !exceeds(capturePercent, maxCapturePercent, 0.5)
+                && !exceeds(avgLatencyMs, maxRequestLatencyMs, 0.5)
+                && !exceeds(gcPercent, maxGcPercent, 0.5);
+
+        Map<String, Object> sample = new LinkedHashMap<>();
+        sample.put("entriesPerSecond", Math.round(entriesPerSecond));
+        sample.put("capturePercent", round(capturePercent));
+        sample.put("avgRequestLatencyMs", round(avgLatencyMs));
+        sample.put("gcPercent", round(gcPercent));
+        lastSample = sample;
+
+        CaptureLevel current = level;
+        CaptureLevel[] levels = CaptureLevel.values();
+        if (overloaded) {
+            calmChecks = 0;
+            if (current != CaptureLevel.PAUSED) {
+                transition(current, levels[current.ordinal() + 1], sample);
+            }
+        } else if (calm && current != CaptureLevel.FULL) {
+            if (++calmChecks >= recoveryChecks) {
+                calmChecks = 0;
+                transition(current, levels[current.ordinal() - 1], sample);
+            }
+        } else {
+            calmChecks = 0;
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("level", level.name());
+        status.put("checkIntervalMs", checkIntervalMs);
+        status.put("lastSample", lastSample);
+        return status;
+    }
+
+    private void transition(CaptureLevel from, CaptureLevel to, Map<String, Object> sample) {
+        level = to;
+        boolean degrading = to.compareTo(from) > 0;
+        log.debug("Telescope capture level changed from {} to {}", from, to);
+
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("level", degrading ? "WARN" : "INFO");
+        content.put("message", "Telescope capture level changed from " + from + " to " + to);
+        content.put("logger", TelescopeOverloadGovernor.class.getName());
+        content.put("thread", Thread.currentThread().getName());
+        content.put("from", from.name());
+        content.put("to", to.name());
+        content.putAll(sample);
+
+        // Stored directly: transitions must stay visible even while LOG capture is shed
+        storage.store(TelescopeEntry.builder()
+                .uuid(TelescopeIds.next())
+                .type(TelescopeEntryType.LOG)
+                .content(content)
+                .tags(new ArrayList<>(List.of("telescope:overload", "overload:" + to.name().toLowerCase())))
+                .build());
+    }
+
+    private static boolean exceeds(double value, double limit, double factor) {
+        return limit > 0 && value > limit * factor;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    private static long totalGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            long time = gc.getCollectionTime();
+            if (time > 0) total += time;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,179 @@
+package dev.springtelescope.sampling;
+
+import dev.springtelescope.TelescopeProperties;
+import dev.springtelescope.model.TelescopeEntryType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Head sampler consulted by every watcher before it builds an entry.
+ * <p>
+ * Each {@link TelescopeEntryType} may have a fixed keep probability, a
+ * maximum number of entries per second (token bucket) and an always-keep
+ * rule for errors. Types without a rule are always kept, so the common
+ * path is a single array lookup. The {@link TelescopeOverloadGovernor} is
+ * consulted first so shed types are rejected before any other work.
+ */
+public class TelescopeSampler {
+
+    private final TypeSampler[] samplers = new TypeSampler[TelescopeEntryType.values().length];
+    private final TelescopeOverloadGovernor governor;
+
+    public TelescopeSampler(TelescopeProperties.Sampling sampling, TelescopeOverloadGovernor governor) {
+        this.governor = (governor != null) ? governor : new TelescopeOverloadGovernor(null, null);
+        if (sampling == null || sampling.getTypes() == null) return;
+        sampling.getTypes().forEach((type, rule) -> {
+            if (type != null && rule != null) {
+                samplers[type.ordinal()] = new TypeSampler(rule);
+            }
+        });
+    }
+
+    /**
+     * Returns a sampler that keeps everything.
+     */
+    public static TelescopeSampler keepAll() {
+        return new TelescopeSampler(null, null);
+    }
+
+    public boolean sample(TelescopeEntryType type) {
+        return sample(type, false);
+    }
+
+    /**
+     * Decides whether an entry of the given type should be recorded.
+     *
+     * @param error whether the entry represents a failure (5xx, ERROR log, failed job...)
+     */
+    public boolean sample(TelescopeEntryType type, boolean error) {
+        if (!governor.allows(type)) return false;
+        TypeSampler sampler = samplers[type.ordinal()];
+        if (sampler != null && !sampler.sample(error)) return false;
+        governor.recordIngest();
+        return true;
+    }
+
+    /**
+     * Keep probability to record on entries of the given type, used to
+     * extrapolate true volumes: the configured rate times the share of
+     * entries the per-second limit let through recently. Errors kept by the
+     * always-keep rule use 1.0.
+     */
+    public double getRate(TelescopeEntryType type, boolean error) {
+        TypeSampler sampler = samplers[type.ordinal()];
+        if (sampler == null || (error && sampler.alwaysKeepErrors)) return 1.0;
+        return sampler.rate * sampler.acceptance();
+    }
+
+    public double getRate(TelescopeEntryType type) {
+        return getRate(type, false);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (TelescopeEntryType type : TelescopeEntryType.values()) {
+            TypeSampler sampler = samplers[type.ordinal()];
+            if (sampler == null) continue;
+            Map<String, Object> typeStats = new LinkedHashMap<>();
+            typeStats.put("rate", sampler.rate);
+            typeStats.put("maxPerSecond", sampler.maxPerSecond);
+            if (sampler.maxPerSecond > 0) {
+                typeStats.put("acceptance", sampler.acceptance());
+            }
+            typeStats.put("seen", sampler.seen.sum());
+            typeStats.put("kept", sampler.kept.sum());
+            stats.put(type.name(), typeStats);
+        }
+        return stats;
+    }
+
+    private static final class TypeSampler {
+        // Current and previous second
+        private static final int WINDOW_SECONDS = 2;
+
+        private final double rate;
+        private final int maxPerSecond;
+        private final boolean alwaysKeepErrors;
+        private final long intervalNanos;
+        private final long burstNanos;
+        // Theoretical arrival time of the next permit (GCRA form of a token bucket)
+        private final AtomicLong nextFreeNanos = new AtomicLong(System.nanoTime());
+        private final LongAdder seen = new LongAdder();
+        private final LongAdder kept = new LongAdder();
+        // Entries offered to and let through by the per-second limit, per second
+        private final AtomicLongArray offered = new AtomicLongArray(WINDOW_SECONDS);
+        private final AtomicLongArray accepted = new AtomicLongArray(WINDOW_SECONDS);
+        private final AtomicLongArray seconds = new AtomicLongArray(WINDOW_SECONDS);
+
+        TypeSampler(TelescopeProperties.SamplingRule rule) {
+            this.rate = Math.max(0.0, Math.min(1.0, rule.getRate()));
+            this.maxPerSecond = Math.max(0, rule.getMaxPerSecond());
+            this.alwaysKeepErrors = rule.isAlwaysKeepErrors();
+            this.intervalNanos = maxPerSecond > 0 ? 1_000_000_000L / maxPerSecond : 0;
+            this.burstNanos = 1_000_000_000L - intervalNanos;
+        }
+
+        boolean sample(boolean error) {
+            seen.increment();
+            if (error && alwaysKeepErrors) {
+                kept.increment();
+                return true;
+            }
+            if (rate < 1.0 && ThreadLocalRandom.current().nextDouble() >= rate) {
+                return false;
+            }
+            if (maxPerSecond > 0 && !limit()) {
+                return false;
+            }
+            kept.increment();
+            return true;
+        }
+
+        private boolean limit() {
+            long now = System.nanoTime();
+            long second = now / 1_000_000_000L;
+            int slot = (int) Math.floorMod(second, WINDOW_SECONDS);
+            long tagged = seconds.get(slot);
+            if (tagged != second && seconds.compareAndSet(slot, tagged, second)) {
+                offered.set(slot, 0);
+                accepted.set(slot, 0);
+            }
+            offered.incrementAndGet(slot);
+            if (!tryAcquire(now)) return false;
+            accepted.incrementAndGet(slot);
+            return true;
+        }
+
+        /**
+         * Share of entries the per-second limit let through over the last
+         * two seconds; 1.0 without a limit or traffic.
+         */
+        double acceptance() {
+            if (maxPerSecond <= 0) return 1.0;
+            long second = System.nanoTime() / 1_000_000_000L;
+            long offeredTotal = 0;
+            long acceptedTotal = 0;
+            for (int i = 0; i < WINDOW_SECONDS; i++) {
+                if (second - seconds.get(i) < WINDOW_SECONDS) {
+                    offeredTotal += offered.get(i);
+                    acceptedTotal += accepted.get(i);
+                }
+            }
+            return offeredTotal > 0 ? Math.min(1.0, (double) acceptedTotal / offeredTotal) : 1.0;
+        }
+
+        private boolean tryAcquire(long now) {
+            while (true) {
+                long next = nextFreeNanos.get();
+                if (next - burstNanos > now) return false;
+                long updated = Math.max(next, now) + intervalNanos;
+                if (nextFreeNanos.compareAndSet(next, updated)) return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package dev.springtelescope.sampling;
+
+import dev.springtelescope.TelescopeProperties;
+import dev.springtelescope.context.TelescopeBatchContext;
+import dev.springtelescope.model.TelescopeEntry;
+import dev.springtelescope.model.TelescopeEntryType;
+import dev.springtelescope.model.TelescopeRequestContent;
+import dev.springtelescope.storage.TelescopeStorage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Batch-coherent tail sampler. Entries produced while a request or scheduled
+ * job runs are staged in {@link TelescopeBatchContext} and committed together
+ * once the batch ends, so a kept request always has its queries and logs.
+ * <p>
+ * A batch is kept when it failed (status at or above {@code minStatus}, an
+ * exception was recorded, or the job threw), ran longer than
+ * {@code slowThresholdMs}, or otherwise with probability {@code rate}.
+ * <p>
+ * A batch is held up to {@code maxBatchEntries} entries (see
+ * {@link TelescopeBatchContext.Staged}); the root entry of a kept batch that
+ * lost entries to the cap is tagged {@code truncated}.
+ */
+public class TelescopeTailSampler {
+
+    private final boolean enabled;
+    private final double rate;
+    private final int minStatus;
+    private final long slowThresholdMs;
+    private final int maxBatchEntries;
+
+    private final LongAdder batchesSeen = new LongAdder();
+    private final LongAdder batchesKept = new LongAdder();
+    private final LongAdder batchesTruncated = new LongAdder();
+    private final LongAdder entriesDropped = new LongAdder();
+
+    public TelescopeTailSampler(TelescopeProperties.TailSampling tail) {
+        this.enabled = tail != null && tail.isEnabled();
+        this.rate = tail != null ? Math.max(0.0, Math.min(1.0, tail.getRate())) : 1.0;
+        this.minStatus = tail != null ? tail.getMinStatus() : 500;
+        this.slowThresholdMs = tail != null ? tail.getSlowThresholdMs() : 0;
+        this.maxBatchEntries = tail != null ? tail.getMaxBatchEntries() : 0;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Opens the staging area for the current thread's batch.
+     * @return true if the caller owns the batch and must call {@link #complete}.
+     */
+    public boolean begin() {
+        return enabled && TelescopeBatchContext.startStaging(maxBatchEntries);
+    }
+
+    /**
+     * Closes the staging area on this thread and hands back the staged
+     * entries, so a batch that continues asynchronously can be resumed on
+     * the thread that completes it.
+     */
+    public TelescopeBatchContext.Staged detach() {
+        return TelescopeBatchContext.stopStaging();
+    }
+
+    /**
+     * Re-opens a staging area on the current thread holding previously
+     * detached entries.
+     */
+    public void resume(TelescopeBatchContext.Staged staged) {
+        TelescopeBatchContext.resumeStaging(staged);
+    }
+
+    /**
+     * Closes the staging area and commits or discards the whole batch.
+     *
+     * @param status     HTTP status of the request, or 0 for non-HTTP batches
+     * @param failed     whether the unit of work threw
+     * @param durationMs total duration of the batch
+     */
+    public void complete(TelescopeStorage storage, int status, boolean failed, long durationMs) {
+        TelescopeBatchContext.Staged staged = TelescopeBatchContext.stopStaging();
+        if (staged.isEmpty()) return;
+        batchesSeen.increment();
+        int dropped = staged.getDropped();
+        if (dropped > 0) {
+            batchesTruncated.increment();
+            entriesDropped.add(dropped);
+        }
+
+        boolean interesting = failed
+                || (status > 0 && status >= minStatus)
+                || durationMs >= slowThresholdMs
+                || staged.hasException();
+
+        List<TelescopeEntry> entries = staged.getEntries();
+        if (!interesting) {
+            if (rate <= 0.0 || ThreadLocalRandom.current().nextDouble() >= rate) return;
+            for (TelescopeEntry entry : entries) {
+                entry.setSampleRate(entry.getSampleRate() * rate);
+            }
+        }
+
+        batchesKept.increment();
+        for (TelescopeEntry entry : entries) {
+            if (dropped > 0) markTruncated(entry, dropped);
+            storage.store(entry);
+        }
+        double deferredRate = interesting ? 1.0 : rate;
+        for (TelescopeBatchContext.Deferred deferred : staged.getDeferred()) {
+            try {
+                deferred.commit(deferredRate);
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("rate", rate);
+        stats.put("batchesSeen", batchesSeen.sum());
+        stats.put("batchesKept", batchesKept.sum());
+        stats.put("batchesTruncated", batchesTruncated.sum());
+        stats.put("entriesDropped", entriesDropped.sum());
+        return stats;
+    }
+
+    private static void markTruncated(TelescopeEntry entry, int dropped) {
+        if (entry.getType() != TelescopeEntryType.REQUEST && entry.getType() != TelescopeEntryType.SCHEDULE) return;
+        try {
+            List<String> tags = entry.getTags() != null ? new ArrayList<>(entry.getTags()) : new ArrayList<>();
+            tags.add("truncated");
+            entry.setTags(tags);
+            if (entry.getTypedContent() instanceof TelescopeRequestContent request) {
+                entry.setTypedContent(request.toBuilder().droppedEntries(dropped).build());
+            } else if (entry.getContent() != null && entry.getTypedContent() == null) {
+                entry.getContent().put("droppedEntries", dropped);
+            }
+        } catch (Exception ignored) {
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package dev.springtelescope.storage;
 
+import dev.springtelescope.model.TelescopeClock;
 import dev.springtelescope.model.TelescopeEntry;
 import dev.springtelescope.model.TelescopeEntryType;
 
@@ -15,6 +16,7 @@ public class InMemoryTelescopeStorage implements TelescopeStorage {
 
     private final Map<TelescopeEntryType, ConcurrentLinkedDeque<TelescopeEntry>> entries = new ConcurrentHashMap<>();
     private final int maxEntriesPerType;
+    private final Map<String, StoredTrace> traces = new ConcurrentHashMap<>();
     private final AtomicBoolean enabled = new AtomicBoolean(true);
 
     public InMemoryTelescopeStorage(int maxEntriesPerType) {
@@ -41,7 +43,9 @@ public class InMemoryTelescopeStorage implements TelescopeStorage {
                                           String method, String statusGroup) {
         ConcurrentLinkedDeque<TelescopeEntry> deque = entries.get(type);
         if (deque == null) return Collections.emptyList();
+        // Insertion order is not capture order once entries are staged or written asynchronously
         return applyFilters(deque.stream(), userIdentifier, tenantId, method, statusGroup)
+                .sorted(Comparator.comparingLong(TelescopeEntry::getTimestamp).reversed())
                 .skip((long) page * size)
                 .limit(size)
                 .collect(Collectors.toList());
@@ -84,11 +88,11 @@ public class InMemoryTelescopeStorage implements TelescopeStorage {
         }
         if (method != null && !method.isBlank()) {
             stream = stream.filter(e -> method.equalsIgnoreCase(
-                    String.valueOf(e.getContent().get("method"))));
+                    String.valueOf(e.contentValue("method"))));
         }
         if (statusGroup != null && !statusGroup.isBlank()) {
             stream = stream.filter(e -> {
-                Object st = e.getContent().get("status");
+                Object st = e.contentValue("status");
                 if (st instanceof Number) {
                     int code = ((Number) st).intValue();
                     return switch (statusGroup) {
@@ -119,7 +123,7 @@ public class InMemoryTelescopeStorage implements TelescopeStorage {
         return entries.values().stream()
                 .flatMap(Collection::stream)
                 .filter(e -> batchId.equals(e.getBatchId()))
-                .sorted(Comparator.comparing(TelescopeEntry::getCreatedAt))
+                .sorted(Comparator.comparingLong(TelescopeEntry::getTimestamp))
                 .collect(Collectors.toList());
     }
 
@@ -132,15 +136,30 @@ public class InMemoryTelescopeStorage implements TelescopeStorage {
         return stats;
     }
 
+    @Override
+    public Map<String, Long> getEstimatedStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        for (TelescopeEntryType type : TelescopeEntryType.values()) {
+            double estimated = 0;
+            for (TelescopeEntry entry : entries.get(type)) {
+                estimated += entry.getSampleRate() > 0 ? 1.0 / entry.getSampleRate() : 1.0;
+            }
+            stats.put(type.name(), Math.round(estimated));
+        }
+        return stats;
+    }
+
     @Override
     public void clear() {
         entries.values().forEach(ConcurrentLinkedDeque::clear);
+        traces.clear();
     }
 
     @Override
     public void clearByType(TelescopeEntryType type) {
         ConcurrentLinkedDeque<TelescopeEntry> deque = entries.get(type);
         if (deque != null) deque.clear();
+        if (type == TelescopeEntryType.EXCEPTION) traces.clear();
     }
 
     @Override
@@ -155,12 +174,18 @@ public class InMemoryTelescopeStorage implements TelescopeStorage {
 
     @Override
     public long pruneOlderThan(LocalDateTime cutoff) {
+        return pruneOlderThan(TelescopeClock.toMicros(cutoff));
+    }
+
+    @Override
+    public long pruneOlderThan(long cutoffMicros) {
         long total = 0;
         for (ConcurrentLinkedDeque<TelescopeEntry> deque : entries.values()) {
             long before = deque.size();
-            deque.removeIf(e -> e.getCreatedAt() != null && e.getCreatedAt().isBefore(cutoff));
+            deque.removeIf(e -> e.getTimestamp() < cutoffMicros);
             total += before - deque.size();
         }
+        traces.values().removeIf(t -> t.lastUsed < cutoffMicros - TRACE_REFRESH_MICROS);
         return total;
     }
 
@@ -172,4 +197,44 @@ public class InMemoryTelescopeStorage implements TelescopeStorage {
                 .flatMap(e -> e.getTags().stream())
                 .collect(Collectors.toCollection(TreeSet::new));
     }
+
+    @Override
+    public void storeTrace(String fingerprint, String trace, long timestampMicros) {
+        if (!enabled.get() || fingerprint == null || trace == null) return;
+        traces.compute(fingerprint, (key, stored) -> {
+            if (stored == null) return new StoredTrace(trace, timestampMicros);
+            stored.lastUsed = Math.max(stored.lastUsed, timestampMicros);
+            return stored;
+        });
+        // Entries are capped per type, so only the fingerprints still stored need a trace
+        if (traces.size() > 2 * maxEntriesPerType) {
+            dropUnreferencedTraces(timestampMicros);
+        }
+    }
+
+    @Override
+    public Optional<String> getTrace(String fingerprint) {
+        StoredTrace stored = fingerprint != null ? traces.get(fingerprint) : null;
+        return Optional.ofNullable(stored != null ? stored.trace : null);
+    }
+
+    private void dropUnreferencedTraces(long nowMicros) {
+        Set<Object> referenced = entries.get(TelescopeEntryType.EXCEPTION).stream()
+                .map(e -> e.contentValue("fingerprint"))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        // Recently written traces may belong to entries still held in a tail-sampled batch
+        traces.entrySet().removeIf(e -> !referenced.contains(e.getKey())
+                && e.getValue().lastUsed < nowMicros - TRACE_REFRESH_MICROS);
+    }
+
+    private static final class StoredTrace {
+        private final String trace;
+        private volatile long lastUsed;
+
+        StoredTrace(String trace, long lastUsed) {
+            this.trace = trace;
+            this.lastUsed = lastUsed;
+        }
+    }
 }
@@ -1,5 +1,7 @@
 package dev.springtelescope.storage;
 
+import dev.springtelescope.context.TelescopeBatchContext;
+import dev.springtelescope.model.TelescopeClock;
 import dev.springtelescope.model.TelescopeEntry;
 import dev.springtelescope.model.TelescopeEntryType;
 
@@ -8,11 +10,37 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public interface TelescopeStorage {
 
+    /**
+     * Longest time an exception group's trace goes without being stored
+     * again while EXCEPTION entries of the group are being recorded.
+     */
+    long TRACE_REFRESH_MICROS = TimeUnit.MINUTES.toMicros(1);
+
     void store(TelescopeEntry entry);
 
+    /**
+     * Entry point used by watchers. Holds the entry in the current batch's
+     * staging area when tail sampling is active on this thread, otherwise
+     * stores it immediately.
+     */
+    default void record(TelescopeEntry entry) {
+        if (!TelescopeBatchContext.stage(entry)) {
+            store(entry);
+        }
+    }
+
+    /**
+     * Called when the content of an already stored entry changed, e.g. when
+     * an aggregated log group closes. Storages holding the entry object itself
+     * already see the change; persistent storages write it again.
+     */
+    default void update(TelescopeEntry entry) {
+    }
+
     List<TelescopeEntry> getByType(TelescopeEntryType type, int page, int size,
                                    String userIdentifier, String tenantId,
                                    String method, String statusGroup);
@@ -47,6 +75,14 @@ public interface TelescopeStorage {
 
     Map<String, Long> getStats();
 
+    /**
+     * Entry counts per type extrapolated from each entry's sample rate.
+     * Storages that cannot compute this cheaply return the raw counts.
+     */
+    default Map<String, Long> getEstimatedStats() {
+        return getStats();
+    }
+
     void clear();
 
     void clearByType(TelescopeEntryType type);
@@ -57,5 +93,29 @@ public interface TelescopeStorage {
 
     long pruneOlderThan(LocalDateTime cutoff);
 
+    /**
+     * Removes entries captured before the given epoch-microsecond timestamp.
+     * Storages that index {@link TelescopeEntry#getTimestamp()} override this
+     * to prune on it directly.
+     */
+    default long pruneOlderThan(long cutoffMicros) {
+        return pruneOlderThan(TelescopeClock.toLocalDateTime(cutoffMicros));
+    }
+
     Set<String> getDistinctTags();
+
+    /**
+     * Keeps the rendered stack trace of an exception group. EXCEPTION entries
+     * only carry the fingerprint, so the trace is stored once per fingerprint
+     * and written again, with the capture time of the latest occurrence, at
+     * least every {@link #TRACE_REFRESH_MICROS} while the group keeps
+     * occurring. Pruning removes a trace only once every entry that may
+     * reference it is older than the cutoff.
+     */
+    default void storeTrace(String fingerprint, String trace, long timestampMicros) {
+    }
+
+    default Optional<String> getTrace(String fingerprint) {
+        return Optional.empty();
+    }
 }
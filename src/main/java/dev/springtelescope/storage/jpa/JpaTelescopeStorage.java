@@ -3,6 +3,7 @@ package dev.springtelescope.storage.jpa;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.springtelescope.model.TelescopeClock;
 import dev.springtelescope.model.TelescopeEntry;
 import dev.springtelescope.model.TelescopeEntryType;
 import dev.springtelescope.storage.TelescopeStorage;
@@ -10,6 +11,7 @@ import org.springframework.data.domain.PageRequest;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
@@ -17,12 +19,16 @@ import java.util.stream.Collectors;
 public class JpaTelescopeStorage implements TelescopeStorage {
 
     private final TelescopeEntryRepository repository;
+    private final TelescopeTraceRepository traceRepository;
     private final ObjectMapper objectMapper;
     private final ConcurrentLinkedQueue<TelescopeEntry> buffer = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<String, TelescopeTraceEntity> traceBuffer = new ConcurrentHashMap<>();
     private final AtomicBoolean enabled = new AtomicBoolean(true);
 
-    public JpaTelescopeStorage(TelescopeEntryRepository repository, ObjectMapper objectMapper) {
+    public JpaTelescopeStorage(TelescopeEntryRepository repository, TelescopeTraceRepository traceRepository,
+                               ObjectMapper objectMapper) {
         this.repository = repository;
+        this.traceRepository = traceRepository;
         this.objectMapper = objectMapper;
     }
 
@@ -30,12 +36,30 @@ public class JpaTelescopeStorage implements TelescopeStorage {
         return buffer;
     }
 
+    /**
+     * Removes and returns the traces stored since the last call.
+     */
+    List<TelescopeTraceEntity> drainTraces() {
+        List<TelescopeTraceEntity> traces = new ArrayList<>();
+        for (String fingerprint : traceBuffer.keySet()) {
+            TelescopeTraceEntity trace = traceBuffer.remove(fingerprint);
+            if (trace != null) traces.add(trace);
+        }
+        return traces;
+    }
+
     @Override
     public void store(TelescopeEntry entry) {
         if (!enabled.get() || entry == null || entry.getType() == null) return;
         buffer.add(entry);
     }
 
+    @Override
+    public void update(TelescopeEntry entry) {
+        // Saving an existing id merges the row
+        store(entry);
+    }
+
     @Override
     public List<TelescopeEntry> getByType(TelescopeEntryType type, int page, int size,
                                           String userIdentifier, String tenantId,
@@ -97,7 +121,7 @@ public class JpaTelescopeStorage implements TelescopeStorage {
     @Override
     public List<TelescopeEntry> getByBatchId(String batchId) {
         if (batchId == null) return Collections.emptyList();
-        return repository.findByBatchIdOrderByCreatedAtAsc(batchId).stream()
+        return repository.findByBatchIdOrdered(batchId).stream()
                 .map(this::toEntry)
                 .collect(Collectors.toList());
     }
@@ -111,15 +135,33 @@ public class JpaTelescopeStorage implements TelescopeStorage {
         return stats;
     }
 
+    @Override
+    public Map<String, Long> getEstimatedStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        for (TelescopeEntryType type : TelescopeEntryType.values()) {
+            stats.put(type.name(), 0L);
+        }
+        for (Object[] row : repository.estimateCountsByType()) {
+            stats.put(((TelescopeEntryType) row[0]).name(), Math.round(((Number) row[1]).doubleValue()));
+        }
+        return stats;
+    }
+
     @Override
     public void clear() {
         buffer.clear();
+        traceBuffer.clear();
         repository.deleteAllInBatch();
+        traceRepository.deleteAllInBatch();
     }
 
     @Override
     public void clearByType(TelescopeEntryType type) {
         repository.deleteByType(type);
+        if (type == TelescopeEntryType.EXCEPTION) {
+            traceBuffer.clear();
+            traceRepository.deleteAllInBatch();
+        }
     }
 
     @Override
@@ -134,10 +176,15 @@ public class JpaTelescopeStorage implements TelescopeStorage {
 
     @Override
     public long pruneOlderThan(LocalDateTime cutoff) {
-        long before = repository.count();
-        repository.deleteByCreatedAtBefore(cutoff);
-        long after = repository.count();
-        return before - after;
+        return pruneOlderThan(TelescopeClock.toMicros(cutoff));
+    }
+
+    @Override
+    public long pruneOlderThan(long cutoffMicros) {
+        // Rows written before the timestamp column existed are pruned on createdAt
+        long pruned = repository.deleteOlderThan(cutoffMicros, TelescopeClock.toLocalDateTime(cutoffMicros));
+        traceRepository.deleteUnusedBefore(cutoffMicros - TRACE_REFRESH_MICROS);
+        return pruned;
     }
 
     @Override
@@ -153,6 +200,22 @@ public class JpaTelescopeStorage implements TelescopeStorage {
         return tags;
     }
 
+    @Override
+    public void storeTrace(String fingerprint, String trace, long timestampMicros) {
+        if (!enabled.get() || fingerprint == null || trace == null) return;
+        // Written by the flusher; saving an existing fingerprint merges the row
+        traceBuffer.merge(fingerprint, new TelescopeTraceEntity(fingerprint, trace, timestampMicros),
+                (pending, latest) -> latest.getLastUsed() >= pending.getLastUsed() ? latest : pending);
+    }
+
+    @Override
+    public Optional<String> getTrace(String fingerprint) {
+        if (fingerprint == null) return Optional.empty();
+        TelescopeTraceEntity pending = traceBuffer.get(fingerprint);
+        if (pending != null) return Optional.of(pending.getTrace());
+        return traceRepository.findById(fingerprint).map(TelescopeTraceEntity::getTrace);
+    }
+
     // --- conversion helpers ---
 
     TelescopeEntryEntity toEntity(TelescopeEntry entry) {
@@ -160,9 +223,11 @@ public class JpaTelescopeStorage implements TelescopeStorage {
         entity.setUuid(entry.getUuid());
         entity.setType(entry.getType());
         entity.setCreatedAt(entry.getCreatedAt());
+        entity.setTimestamp(entry.getTimestamp());
         entity.setBatchId(entry.getBatchId());
         entity.setUserIdentifier(entry.getUserIdentifier());
         entity.setTenantId(entry.getTenantId());
+        entity.setSampleRate(entry.getSampleRate());
         try {
             if (entry.getContent() != null) {
                 entity.setContentJson(objectMapper.writeValueAsString(entry.getContent()));
@@ -179,6 +244,8 @@ public class JpaTelescopeStorage implements TelescopeStorage {
     }
 
     private TelescopeEntry toEntry(TelescopeEntryEntity entity) {
+        long timestamp = entity.getTimestamp() != null ? entity.getTimestamp()
+                : entity.getCreatedAt() != null ? TelescopeClock.toMicros(entity.getCreatedAt()) : 0;
         Map<String, Object> content = null;
         if (entity.getContentJson() != null) {
             try {
@@ -198,23 +265,24 @@ public class JpaTelescopeStorage implements TelescopeStorage {
         return TelescopeEntry.builder()
                 .uuid(entity.getUuid())
                 .type(entity.getType())
-                .createdAt(entity.getCreatedAt())
+                .timestamp(timestamp)
                 .batchId(entity.getBatchId())
                 .content(content)
                 .userIdentifier(entity.getUserIdentifier())
                 .tenantId(entity.getTenantId())
                 .tags(tags)
+                .sampleRate(entity.getSampleRate() != null ? entity.getSampleRate() : 1.0)
                 .build();
     }
 
     private boolean matchesMethod(TelescopeEntry e, String method) {
         if (isBlank(method)) return true;
-        return method.equalsIgnoreCase(String.valueOf(e.getContent().get("method")));
+        return method.equalsIgnoreCase(String.valueOf(e.contentValue("method")));
     }
 
     private boolean matchesStatusGroup(TelescopeEntry e, String statusGroup) {
         if (isBlank(statusGroup)) return true;
-        Object st = e.getContent().get("status");
+        Object st = e.contentValue("status");
         if (st instanceof Number) {
             int code = ((Number) st).intValue();
             return switch (statusGroup) {
@@ -8,6 +8,7 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "telescope_entries", indexes = {
         @Index(name = "idx_telescope_created_at", columnList = "createdAt"),
+        @Index(name = "idx_telescope_timestamp", columnList = "created_at_micros"),
         @Index(name = "idx_telescope_batch_id", columnList = "batchId"),
         @Index(name = "idx_telescope_user", columnList = "userIdentifier"),
         @Index(name = "idx_telescope_tenant", columnList = "tenantId"),
@@ -26,6 +27,12 @@ public class TelescopeEntryEntity {
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
+    /**
+     * Epoch microseconds; null for rows written before the column existed.
+     */
+    @Column(name = "created_at_micros")
+    private Long timestamp;
+
     @Column(length = 36)
     private String batchId;
 
@@ -41,6 +48,8 @@ public class TelescopeEntryEntity {
     @Column(length = 2000)
     private String tagsJson;
 
+    private Double sampleRate;
+
     public TelescopeEntryEntity() {
     }
 
@@ -68,6 +77,14 @@ public class TelescopeEntryEntity {
         this.createdAt = createdAt;
     }
 
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
+
     public String getBatchId() {
         return batchId;
     }
@@ -107,4 +124,12 @@ public class TelescopeEntryEntity {
     public void setTagsJson(String tagsJson) {
         this.tagsJson = tagsJson;
     }
+
+    public Double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(Double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
 }
@@ -16,7 +16,7 @@ public interface TelescopeEntryRepository extends JpaRepository<TelescopeEntryEn
     @Query("SELECT e FROM TelescopeEntryEntity e WHERE e.type = :type" +
             " AND (:user IS NULL OR e.userIdentifier = :user)" +
             " AND (:tenant IS NULL OR e.tenantId = :tenant)" +
-            " ORDER BY e.createdAt DESC")
+            " ORDER BY e.timestamp DESC NULLS LAST, e.createdAt DESC")
     List<TelescopeEntryEntity> findByTypeFiltered(
             @Param("type") TelescopeEntryType type,
             @Param("user") String userIdentifier,
@@ -31,11 +31,16 @@ public interface TelescopeEntryRepository extends JpaRepository<TelescopeEntryEn
             @Param("user") String userIdentifier,
             @Param("tenant") String tenantId);
 
-    List<TelescopeEntryEntity> findByBatchIdOrderByCreatedAtAsc(String batchId);
+    @Query("SELECT e FROM TelescopeEntryEntity e WHERE e.batchId = :batchId" +
+            " ORDER BY e.timestamp ASC NULLS FIRST, e.createdAt ASC")
+    List<TelescopeEntryEntity> findByBatchIdOrdered(@Param("batchId") String batchId);
 
     @Query("SELECT COUNT(e) FROM TelescopeEntryEntity e WHERE e.type = :type")
     long countByType(@Param("type") TelescopeEntryType type);
 
+    @Query("SELECT e.type, SUM(1.0 / COALESCE(e.sampleRate, 1.0)) FROM TelescopeEntryEntity e GROUP BY e.type")
+    List<Object[]> estimateCountsByType();
+
     @Query("SELECT DISTINCT e.userIdentifier FROM TelescopeEntryEntity e WHERE e.userIdentifier IS NOT NULL ORDER BY e.userIdentifier")
     List<String> findDistinctUserIdentifiers();
 
@@ -51,5 +56,7 @@ public interface TelescopeEntryRepository extends JpaRepository<TelescopeEntryEn
 
     @Modifying
     @Transactional
-    void deleteByCreatedAtBefore(LocalDateTime cutoff);
+    @Query("DELETE FROM TelescopeEntryEntity e WHERE e.timestamp < :cutoffMicros" +
+            " OR (e.timestamp IS NULL AND e.createdAt < :cutoff)")
+    int deleteOlderThan(@Param("cutoffMicros") long cutoffMicros, @Param("cutoff") LocalDateTime cutoff);
 }
@@ -19,12 +19,14 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 public class TelescopeJpaAutoConfiguration {
 
     @Bean
-    public TelescopeStorage telescopeStorage(TelescopeEntryRepository repository, ObjectMapper objectMapper) {
-        return new JpaTelescopeStorage(repository, objectMapper);
+    public TelescopeStorage telescopeStorage(TelescopeEntryRepository repository,
+                                             TelescopeTraceRepository traceRepository, ObjectMapper objectMapper) {
+        return new JpaTelescopeStorage(repository, traceRepository, objectMapper);
     }
 
     @Bean
-    public TelescopeStorageFlusher telescopeStorageFlusher(TelescopeStorage storage, TelescopeEntryRepository repository) {
-        return new TelescopeStorageFlusher((JpaTelescopeStorage) storage, repository);
+    public TelescopeStorageFlusher telescopeStorageFlusher(TelescopeStorage storage, TelescopeEntryRepository repository,
+                                                           TelescopeTraceRepository traceRepository) {
+        return new TelescopeStorageFlusher((JpaTelescopeStorage) storage, repository, traceRepository);
     }
 }
@@ -11,10 +11,13 @@ public class TelescopeStorageFlusher {
 
     private final JpaTelescopeStorage storage;
     private final TelescopeEntryRepository repository;
+    private final TelescopeTraceRepository traceRepository;
 
-    public TelescopeStorageFlusher(JpaTelescopeStorage storage, TelescopeEntryRepository repository) {
+    public TelescopeStorageFlusher(JpaTelescopeStorage storage, TelescopeEntryRepository repository,
+                                   TelescopeTraceRepository traceRepository) {
         this.storage = storage;
         this.repository = repository;
+        this.traceRepository = traceRepository;
     }
 
     @Scheduled(fixedDelayString = "${telescope.flush-interval-ms:2000}")
@@ -28,6 +31,11 @@ public class TelescopeStorageFlusher {
     }
 
     private void drainBuffer() {
+        // Traces first, so an entry is never readable before the trace it references
+        List<TelescopeTraceEntity> traces = storage.drainTraces();
+        if (!traces.isEmpty()) {
+            traceRepository.saveAll(traces);
+        }
         List<TelescopeEntryEntity> batch = new ArrayList<>();
         TelescopeEntry entry;
         while ((entry = storage.getBuffer().poll()) != null) {
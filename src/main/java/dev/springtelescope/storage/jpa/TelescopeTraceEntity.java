@@ -0,0 +1,59 @@
+package dev.springtelescope.storage.jpa;
+
+import jakarta.persistence.*;
+
+/**
+ * Rendered stack trace of an exception group, one row per fingerprint.
+ */
+@Entity
+@Table(name = "telescope_traces", indexes = {
+        @Index(name = "idx_telescope_trace_last_used", columnList = "last_used_micros")
+})
+public class TelescopeTraceEntity {
+
+    @Id
+    @Column(length = 64)
+    private String fingerprint;
+
+    @Column(columnDefinition = "TEXT")
+    private String trace;
+
+    /**
+     * Epoch microseconds of the latest occurrence the trace was stored for.
+     */
+    @Column(name = "last_used_micros", nullable = false)
+    private long lastUsed;
+
+    public TelescopeTraceEntity() {
+    }
+
+    public TelescopeTraceEntity(String fingerprint, String trace, long lastUsed) {
+        this.fingerprint = fingerprint;
+        this.trace = trace;
+        this.lastUsed = lastUsed;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public String getTrace() {
+        return trace;
+    }
+
+    public void setTrace(String trace) {
+        this.trace = trace;
+    }
+
+    public long getLastUsed() {
+        return lastUsed;
+    }
+
+    public void setLastUsed(long lastUsed) {
+        this.lastUsed = lastUsed;
+    }
+}
@@ -0,0 +1,15 @@
+package dev.springtelescope.storage.jpa;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface TelescopeTraceRepository extends JpaRepository<TelescopeTraceEntity, String> {
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM TelescopeTraceEntity t WHERE t.lastUsed < :cutoffMicros")
+    int deleteUnusedBefore(@Param("cutoffMicros") long cutoffMicros);
+}
@@ -0,0 +1,155 @@
+package dev.springtelescope.watcher;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Retains at most {@code limit} bytes of a body while counting every byte
+ * that passes through. The buffer grows on demand, so empty or small bodies
+ * never pay for the full limit. Once {@link #skip(String)} is called the
+ * capture switches to counting only.
+ */
+public final class TelescopeBodyCapture {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final int limit;
+    private byte[] buffer;
+    private int count;
+    private long total;
+    private String skipReason;
+
+    public TelescopeBodyCapture(int limit) {
+        this.limit = Math.max(0, limit);
+    }
+
+    public void write(int b) {
+        total++;
+        if (skipReason == null && count < limit) {
+            ensureCapacity(count + 1);
+            buffer[count++] = (byte) b;
+        }
+    }
+
+    public void write(byte[] b, int off, int len) {
+        if (len <= 0) return;
+        total += len;
+        if (skipReason != null) return;
+        int toCopy = Math.min(len, limit - count);
+        if (toCopy > 0) {
+            ensureCapacity(count + toCopy);
+            System.arraycopy(b, off, buffer, count, toCopy);
+            count += toCopy;
+        }
+    }
+
+    /**
+     * Copies the remaining bytes of the buffer without moving its position,
+     * so the buffer can still be consumed downstream.
+     */
+    public void write(ByteBuffer source) {
+        int len = source.remaining();
+        if (len <= 0) return;
+        total += len;
+        if (skipReason != null) return;
+        int toCopy = Math.min(len, limit - count);
+        if (toCopy > 0) {
+            ensureCapacity(count + toCopy);
+            source.get(source.position(), buffer, count, toCopy);
+            count += toCopy;
+        }
+    }
+
+    /**
+     * Forgets the bytes written so far, e.g. when the response buffer is
+     * reset. A skip stays in effect.
+     */
+    public void discard() {
+        total = 0;
+        count = 0;
+    }
+
+    /**
+     * Forgets the bytes written so far and any skip, for a response whose
+     * headers were reset as well.
+     */
+    public void reset() {
+        discard();
+        skipReason = null;
+        buffer = null;
+    }
+
+    /**
+     * Stops retaining bytes and releases anything already captured.
+     */
+    public void skip(String reason) {
+        if (skipReason != null) return;
+        skipReason = reason;
+        buffer = null;
+        count = 0;
+    }
+
+    public boolean isSkipped() {
+        return skipReason != null;
+    }
+
+    public String getSkipReason() {
+        return skipReason;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public long getTotalBytes() {
+        return total;
+    }
+
+    public int getCapturedBytes() {
+        return count;
+    }
+
+    public boolean isTruncated() {
+        return skipReason == null && total > count;
+    }
+
+    /**
+     * Decodes the retained bytes. For UTF-8, an incomplete multi-byte
+     * sequence cut off by the limit is dropped rather than rendered as a
+     * replacement character.
+     */
+    public String toString(Charset charset) {
+        if (count == 0) return "";
+        int length = count;
+        if (isTruncated() && StandardCharsets.UTF_8.equals(charset)) {
+            length = completeUtf8Length(buffer, count);
+        }
+        String body = new String(buffer, 0, length, charset);
+        return isTruncated() ? body + "... [truncated]" : body;
+    }
+
+    private void ensureCapacity(int required) {
+        if (buffer == null) {
+            buffer = new byte[Math.min(limit, Math.max(INITIAL_CAPACITY, required))];
+        } else if (required > buffer.length) {
+            int newCapacity = Math.min(limit, Math.max(buffer.length * 2, required));
+            buffer = Arrays.copyOf(buffer, newCapacity);
+        }
+    }
+
+    private static int completeUtf8Length(byte[] bytes, int length) {
+        // Walk back over continuation bytes (10xxxxxx) to the last lead byte
+        int i = length - 1;
+        int continuation = 0;
+        while (i >= 0 && (bytes[i] & 0xC0) == 0x80 && continuation < 3) {
+            i--;
+            continuation++;
+        }
+        if (i < 0) return length;
+        int lead = bytes[i] & 0xFF;
+        int expected = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+        return (continuation + 1 < expected) ? i : length;
+    }
+}
@@ -0,0 +1,56 @@
+package dev.springtelescope.watcher;
+
+import dev.springtelescope.aggregate.TelescopeCacheStats;
+import dev.springtelescope.context.TelescopeUserProvider;
+import dev.springtelescope.sampling.TelescopeSampler;
+import dev.springtelescope.storage.TelescopeStorage;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cache.CacheManager;
+
+/**
+ * Wraps every {@link CacheManager} bean with the {@link TelescopeCacheWatcher}.
+ * <p>
+ * Telescope's own beans are looked up only after all singletons exist, so
+ * wrapping a cache manager never forces the storage to initialize early.
+ */
+public class TelescopeCacheManagerPostProcessor implements BeanPostProcessor, SmartInitializingSingleton {
+
+    private final TelescopeCacheWatcher watcher = new TelescopeCacheWatcher();
+    private final ObjectProvider<TelescopeStorage> storage;
+    private final ObjectProvider<TelescopeUserProvider> userProvider;
+    private final ObjectProvider<TelescopeSampler> sampler;
+    private final ObjectProvider<TelescopeCacheStats> cacheStats;
+
+    public TelescopeCacheManagerPostProcessor(ObjectProvider<TelescopeStorage> storage,
+                                              ObjectProvider<TelescopeUserProvider> userProvider,
+                                              ObjectProvider<TelescopeSampler> sampler,
+                                              ObjectProvider<TelescopeCacheStats> cacheStats) {
+        this.storage = storage;
+        this.userProvider = userProvider;
+        this.sampler = sampler;
+        this.cacheStats = cacheStats;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof CacheManager cacheManager) {
+            return watcher.wrap(cacheManager);
+        }
+        return bean;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        TelescopeStorage telescopeStorage = storage.getIfAvailable();
+        TelescopeUserProvider telescopeUserProvider = userProvider.getIfAvailable();
+        TelescopeSampler telescopeSampler = sampler.getIfAvailable();
+        TelescopeCacheStats telescopeCacheStats = cacheStats.getIfAvailable();
+        if (telescopeStorage == null || telescopeUserProvider == null || telescopeSampler == null
+                || telescopeCacheStats == null) {
+            return;
+        }
+        watcher.activate(telescopeStorage, telescopeUserProvider, telescopeSampler, telescopeCacheStats);
+    }
+}
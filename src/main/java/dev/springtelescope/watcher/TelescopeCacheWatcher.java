@@ -0,0 +1,350 @@
+package dev.springtelescope.watcher;
+
+import dev.springtelescope.aggregate.TelescopeCacheStats;
+import dev.springtelescope.context.TelescopeBatchContext;
+import dev.springtelescope.context.TelescopeRequestTimings;
+import dev.springtelescope.context.TelescopeUserProvider;
+import dev.springtelescope.id.TelescopeIds;
+import dev.springtelescope.model.TelescopeEntry;
+import dev.springtelescope.model.TelescopeEntryType;
+import dev.springtelescope.sampling.TelescopeSampler;
+import dev.springtelescope.storage.TelescopeStorage;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cache watcher. Wraps a {@link CacheManager} so every {@link Cache} it hands
+ * out is decorated, which gives real hit/miss outcomes whichever caller uses
+ * the cache ({@code @Cacheable}, programmatic access).
+ * <p>
+ * Every operation feeds the per-cache {@link TelescopeCacheStats}. Hits and
+ * puts are only counted; misses, evictions and clears are also recorded as
+ * sampled CACHE entries. Load time is the time from a miss to the same key
+ * being stored in that cache, or the time spent in the value loader for
+ * {@link Cache#get(Object, Callable)}. Misses waiting for their put are held
+ * per cache and key for at most a minute and at most
+ * {@value #MAX_PENDING_LOADS} at a time, so a miss that is never followed by a
+ * put (a null result, a failed load) does not linger.
+ * <p>
+ * The cache manager is wrapped during bean initialization, before Telescope's
+ * own beans exist; operations pass through uncounted until {@link #activate}
+ * is called once the context has started.
+ */
+public class TelescopeCacheWatcher {
+
+    private static final int MAX_KEY_LENGTH = 500;
+
+    private static final int MAX_PENDING_LOADS = 1024;
+    private static final long PENDING_LOAD_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final ConcurrentHashMap<PendingLoad, Long> pendingLoads = new ConcurrentHashMap<>();
+
+    private volatile TelescopeStorage storage;
+    private volatile TelescopeUserProvider userProvider;
+    private volatile TelescopeSampler sampler;
+    private volatile TelescopeCacheStats cacheStats;
+
+    public void activate(TelescopeStorage storage, TelescopeUserProvider userProvider, TelescopeSampler sampler,
+                         TelescopeCacheStats cacheStats) {
+        this.cacheStats = cacheStats;
+        this.userProvider = userProvider;
+        this.sampler = sampler;
+        this.storage = storage;
+    }
+
+    /**
+     * Returns a proxy of the cache manager whose caches are instrumented.
+     * Class-based proxying keeps the concrete type (e.g.
+     * {@code CaffeineCacheManager}) injectable.
+     */
+    public CacheManager wrap(CacheManager cacheManager) {
+        if (cacheManager instanceof Wrapped) return cacheManager;
+        Map<String, InstrumentedCache> caches = new ConcurrentHashMap<>();
+        ProxyFactory factory = new ProxyFactory(cacheManager);
+        factory.setProxyTargetClass(!Modifier.isFinal(cacheManager.getClass().getModifiers()));
+        factory.addInterface(CacheManager.class);
+        factory.addInterface(Wrapped.class);
+        factory.addAdvice((MethodInterceptor) invocation -> {
+            Object result = invocation.proceed();
+            if (!"getCache".equals(invocation.getMethod().getName()) || !(result instanceof Cache cache)) {
+                return result;
+            }
+            InstrumentedCache instrumented = caches.get(cache.getName());
+            if (instrumented == null || instrumented.delegate != cache) {
+                instrumented = new InstrumentedCache(cache);
+                caches.put(cache.getName(), instrumented);
+            }
+            return instrumented;
+        });
+        return (CacheManager) factory.getProxy(cacheManager.getClass().getClassLoader());
+    }
+
+    private TelescopeCacheStats.CacheCounters counters(String cacheName) {
+        TelescopeStorage s = storage;
+        return s != null && s.isEnabled() ? cacheStats.forCache(cacheName) : null;
+    }
+
+    private void lookup(TelescopeCacheStats.CacheCounters counters, String cacheName, Object key, boolean hit,
+                        long nanos, long loadNanos) {
+        TelescopeBatchContext.addTime(TelescopeEntryType.CACHE, nanos);
+        if (hit) {
+            counters.hit();
+            return;
+        }
+        counters.miss();
+        if (loadNanos >= 0) {
+            counters.load(loadNanos);
+        } else if (key != null) {
+            awaitLoad(new PendingLoad(cacheName, key), System.nanoTime());
+        }
+        record("MISS", cacheName, key, nanos, loadNanos);
+    }
+
+    private void put(TelescopeCacheStats.CacheCounters counters, String cacheName, Object key, long nanos,
+                     long startNanos) {
+        TelescopeBatchContext.addTime(TelescopeEntryType.CACHE, nanos);
+        counters.put();
+        if (key == null || pendingLoads.isEmpty()) return;
+        Long missNanos = pendingLoads.remove(new PendingLoad(cacheName, key));
+        if (missNanos != null && startNanos - missNanos <= PENDING_LOAD_TIMEOUT_NANOS) {
+            counters.load(startNanos - missNanos);
+        }
+    }
+
+    private void awaitLoad(PendingLoad pending, long missNanos) {
+        if (pendingLoads.size() >= MAX_PENDING_LOADS) {
+            pendingLoads.values().removeIf(since -> missNanos - since > PENDING_LOAD_TIMEOUT_NANOS);
+            if (pendingLoads.size() >= MAX_PENDING_LOADS) return;
+        }
+        pendingLoads.put(pending, missNanos);
+    }
+
+    private void evict(TelescopeCacheStats.CacheCounters counters, String operation, String cacheName, Object key,
+                       long nanos) {
+        TelescopeBatchContext.addTime(TelescopeEntryType.CACHE, nanos);
+        if (key != null) {
+            counters.evict();
+        } else {
+            counters.clear();
+        }
+        record(operation, cacheName, key, nanos, -1);
+    }
+
+    private void record(String operation, String cacheName, Object key, long nanos, long loadNanos) {
+        if (!sampler.sample(TelescopeEntryType.CACHE)) return;
+        try {
+            Map<String, Object> content = new LinkedHashMap<>();
+            content.put("operation", operation);
+            content.put("cacheName", cacheName);
+            content.put("key", key != null ? truncate(String.valueOf(key)) : "*");
+            content.put("duration", TelescopeRequestTimings.millis(nanos));
+            if (loadNanos >= 0) {
+                content.put("loadTime", TelescopeRequestTimings.millis(loadNanos));
+            }
+
+            List<String> tags = new ArrayList<>();
+            tags.add("cache:" + operation.toLowerCase());
+            tags.add("cache:" + cacheName);
+
+            TelescopeBatchContext.Identity identity = TelescopeBatchContext.identity(userProvider);
+
+            storage.record(TelescopeEntry.builder()
+                    .uuid(TelescopeIds.next())
+                    .type(TelescopeEntryType.CACHE)
+                    .batchId(TelescopeBatchContext.get())
+                    .content(content)
+                    .userIdentifier(identity.userIdentifier())
+                    .tenantId(identity.tenantId())
+                    .tags(tags)
+                    .sampleRate(sampler.getRate(TelescopeEntryType.CACHE))
+                    .build());
+        } catch (Exception ignored) {
+        }
+    }
+
+    private static String truncate(String key) {
+        return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) + "..." : key;
+    }
+
+    /**
+     * Marker for cache managers that are already wrapped.
+     */
+    public interface Wrapped {
+    }
+
+    private record PendingLoad(String cacheName, Object key) {
+    }
+
+    /**
+     * Cache decorator that counts and times each operation.
+     */
+    private final class InstrumentedCache implements Cache {
+
+        private final Cache delegate;
+        private final String name;
+
+        InstrumentedCache(Cache delegate) {
+            this.delegate = delegate;
+            this.name = delegate.getName();
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return delegate.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            TelescopeCacheStats.CacheCounters counters = counters(name);
+            if (counters == null) return delegate.get(key);
+            long start = System.nanoTime();
+            ValueWrapper value = delegate.get(key);
+            lookup(counters, name, key, value != null, System.nanoTime() - start, -1);
+            return value;
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            TelescopeCacheStats.CacheCounters counters = counters(name);
+            if (counters == null) return delegate.get(key, type);
+            long start = System.nanoTime();
+            T value = delegate.get(key, type);
+            lookup(counters, name, key, value != null, System.nanoTime() - start, -1);
+            return value;
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            TelescopeCacheStats.CacheCounters counters = counters(name);
+            if (counters == null) return delegate.get(key, valueLoader);
+            long[] loadNanos = {-1};
+            long start = System.nanoTime();
+            T value = delegate.get(key, () -> {
+                long loadStart = System.nanoTime();
+                try {
+                    return valueLoader.call();
+                } finally {
+                    loadNanos[0] = System.nanoTime() - loadStart;
+                }
+            });
+            long load = loadNanos[0];
+            long nanos = System.nanoTime() - start - Math.max(0, load);
+            lookup(counters, name, key, load < 0, nanos, load);
+            return value;
+        }
+
+        @Override
+        public CompletableFuture<?> retrieve(Object key) {
+            TelescopeCacheStats.CacheCounters counters = counters(name);
+            CompletableFuture<?> future = delegate.retrieve(key);
+            if (counters != null) {
+                if (future == null) {
+                    counters.miss();
+                } else {
+                    future.whenComplete((value, error) -> {
+                        if (value != null) counters.hit();
+                        else counters.miss();
+                    });
+                }
+            }
+            return future;
+        }
+
+        @Override
+        public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+            TelescopeCacheStats.CacheCounters counters = counters(name);
+            if (counters == null) return delegate.retrieve(key, valueLoader);
+            boolean[] loaded = {false};
+            CompletableFuture<T> future = delegate.retrieve(key, () -> {
+                loaded[0] = true;
+                long loadStart = System.nanoTime();
+                return valueLoader.get().whenComplete((value, error) -> counters.load(System.nanoTime() - loadStart));
+            });
+            // The loader runs synchronously when the key is absent
+            if (loaded[0]) counters.miss();
+            else counters.hit();
+            return future;
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            TelescopeCacheStats.CacheCounters counters = counters(name);
+            if (counters == null) {
+                delegate.put(key, value);
+                return;
+            }
+            long start = System.nanoTime();
+            delegate.put(key, value);
+            TelescopeCacheWatcher.this.put(counters, name, key, System.nanoTime() - start, start);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            TelescopeCacheStats.CacheCounters counters = counters(name);
+            if (counters == null) return delegate.putIfAbsent(key, value);
+            long start = System.nanoTime();
+            ValueWrapper existing = delegate.putIfAbsent(key, value);
+            TelescopeCacheWatcher.this.put(counters, name, key, System.nanoTime() - start, start);
+            return existing;
+        }
+
+        @Override
+        public void evict(Object key) {
+            TelescopeCacheStats.CacheCounters counters = counters(name);
+            if (counters == null) {
+                delegate.evict(key);
+                return;
+            }
+            long start = System.nanoTime();
+            delegate.evict(key);
+            TelescopeCacheWatcher.this.evict(counters, "EVICT", name, key, System.nanoTime() - start);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            TelescopeCacheStats.CacheCounters counters = counters(name);
+            if (counters == null) return delegate.evictIfPresent(key);
+            long start = System.nanoTime();
+            boolean evicted = delegate.evictIfPresent(key);
+            TelescopeCacheWatcher.this.evict(counters, "EVICT", name, key, System.nanoTime() - start);
+            return evicted;
+        }
+
+        @Override
+        public void clear() {
+            TelescopeCacheStats.CacheCounters counters = counters(name);
+            if (counters == null) {
+                delegate.clear();
+                return;
+            }
+            long start = System.nanoTime();
+            delegate.clear();
+            TelescopeCacheWatcher.this.evict(counters, "CLEAR", name, null, System.nanoTime() - start);
+        }
+
+        @Override
+        public boolean invalidate() {
+            TelescopeCacheStats.CacheCounters counters = counters(name);
+            if (counters == null) return delegate.invalidate();
+            long start = System.nanoTime();
+            boolean invalidated = delegate.invalidate();
+            TelescopeCacheWatcher.this.evict(counters, "CLEAR", name, null, System.nanoTime() - start);
+            return invalidated;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package dev.springtelescope.watcher;
+
+import dev.springtelescope.TelescopeProperties;
+
+import java.util.Locale;
+
+/**
+ * Decides when a body must not be captured: streaming or binary content
+ * types, bodies declaring a Content-Length above the limit, and async
+ * dispatches such as SSE or {@code StreamingResponseBody}. Matching bodies
+ * are recorded as metadata only, without retaining any bytes.
+ */
+public class TelescopeCapturePolicy {
+
+    private final String[] bypassContentTypes;
+    private final long maxContentLength;
+
+    public TelescopeCapturePolicy(TelescopeProperties.Capture capture) {
+        this.bypassContentTypes = capture.getBypassContentTypes().stream()
+                .map(type -> type.toLowerCase(Locale.ROOT))
+                .toArray(String[]::new);
+        this.maxContentLength = capture.getMaxContentLength();
+    }
+
+    /**
+     * Returns the reason the body should be skipped for this content type,
+     * or null if it may be captured.
+     */
+    public String checkContentType(String contentType) {
+        if (contentType == null) return null;
+        String normalized = contentType.toLowerCase(Locale.ROOT);
+        for (String prefix : bypassContentTypes) {
+            if (normalized.startsWith(prefix)) return "content-type";
+        }
+        return null;
+    }
+
+    public String checkContentLength(long contentLength) {
+        return (maxContentLength > 0 && contentLength > maxContentLength) ? "content-length" : null;
+    }
+}
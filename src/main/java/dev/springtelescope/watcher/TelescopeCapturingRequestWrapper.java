@@ -0,0 +1,159 @@
+package dev.springtelescope.watcher;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Request wrapper that tees the body into a {@link TelescopeBodyCapture} as
+ * the application reads it. Nothing is buffered beyond the capture limit and
+ * the application still consumes the original stream.
+ */
+public class TelescopeCapturingRequestWrapper extends HttpServletRequestWrapper {
+
+    private final TelescopeBodyCapture capture;
+    private ServletInputStream inputStream;
+    private BufferedReader reader;
+
+    public TelescopeCapturingRequestWrapper(HttpServletRequest request, int maxBodyBytes,
+                                            TelescopeCapturePolicy policy) {
+        super(request);
+        this.capture = new TelescopeBodyCapture(maxBodyBytes);
+        String skipReason = policy.checkContentType(request.getContentType());
+        if (skipReason == null) {
+            skipReason = policy.checkContentLength(request.getContentLengthLong());
+        }
+        if (skipReason != null) {
+            capture.skip(skipReason);
+        }
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (inputStream == null) {
+            inputStream = new TeeInputStream(super.getInputStream());
+        }
+        return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (reader == null) {
+            reader = new BufferedReader(new InputStreamReader(getInputStream(), getCharset()));
+        }
+        return reader;
+    }
+
+    public TelescopeBodyCapture getCapture() {
+        return capture;
+    }
+
+    /**
+     * Returns the captured body. Form posts consumed through
+     * {@code getParameter*} never touch the input stream, so for those the
+     * body is rebuilt from the parameter map.
+     */
+    public String getBodyAsString() {
+        if (capture.isSkipped()) return null;
+        if (capture.getTotalBytes() == 0 && isFormPost()) {
+            TelescopeBodyCapture form = new TelescopeBodyCapture(capture.getLimit());
+            byte[] encoded = encodeParameters().getBytes(StandardCharsets.UTF_8);
+            form.write(encoded, 0, encoded.length);
+            return form.toString(StandardCharsets.UTF_8);
+        }
+        return capture.toString(StandardCharsets.UTF_8);
+    }
+
+    private boolean isFormPost() {
+        String contentType = getContentType();
+        return contentType != null && contentType.startsWith("application/x-www-form-urlencoded")
+                && "POST".equalsIgnoreCase(getMethod());
+    }
+
+    private String encodeParameters() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String[]> entry : getParameterMap().entrySet()) {
+            for (String value : entry.getValue()) {
+                if (!sb.isEmpty()) sb.append('&');
+                sb.append(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8));
+                if (value != null) {
+                    sb.append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private Charset getCharset() {
+        String encoding = getCharacterEncoding();
+        try {
+            return encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1;
+        } catch (Exception e) {
+            return StandardCharsets.ISO_8859_1;
+        }
+    }
+
+    private class TeeInputStream extends ServletInputStream {
+
+        private final ServletInputStream delegate;
+
+        TeeInputStream(ServletInputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b != -1) capture.write(b);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = delegate.read(b, off, len);
+            if (n > 0) capture.write(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int readLine(byte[] b, int off, int len) throws IOException {
+            int n = delegate.readLine(b, off, len);
+            if (n > 0) capture.write(b, off, n);
+            return n;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            delegate.setReadListener(listener);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return delegate.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package dev.springtelescope.watcher;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Response wrapper that passes every byte straight through to the client
+ * while retaining at most the configured number of bytes for capture.
+ * Unlike a fully caching wrapper, the response streams and commits exactly
+ * as it would without Telescope.
+ * <p>
+ * {@link #reset()} and {@link #resetBuffer()} discard what was captured along
+ * with the response buffer, so an error page written after a reset is not
+ * appended to the partial body. The body is decoded with the charset it was
+ * written in: the writer's, or for binary output the {@code charset} of the
+ * content type, defaulting to UTF-8.
+ */
+public class TelescopeCapturingResponseWrapper extends HttpServletResponseWrapper {
+
+    private final TelescopeBodyCapture capture;
+    private final TelescopeCapturePolicy policy;
+    private TeeOutputStream outputStream;
+    private PrintWriter writer;
+    private Charset writerCharset;
+    private String stickySkipReason;
+
+    public TelescopeCapturingResponseWrapper(HttpServletResponse response, int maxBodyBytes,
+                                             TelescopeCapturePolicy policy) {
+        super(response);
+        this.capture = new TelescopeBodyCapture(maxBodyBytes);
+        this.policy = policy;
+    }
+
+    // --- Capture bypass: streaming/binary/large bodies are recorded as metadata only ---
+
+    @Override
+    public void setContentType(String type) {
+        super.setContentType(type);
+        skipIfNeeded(policy.checkContentType(type));
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        super.setContentLength(len);
+        skipIfNeeded(policy.checkContentLength(len));
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        super.setContentLengthLong(len);
+        skipIfNeeded(policy.checkContentLength(len));
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        super.setHeader(name, value);
+        checkHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        super.addHeader(name, value);
+        checkHeader(name, value);
+    }
+
+    /**
+     * Switches to metadata-only capture, e.g. when the request goes async.
+     */
+    public void skipCapture(String reason) {
+        if (stickySkipReason == null) stickySkipReason = reason;
+        capture.skip(reason);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called on this response");
+        }
+        return teeStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called on this response");
+            }
+            writerCharset = getCharset();
+            writer = new PrintWriter(new OutputStreamWriter(teeStream(), writerCharset));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) writer.flush();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        drainWriter();
+        super.resetBuffer();
+        capture.discard();
+    }
+
+    @Override
+    public void reset() {
+        drainWriter();
+        super.reset();
+        // Headers are gone: a skip caused by the content type or length no longer applies
+        capture.reset();
+        if (stickySkipReason != null) capture.skip(stickySkipReason);
+        // The writer is kept: outer wrappers may hold on to it and keep writing after the reset
+    }
+
+    /**
+     * Flushes any characters still buffered in the writer handed to the
+     * application. Called once the filter chain has returned.
+     */
+    public void flushWriter() {
+        if (writer != null) writer.flush();
+    }
+
+    public TelescopeBodyCapture getCapture() {
+        return capture;
+    }
+
+    public String getBodyAsString() {
+        return capture.isSkipped() ? null : capture.toString(writerCharset != null ? writerCharset : bodyCharset());
+    }
+
+    /**
+     * Pushes characters pending in the writer into the response buffer about
+     * to be discarded, without flushing (and so committing) the response.
+     */
+    private void drainWriter() {
+        if (writer == null) return;
+        outputStream.holdFlush = true;
+        try {
+            writer.flush();
+        } finally {
+            outputStream.holdFlush = false;
+        }
+    }
+
+    private void checkHeader(String name, String value) {
+        if (name == null || value == null) return;
+        if ("Content-Type".equalsIgnoreCase(name)) {
+            skipIfNeeded(policy.checkContentType(value));
+        } else if ("Content-Length".equalsIgnoreCase(name)) {
+            try {
+                skipIfNeeded(policy.checkContentLength(Long.parseLong(value.trim())));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+    }
+
+    private void skipIfNeeded(String reason) {
+        if (reason != null) capture.skip(reason);
+    }
+
+    private ServletOutputStream teeStream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new TeeOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    /**
+     * Charset declared by the content type; JSON and undeclared text default to UTF-8.
+     */
+    private Charset bodyCharset() {
+        String contentType = getContentType();
+        if (contentType != null) {
+            try {
+                Charset charset = MediaType.parseMediaType(contentType).getCharset();
+                if (charset != null) return charset;
+            } catch (Exception ignored) {
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private Charset getCharset() {
+        String encoding = getCharacterEncoding();
+        try {
+            return encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1;
+        } catch (Exception e) {
+            return StandardCharsets.ISO_8859_1;
+        }
+    }
+
+    private class TeeOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+        private boolean holdFlush;
+
+        TeeOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            capture.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            capture.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!holdFlush) delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            delegate.setWriteListener(listener);
+        }
+    }
+}
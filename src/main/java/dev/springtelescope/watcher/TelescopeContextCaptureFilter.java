@@ -1,5 +1,6 @@
 package dev.springtelescope.watcher;
 
+import dev.springtelescope.context.TelescopeBatchContext;
 import dev.springtelescope.context.TelescopeUserProvider;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -13,7 +14,8 @@ import java.io.IOException;
 /**
  * Captures user context as request attributes while the SecurityContext is still available.
  * Runs after the security filter chain (Order=2) so authentication has already been set up.
- * The TelescopeRequestFilter reads these attributes in its finally block.
+ * The TelescopeRequestFilter reads these attributes in its finally block, and
+ * the identity is cached on the batch for the entries recorded afterwards.
  */
 @Order(2)
 public class TelescopeContextCaptureFilter extends OncePerRequestFilter {
@@ -35,6 +37,8 @@ public class TelescopeContextCaptureFilter extends OncePerRequestFilter {
         if (tenantId != null) {
             request.setAttribute("telescope.tenantId", tenantId);
         }
+        // Authentication is settled here, so entries of the batch can reuse it
+        TelescopeBatchContext.setIdentity(new TelescopeBatchContext.Identity(userIdentifier, tenantId));
         chain.doFilter(request, response);
     }
 }
@@ -0,0 +1,63 @@
+package dev.springtelescope.watcher;
+
+import dev.springtelescope.TelescopeProperties;
+import dev.springtelescope.aggregate.TelescopeQueryStats;
+import dev.springtelescope.context.TelescopeUserProvider;
+import dev.springtelescope.sampling.TelescopeSampler;
+import dev.springtelescope.storage.TelescopeStorage;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps every {@link DataSource} bean with the {@link TelescopeJdbcWatcher}.
+ * <p>
+ * Telescope's own beans are looked up only after all singletons exist: with
+ * database storage the storage itself depends on the data source being wrapped.
+ */
+public class TelescopeDataSourcePostProcessor implements BeanPostProcessor, SmartInitializingSingleton {
+
+    private final TelescopeJdbcWatcher watcher = new TelescopeJdbcWatcher();
+    private final ObjectProvider<TelescopeStorage> storage;
+    private final ObjectProvider<TelescopeUserProvider> userProvider;
+    private final ObjectProvider<TelescopeSampler> sampler;
+    private final ObjectProvider<TelescopeQueryStats> queryStats;
+    private final ObjectProvider<TelescopeProperties> properties;
+
+    public TelescopeDataSourcePostProcessor(ObjectProvider<TelescopeStorage> storage,
+                                            ObjectProvider<TelescopeUserProvider> userProvider,
+                                            ObjectProvider<TelescopeSampler> sampler,
+                                            ObjectProvider<TelescopeQueryStats> queryStats,
+                                            ObjectProvider<TelescopeProperties> properties) {
+        this.storage = storage;
+        this.userProvider = userProvider;
+        this.sampler = sampler;
+        this.queryStats = queryStats;
+        this.properties = properties;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return watcher.wrap(dataSource);
+        }
+        return bean;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        TelescopeStorage telescopeStorage = storage.getIfAvailable();
+        TelescopeUserProvider telescopeUserProvider = userProvider.getIfAvailable();
+        TelescopeSampler telescopeSampler = sampler.getIfAvailable();
+        TelescopeQueryStats telescopeQueryStats = queryStats.getIfAvailable();
+        TelescopeProperties telescopeProperties = properties.getIfAvailable();
+        if (telescopeStorage == null || telescopeUserProvider == null || telescopeSampler == null
+                || telescopeQueryStats == null || telescopeProperties == null) {
+            return;
+        }
+        watcher.activate(telescopeStorage, telescopeUserProvider, telescopeSampler, telescopeQueryStats,
+                telescopeProperties.getQueries().getSlowThresholdMs());
+    }
+}
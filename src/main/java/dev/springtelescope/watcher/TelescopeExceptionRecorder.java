@@ -1,96 +1,108 @@
 package dev.springtelescope.watcher;
 
+import dev.springtelescope.aggregate.TelescopeExceptionGroups;
 import dev.springtelescope.context.TelescopeBatchContext;
 import dev.springtelescope.context.TelescopeUserProvider;
+import dev.springtelescope.id.TelescopeIds;
+import dev.springtelescope.model.TelescopeClock;
 import dev.springtelescope.model.TelescopeEntry;
 import dev.springtelescope.model.TelescopeEntryType;
+import dev.springtelescope.model.TelescopeExceptionContent;
+import dev.springtelescope.sampling.TelescopeSampler;
 import dev.springtelescope.storage.TelescopeStorage;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
-import java.time.LocalDateTime;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.UUID;
-
 public class TelescopeExceptionRecorder {
 
+    private static final boolean SERVLET_PRESENT = ClassUtils.isPresent(
+            "jakarta.servlet.http.HttpServletRequest", TelescopeExceptionRecorder.class.getClassLoader());
+
     private final TelescopeStorage storage;
     private final TelescopeUserProvider userProvider;
+    private final TelescopeSampler sampler;
+    private final TelescopeExceptionGroups groups;
 
-    public TelescopeExceptionRecorder(TelescopeStorage storage, TelescopeUserProvider userProvider) {
+    public TelescopeExceptionRecorder(TelescopeStorage storage, TelescopeUserProvider userProvider,
+                                      TelescopeSampler sampler, TelescopeExceptionGroups groups) {
         this.storage = storage;
         this.userProvider = userProvider;
+        this.sampler = sampler;
+        this.groups = groups;
     }
 
     public void record(Exception ex) {
+        String[] request = SERVLET_PRESENT ? CurrentRequest.methodAndUri() : null;
+        record(ex, request != null ? request[0] : null, request != null ? request[1] : null);
+    }
+
+    /**
+     * Records an exception of a request that is not bound to the current
+     * thread, e.g. a reactive request.
+     */
+    public void record(Exception ex, String method, String uri) {
         if (!storage.isEnabled()) return;
+        String batchId = TelescopeBatchContext.get();
+        StackTraceElement[] stack = ex.getStackTrace();
+        // Counted before sampling so group counts reflect every occurrence
+        TelescopeExceptionGroups.ExceptionGroup group = groups.record(ex, stack, batchId);
+        if (!sampler.sample(TelescopeEntryType.EXCEPTION, true)) return;
 
         try {
-            HttpServletRequest request = getCurrentRequest();
-
-            Map<String, Object> content = new LinkedHashMap<>();
-            content.put("class", ex.getClass().getName());
-            content.put("message", ex.getMessage());
-            content.put("trace", getStackTrace(ex));
-
-            if (ex.getStackTrace().length > 0) {
-                StackTraceElement first = ex.getStackTrace()[0];
-                content.put("file", first.getFileName());
-                content.put("line", first.getLineNumber());
-                content.put("location", first.getClassName() + "." + first.getMethodName());
+            long timestamp = TelescopeClock.nowMicros();
+            if (group.traceDue(timestamp, TelescopeStorage.TRACE_REFRESH_MICROS)) {
+                storage.storeTrace(group.getFingerprint(), group.getTrace(), timestamp);
             }
 
-            if (request != null) {
-                content.put("uri", request.getRequestURI());
-                content.put("method", request.getMethod());
+            String file = null;
+            int line = -1;
+            String location = null;
+            if (stack.length > 0) {
+                file = stack[0].getFileName();
+                line = stack[0].getLineNumber();
+                location = stack[0].getClassName() + "." + stack[0].getMethodName();
             }
 
-            if (ex.getCause() != null) {
-                content.put("cause", ex.getCause().getClass().getName() + ": " + ex.getCause().getMessage());
-            }
+            String cause = ex.getCause() != null
+                    ? ex.getCause().getClass().getName() + ": " + ex.getCause().getMessage() : null;
 
-            String userIdentifier = null;
-            String tenantId = null;
-            try {
-                userIdentifier = userProvider.getCurrentUserIdentifier();
-                tenantId = userProvider.getCurrentTenantId();
-            } catch (Exception ignored) {
-            }
+            TelescopeExceptionContent content = new TelescopeExceptionContent(ex.getClass().getName(),
+                    ex.getMessage(), group.getFingerprint(), file, line, location,
+                    uri, method, cause);
+
+            TelescopeBatchContext.Identity identity = TelescopeBatchContext.identity(userProvider);
 
-            storage.store(TelescopeEntry.builder()
-                    .uuid(UUID.randomUUID().toString())
+            storage.record(TelescopeEntry.builder()
+                    .uuid(TelescopeIds.next())
                     .type(TelescopeEntryType.EXCEPTION)
-                    .createdAt(LocalDateTime.now())
-                    .batchId(TelescopeBatchContext.get())
-                    .content(content)
-                    .userIdentifier(userIdentifier)
-                    .tenantId(tenantId)
+                    .timestamp(timestamp)
+                    .batchId(batchId)
+                    .typedContent(content)
+                    .userIdentifier(identity.userIdentifier())
+                    .tenantId(identity.tenantId())
+                    .sampleRate(sampler.getRate(TelescopeEntryType.EXCEPTION, true))
                     .build());
         } catch (Exception ignored) {
         }
     }
 
-    private String getStackTrace(Exception ex) {
-        StringWriter sw = new StringWriter();
-        ex.printStackTrace(new PrintWriter(sw));
-        String trace = sw.toString();
-        if (trace.length() > 5000) {
-            trace = trace.substring(0, 5000) + "\n... [truncated]";
-        }
-        return trace;
-    }
-
-    private HttpServletRequest getCurrentRequest() {
-        try {
-            ServletRequestAttributes attrs =
-                    (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
-            return attrs != null ? attrs.getRequest() : null;
-        } catch (Exception e) {
-            return null;
+    /**
+     * Servlet API access, kept in its own class so the recorder loads without
+     * the servlet API (WebFlux applications).
+     */
+    private static final class CurrentRequest {
+        static String[] methodAndUri() {
+            try {
+                ServletRequestAttributes attrs =
+                        (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+                if (attrs == null) return null;
+                HttpServletRequest request = attrs.getRequest();
+                return new String[]{request.getMethod(), request.getRequestURI()};
+            } catch (Exception e) {
+                return null;
+            }
         }
     }
 }
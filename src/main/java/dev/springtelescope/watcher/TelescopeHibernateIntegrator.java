@@ -5,15 +5,18 @@ import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.event.service.spi.EventListenerRegistry;
 import org.hibernate.event.spi.EventType;
 import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.mapping.PersistentClass;
 import org.hibernate.service.spi.SessionFactoryServiceRegistry;
 
 /**
  * Hibernate SPI integrator that registers the {@link TelescopeModelListener}
- * for entity change tracking (INSERT, UPDATE, DELETE).
+ * for entity change tracking (INSERT, UPDATE, DELETE), and hands the
+ * table-to-entity mapping to the {@link TelescopeNPlusOneDetector}.
  * <p>
  * This integrator is discovered via {@code META-INF/services/org.hibernate.integrator.spi.Integrator}.
- * It only registers listeners if {@link TelescopeModelListener#isConfigured()} returns true,
- * meaning the Spring auto-configuration has initialized it with a storage and user provider.
+ * The session factory is usually built before the Spring auto-configuration has
+ * configured the listener, so it is always registered and records nothing until
+ * {@link TelescopeModelListener#isConfigured()} returns true.
  */
 public class TelescopeHibernateIntegrator implements Integrator {
 
@@ -21,8 +24,11 @@ public class TelescopeHibernateIntegrator implements Integrator {
     @Override
     public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
                           SessionFactoryServiceRegistry serviceRegistry) {
-        if (!TelescopeModelListener.isConfigured()) {
-            return;
+        for (PersistentClass entity : metadata.getEntityBindings()) {
+            if (entity.getTable() == null || entity.getEntityName() == null) continue;
+            String name = entity.getEntityName();
+            TelescopeNPlusOneDetector.registerEntityTable(entity.getTable().getName(),
+                    name.substring(name.lastIndexOf('.') + 1));
         }
 
         EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
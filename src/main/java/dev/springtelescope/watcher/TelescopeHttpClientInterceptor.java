@@ -0,0 +1,133 @@
+package dev.springtelescope.watcher;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Times calls made with {@code RestTemplate} and {@code RestClient}.
+ * <p>
+ * The call is recorded when the response is closed, which both clients do
+ * once the body has been read, so the duration and response size cover the
+ * whole body. An interceptor created without a watcher passes calls through
+ * until {@link #activate} is called.
+ */
+public class TelescopeHttpClientInterceptor implements ClientHttpRequestInterceptor {
+
+    private final String client;
+    private volatile TelescopeHttpClientWatcher watcher;
+
+    public TelescopeHttpClientInterceptor(String client) {
+        this.client = client;
+    }
+
+    public TelescopeHttpClientInterceptor(TelescopeHttpClientWatcher watcher, String client) {
+        this.client = client;
+        this.watcher = watcher;
+    }
+
+    public void activate(TelescopeHttpClientWatcher watcher) {
+        this.watcher = watcher;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        TelescopeHttpClientWatcher current = watcher;
+        TelescopeHttpClientWatcher.Call call = current != null
+                ? current.start(client, request.getMethod().name(), request.getURI(), null, body.length, null)
+                : null;
+        if (call == null) {
+            return execution.execute(request, body);
+        }
+
+        ClientHttpResponse response;
+        int status;
+        try {
+            response = execution.execute(request, body);
+            status = response.getStatusCode().value();
+        } catch (IOException | RuntimeException e) {
+            call.finish(0, 0, e);
+            throw e;
+        }
+        call.headersReceived();
+        return new CountingResponse(response, status, call);
+    }
+
+    /**
+     * Counts the body bytes read and finishes the call when closed.
+     */
+    private static final class CountingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final int status;
+        private final TelescopeHttpClientWatcher.Call call;
+        private InputStream body;
+        private long bytes;
+
+        CountingResponse(ClientHttpResponse delegate, int status, TelescopeHttpClientWatcher.Call call) {
+            this.delegate = delegate;
+            this.status = status;
+            this.call = call;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new FilterInputStream(delegate.getBody()) {
+                    @Override
+                    public int read() throws IOException {
+                        int b = super.read();
+                        if (b != -1) bytes++;
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] buffer, int offset, int length) throws IOException {
+                        int n = super.read(buffer, offset, length);
+                        if (n > 0) bytes += n;
+                        return n;
+                    }
+
+                    @Override
+                    public long skip(long n) throws IOException {
+                        long skipped = super.skip(n);
+                        if (skipped > 0) bytes += skipped;
+                        return skipped;
+                    }
+                };
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                call.finish(status, bytes, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package dev.springtelescope.watcher;
+
+import dev.springtelescope.aggregate.TelescopeHttpClientStats;
+import dev.springtelescope.context.TelescopeBatchContext;
+import dev.springtelescope.context.TelescopeRequestTimings;
+import dev.springtelescope.context.TelescopeUserProvider;
+import dev.springtelescope.id.TelescopeIds;
+import dev.springtelescope.model.TelescopeEntry;
+import dev.springtelescope.model.TelescopeEntryType;
+import dev.springtelescope.sampling.TelescopeSampler;
+import dev.springtelescope.storage.TelescopeStorage;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Records outgoing HTTP calls as {@link TelescopeEntryType#HTTP_CLIENT}
+ * entries and counts them per host in {@link TelescopeHttpClientStats}.
+ * <p>
+ * The client integrations ({@link TelescopeHttpClientInterceptor} for
+ * {@code RestTemplate} and {@code RestClient}, {@link TelescopeWebClientFilter}
+ * for {@code WebClient}) open a {@link Call} when the request is sent, mark
+ * when the response headers arrive and finish it once the response body has
+ * been read or closed. The batch is captured when the call starts, so the
+ * entry belongs to the request that made the call even if the response
+ * completes on another thread.
+ * <p>
+ * DNS resolution, connect and TLS handshake happen inside the underlying HTTP
+ * library and are not visible to Spring's interceptors; they are part of
+ * {@code timeToHeaders}, the time from sending the request to receiving the
+ * response headers.
+ */
+public class TelescopeHttpClientWatcher {
+
+    // Numbers, UUIDs and long hex or token segments
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            "\\d+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}"
+                    + "|(?=.*\\d)[0-9a-fA-F]{16,}|(?=.*\\d)(?=.*[a-zA-Z])[A-Za-z0-9_-]{24,}");
+
+    private final TelescopeStorage storage;
+    private final TelescopeUserProvider userProvider;
+    private final TelescopeSampler sampler;
+    private final TelescopeHttpClientStats stats;
+
+    public TelescopeHttpClientWatcher(TelescopeStorage storage, TelescopeUserProvider userProvider,
+                                      TelescopeSampler sampler, TelescopeHttpClientStats stats) {
+        this.storage = storage;
+        this.userProvider = userProvider;
+        this.sampler = sampler;
+        this.stats = stats;
+    }
+
+    /**
+     * Opens a call.
+     *
+     * @param uriTemplate  the template the URI was expanded from, if the client exposes it
+     * @param requestBytes request body size, or a negative value when it is unknown
+     * @param batch        the batch to record under; the current thread's batch if null
+     * @return null when Telescope is disabled
+     */
+    public Call start(String client, String method, URI uri, String uriTemplate, long requestBytes,
+                      TelescopeBatchContext.Snapshot batch) {
+        if (!storage.isEnabled()) return null;
+        if (batch == null) {
+            batch = TelescopeBatchContext.capture(userProvider);
+        }
+        TelescopeBatchContext.Identity identity = batch != null ? batch.identity()
+                : TelescopeBatchContext.identity(userProvider);
+        return new Call(client, method, uri, uriTemplate, requestBytes,
+                batch != null ? batch.batchId() : null,
+                batch != null ? batch.timings() : null,
+                identity != null ? identity : TelescopeBatchContext.Identity.NONE);
+    }
+
+    /**
+     * Host and, when not the scheme's default, port of a URI.
+     */
+    static String hostOf(URI uri) {
+        String host = uri.getHost();
+        if (host == null) return "unknown";
+        int port = uri.getPort();
+        if (port == -1 || (port == 80 && "http".equals(uri.getScheme()))
+                || (port == 443 && "https".equals(uri.getScheme()))) {
+            return host;
+        }
+        return host + ":" + port;
+    }
+
+    /**
+     * Replaces identifier-like path segments with {@code {id}}, so calls to
+     * the same endpoint group together when the client does not expose the
+     * URI template.
+     */
+    static String templateOf(String path) {
+        if (path == null || path.isEmpty()) return "/";
+        String[] segments = path.split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            if (!segments[i].isEmpty() && ID_SEGMENT.matcher(segments[i]).matches()) {
+                segments[i] = "{id}";
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    /**
+     * The path part of a URI template, which may include the base URL and
+     * query of the client.
+     */
+    static String pathOfTemplate(String uriTemplate) {
+        String template = uriTemplate;
+        int scheme = template.indexOf("://");
+        if (scheme >= 0) {
+            int path = template.indexOf('/', scheme + 3);
+            template = path >= 0 ? template.substring(path) : "/";
+        }
+        int query = template.indexOf('?');
+        return query >= 0 ? template.substring(0, query) : template;
+    }
+
+    private void record(Call call, int status, long responseBytes, long nanos, Throwable error) {
+        if (call.timings != null) {
+            call.timings.add(TelescopeEntryType.HTTP_CLIENT, nanos);
+        }
+        String host = hostOf(call.uri);
+        stats.record(host, status, call.requestBytes, responseBytes, nanos, call.batchId);
+
+        boolean failed = error != null || status >= 500;
+        if (!sampler.sample(TelescopeEntryType.HTTP_CLIENT, failed)) return;
+
+        try {
+            String path = call.uri.getRawPath();
+            Map<String, Object> content = new LinkedHashMap<>();
+            content.put("client", call.client);
+            content.put("method", call.method);
+            content.put("host", host);
+            content.put("path", path);
+            content.put("uriTemplate", call.uriTemplate != null ? pathOfTemplate(call.uriTemplate) : templateOf(path));
+            content.put("status", status > 0 ? status : null);
+            content.put("requestBytes", call.requestBytes >= 0 ? call.requestBytes : null);
+            content.put("responseBytes", status > 0 ? responseBytes : null);
+            if (call.headersNanos > 0) {
+                content.put("timeToHeaders", TelescopeRequestTimings.millis(call.headersNanos));
+            }
+            content.put("duration", TelescopeRequestTimings.millis(nanos));
+            if (error != null) {
+                content.put("error", error.getClass().getName()
+                        + (error.getMessage() != null ? ": " + error.getMessage() : ""));
+            }
+
+            List<String> tags = new ArrayList<>();
+            tags.add("http-client");
+            tags.add("host:" + host);
+            if (error != null) tags.add("failed");
+            else if (status >= 500) tags.add("error");
+
+            storage.record(TelescopeEntry.builder()
+                    .uuid(TelescopeIds.next())
+                    .type(TelescopeEntryType.HTTP_CLIENT)
+                    .batchId(call.batchId)
+                    .content(content)
+                    .userIdentifier(call.identity.userIdentifier())
+                    .tenantId(call.identity.tenantId())
+                    .tags(tags)
+                    .sampleRate(sampler.getRate(TelescopeEntryType.HTTP_CLIENT, failed))
+                    .build());
+        } catch (Exception ignored) {
+        }
+    }
+
+    /**
+     * One outgoing call, from sending the request to the end of the response.
+     * Only the first {@link #finish} records; later calls are ignored.
+     */
+    public final class Call {
+        private final String client;
+        private final String method;
+        private final URI uri;
+        private final String uriTemplate;
+        private final long requestBytes;
+        private final String batchId;
+        private final TelescopeRequestTimings timings;
+        private final TelescopeBatchContext.Identity identity;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile long headersNanos;
+
+        private Call(String client, String method, URI uri, String uriTemplate, long requestBytes,
+                     String batchId, TelescopeRequestTimings timings, TelescopeBatchContext.Identity identity) {
+            this.client = client;
+            this.method = method;
+            this.uri = uri;
+            this.uriTemplate = uriTemplate;
+            this.requestBytes = requestBytes;
+            this.batchId = batchId;
+            this.timings = timings;
+            this.identity = identity;
+        }
+
+        /**
+         * Marks the arrival of the response headers.
+         */
+        public void headersReceived() {
+            if (headersNanos == 0) headersNanos = System.nanoTime() - startNanos;
+        }
+
+        public boolean hasResponse() {
+            return headersNanos > 0;
+        }
+
+        /**
+         * Records the call.
+         *
+         * @param status the response status, or 0 when no response was received
+         * @param error  the failure that ended the call, if any
+         */
+        public void finish(int status, long responseBytes, Throwable error) {
+            if (!finished.compareAndSet(false, true)) return;
+            try {
+                record(this, status, responseBytes, System.nanoTime() - startNanos, error);
+            } catch (Exception ignored) {
+            }
+        }
+    }
+}
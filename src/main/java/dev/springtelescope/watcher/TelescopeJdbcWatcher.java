@@ -0,0 +1,361 @@
+package dev.springtelescope.watcher;
+
+import dev.springtelescope.aggregate.TelescopeQueryStats;
+import dev.springtelescope.context.TelescopeBatchContext;
+import dev.springtelescope.context.TelescopeUserProvider;
+import dev.springtelescope.id.TelescopeIds;
+import dev.springtelescope.model.TelescopeEntry;
+import dev.springtelescope.model.TelescopeEntryType;
+import dev.springtelescope.model.TelescopeQueryContent;
+import dev.springtelescope.sampling.TelescopeSampler;
+import dev.springtelescope.storage.TelescopeStorage;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.*;
+
+/**
+ * JDBC-level query watcher. Wraps a {@link DataSource} so every statement is
+ * timed at execution, whichever library issued it (JPA, {@code JdbcTemplate},
+ * jOOQ, MyBatis). Every execution feeds the per-fingerprint
+ * {@link TelescopeQueryStats}; each sampled QUERY entry carries the execution time, rows affected or
+ * fetched, the batch size and, for the first statement on a connection, how
+ * long the connection took to acquire. Statements slower than
+ * {@code telescope.queries.slow-threshold-ms} are tagged {@code slow}.
+ * <p>
+ * Rows fetched are counted as the result set is read, so a SELECT is recorded
+ * once its result set has been read to the end or closed, and at the latest
+ * when its statement or connection is closed.
+ * <p>
+ * Connections and statements that are already watched are not wrapped again,
+ * so a routing, lazy or transaction-aware data source whose target is also a
+ * wrapped bean records each statement once.
+ * <p>
+ * The data source is wrapped during bean initialization, before Telescope's
+ * own beans exist; statements pass through untimed until {@link #activate} is
+ * called once the context has started.
+ */
+public class TelescopeJdbcWatcher {
+
+    private volatile long slowThresholdNanos;
+    private volatile TelescopeStorage storage;
+    private volatile TelescopeUserProvider userProvider;
+    private volatile TelescopeSampler sampler;
+    private volatile TelescopeQueryStats queryStats;
+
+    public void activate(TelescopeStorage storage, TelescopeUserProvider userProvider, TelescopeSampler sampler,
+                         TelescopeQueryStats queryStats, long slowThresholdMs) {
+        this.slowThresholdNanos = slowThresholdMs * 1_000_000;
+        this.queryStats = queryStats;
+        this.userProvider = userProvider;
+        this.sampler = sampler;
+        this.storage = storage;
+    }
+
+    /**
+     * Returns a proxy of the data source that times every statement. Class-based
+     * proxying keeps the concrete type (e.g. {@code HikariDataSource}) injectable.
+     */
+    public DataSource wrap(DataSource dataSource) {
+        if (dataSource instanceof Wrapped) return dataSource;
+        ProxyFactory factory = new ProxyFactory(dataSource);
+        factory.setProxyTargetClass(!Modifier.isFinal(dataSource.getClass().getModifiers()));
+        factory.addInterface(DataSource.class);
+        factory.addInterface(Wrapped.class);
+        factory.addAdvice((MethodInterceptor) invocation -> {
+            if (!"getConnection".equals(invocation.getMethod().getName()) || !isActive()) {
+                return invocation.proceed();
+            }
+            long start = System.nanoTime();
+            Connection connection = (Connection) invocation.proceed();
+            return connection != null ? wrapConnection(connection, System.nanoTime() - start) : null;
+        });
+        return (DataSource) factory.getProxy(dataSource.getClass().getClassLoader());
+    }
+
+    private boolean isActive() {
+        TelescopeStorage s = storage;
+        return s != null && s.isEnabled();
+    }
+
+    private Connection wrapConnection(Connection connection, long waitNanos) {
+        if (isWatched(connection, ConnectionHandler.class)) return connection;
+        return (Connection) Proxy.newProxyInstance(TelescopeJdbcWatcher.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection, waitNanos));
+    }
+
+    private static boolean isWatched(Object jdbcObject, Class<? extends InvocationHandler> handlerType) {
+        return Proxy.isProxyClass(jdbcObject.getClass())
+                && handlerType.isInstance(Proxy.getInvocationHandler(jdbcObject));
+    }
+
+    private static boolean isIgnored(String sql) {
+        if (sql == null) return false;
+        String trimmed = sql.trim().toLowerCase();
+        return trimmed.startsWith("select 1") || trimmed.startsWith("select version")
+                || trimmed.contains("telescope_entries") || trimmed.contains("telescope_traces");
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    void record(String sql, long nanos, long rows, int batchSize, long waitNanos, Throwable error) {
+        TelescopeBatchContext.addTime(TelescopeEntryType.QUERY, nanos);
+        if (sql == null || !isActive()) return;
+        String batchId = TelescopeBatchContext.get();
+        String fingerprint = queryStats.record(sql, nanos, batchId);
+        TelescopeBatchContext.addQuery(fingerprint, sql, nanos);
+        boolean slow = nanos >= slowThresholdNanos;
+        boolean notable = slow || error != null;
+        if (!sampler.sample(TelescopeEntryType.QUERY, notable)) return;
+
+        try {
+            TelescopeQueryContent content = new TelescopeQueryContent(sql.trim(), getSqlType(sql.trim().toLowerCase()),
+                    fingerprint, 0, nanos, rows, batchSize, waitNanos, slow,
+                    error != null ? error.getMessage() : null, null);
+
+            List<String> tags = new ArrayList<>();
+            if (slow) tags.add("slow");
+            if (batchSize > 0) tags.add("batch");
+            if (error != null) tags.add("failed");
+
+            TelescopeBatchContext.Identity identity = TelescopeBatchContext.identity(userProvider);
+
+            storage.record(TelescopeEntry.builder()
+                    .uuid(TelescopeIds.next())
+                    .type(TelescopeEntryType.QUERY)
+                    .batchId(batchId)
+                    .typedContent(content)
+                    .userIdentifier(identity.userIdentifier())
+                    .tenantId(identity.tenantId())
+                    .tags(tags)
+                    .sampleRate(sampler.getRate(TelescopeEntryType.QUERY, notable))
+                    .build());
+        } catch (Exception ignored) {
+        }
+    }
+
+    private String getSqlType(String sql) {
+        if (sql.startsWith("select")) return "SELECT";
+        if (sql.startsWith("insert")) return "INSERT";
+        if (sql.startsWith("update")) return "UPDATE";
+        if (sql.startsWith("delete")) return "DELETE";
+        if (sql.startsWith("create") || sql.startsWith("alter") || sql.startsWith("drop")) return "DDL";
+        return "OTHER";
+    }
+
+    /**
+     * Marker for data sources that are already wrapped.
+     */
+    public interface Wrapped {
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+        // Statements holding a SELECT whose result set has not been read to the end
+        private final List<StatementHandler> pending = new ArrayList<>();
+        private long waitNanos;
+
+        ConnectionHandler(Connection target, long waitNanos) {
+            this.target = target;
+            this.waitNanos = waitNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                flushPending();
+            }
+            Object result = TelescopeJdbcWatcher.invoke(target, method, args);
+            if (result instanceof Statement statement && !isWatched(statement, StatementHandler.class)
+                    && (name.equals("prepareStatement") || name.equals("prepareCall") || name.equals("createStatement"))) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                if (isIgnored(sql)) return result;
+                return Proxy.newProxyInstance(TelescopeJdbcWatcher.class.getClassLoader(),
+                        new Class<?>[]{method.getReturnType()}, new StatementHandler(this, statement, sql));
+            }
+            return result;
+        }
+
+        /**
+         * The acquisition wait is reported once, on the first statement executed.
+         */
+        long takeWait() {
+            long wait = waitNanos;
+            waitNanos = 0;
+            return wait;
+        }
+
+        private void flushPending() {
+            for (StatementHandler statement : new ArrayList<>(pending)) {
+                statement.flushPending();
+            }
+            pending.clear();
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+
+        private final ConnectionHandler connection;
+        private final Statement target;
+        private final String sql;
+        private String batchSql;
+        private int batchSize;
+
+        // A SELECT waiting for its result set to be read
+        private String pendingSql;
+        private long pendingNanos;
+        private long pendingRows;
+        private long pendingWait;
+        private ResultSet resultSet;
+        private ResultSet resultSetProxy;
+
+        StatementHandler(ConnectionHandler connection, Statement target, String sql) {
+            this.connection = connection;
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "addBatch" -> {
+                    if (args != null && args.length == 1 && batchSql == null) batchSql = (String) args[0];
+                    batchSize++;
+                    return TelescopeJdbcWatcher.invoke(target, method, args);
+                }
+                case "clearBatch" -> {
+                    batchSql = null;
+                    batchSize = 0;
+                    return TelescopeJdbcWatcher.invoke(target, method, args);
+                }
+                case "executeBatch", "executeLargeBatch" -> {
+                    return executeBatch(method, args);
+                }
+                case "executeQuery", "executeUpdate", "executeLargeUpdate", "execute" -> {
+                    return execute(method, args);
+                }
+                case "getResultSet" -> {
+                    return wrapResultSet(TelescopeJdbcWatcher.invoke(target, method, args));
+                }
+                case "close" -> {
+                    flushPending();
+                    return TelescopeJdbcWatcher.invoke(target, method, args);
+                }
+                default -> {
+                    return TelescopeJdbcWatcher.invoke(target, method, args);
+                }
+            }
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            flushPending();
+            String statementSql = args != null && args.length > 0 && args[0] instanceof String s ? s : sql;
+            if (statementSql != sql && isIgnored(statementSql)) {
+                return TelescopeJdbcWatcher.invoke(target, method, args);
+            }
+            long wait = connection.takeWait();
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = TelescopeJdbcWatcher.invoke(target, method, args);
+            } catch (Throwable e) {
+                record(statementSql, System.nanoTime() - start, -1, 0, wait, e);
+                throw e;
+            }
+            long nanos = System.nanoTime() - start;
+
+            if (result instanceof ResultSet || Boolean.TRUE.equals(result)) {
+                pendingSql = statementSql;
+                pendingNanos = nanos;
+                pendingRows = 0;
+                pendingWait = wait;
+                connection.pending.add(this);
+                return result instanceof ResultSet rs ? wrapResultSet(rs) : result;
+            }
+            long rows = result instanceof Number n ? n.longValue() : safeUpdateCount();
+            record(statementSql, nanos, rows, 0, wait, null);
+            return result;
+        }
+
+        private Object executeBatch(Method method, Object[] args) throws Throwable {
+            flushPending();
+            String statementSql = sql != null ? sql : batchSql;
+            int size = batchSize;
+            batchSql = null;
+            batchSize = 0;
+            long wait = connection.takeWait();
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = TelescopeJdbcWatcher.invoke(target, method, args);
+            } catch (Throwable e) {
+                record(statementSql, System.nanoTime() - start, -1, size, wait, e);
+                throw e;
+            }
+            long nanos = System.nanoTime() - start;
+            long rows = 0;
+            if (result instanceof int[] counts) {
+                for (int c : counts) if (c > 0) rows += c;
+            } else if (result instanceof long[] counts) {
+                for (long c : counts) if (c > 0) rows += c;
+            }
+            record(statementSql, nanos, rows, size, wait, null);
+            return result;
+        }
+
+        private long safeUpdateCount() {
+            try {
+                return target.getUpdateCount();
+            } catch (Exception e) {
+                return -1;
+            }
+        }
+
+        private Object wrapResultSet(Object result) {
+            if (!(result instanceof ResultSet rs) || pendingSql == null) return result;
+            if (rs == resultSet) return resultSetProxy;
+            resultSet = rs;
+            resultSetProxy = (ResultSet) Proxy.newProxyInstance(TelescopeJdbcWatcher.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, (p, m, a) -> {
+                        Object value = TelescopeJdbcWatcher.invoke(rs, m, a);
+                        String name = m.getName();
+                        if (name.equals("next")) {
+                            if (Boolean.TRUE.equals(value)) pendingRows++;
+                            else flushPending();
+                        } else if (name.equals("close")) {
+                            flushPending();
+                        }
+                        return value;
+                    });
+            return resultSetProxy;
+        }
+
+        private void flushPending() {
+            if (pendingSql == null) return;
+            String pending = pendingSql;
+            pendingSql = null;
+            resultSet = null;
+            resultSetProxy = null;
+            connection.pending.remove(this);
+            record(pending, pendingNanos, pendingRows, 0, pendingWait, null);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package dev.springtelescope.watcher;
+
+import dev.springtelescope.model.TelescopeEntry;
+import dev.springtelescope.model.TelescopeLogGroupContent;
+import dev.springtelescope.storage.TelescopeStorage;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups log events by logger, level and raw message pattern over a time
+ * window, so a log storm produces one entry per pattern instead of one per
+ * line.
+ * <p>
+ * The first event of a window is stored as the group's representative entry;
+ * later events only update its {@link TelescopeLogGroupContent}. When a window
+ * closes, groups with more than one occurrence are handed to
+ * {@link TelescopeStorage#update(TelescopeEntry)} so storages that persisted
+ * the first version see the final counts.
+ */
+public class TelescopeLogAggregator {
+
+    private final long windowMicros;
+    private final int maxGroups;
+    private final int maxSamples;
+    private final Map<String, Group> groups = new ConcurrentHashMap<>();
+    private volatile long nextSweep;
+
+    public TelescopeLogAggregator(long windowMs, int maxGroups, int maxSamples) {
+        this.windowMicros = TimeUnit.MILLISECONDS.toMicros(Math.max(1, windowMs));
+        this.maxGroups = Math.max(1, maxGroups);
+        this.maxSamples = maxSamples;
+    }
+
+    public int getMaxSamples() {
+        return maxSamples;
+    }
+
+    static String keyOf(String logger, String level, String pattern) {
+        return logger + '|' + level + '|' + pattern;
+    }
+
+    /**
+     * Counts the event in the open group for its key.
+     *
+     * @return false if there is no open group and a new entry must be stored
+     */
+    public boolean join(String key, long timestampMicros, Object[] arguments) {
+        Group group = groups.get(key);
+        if (group == null || timestampMicros >= group.closesAt) return false;
+        group.content.add(timestampMicros, arguments);
+        return true;
+    }
+
+    /**
+     * Registers a freshly stored entry as the representative of its group,
+     * closing the expired group it replaces. Beyond the group limit the entry
+     * simply stays on its own.
+     */
+    public void open(TelescopeStorage storage, String key, TelescopeEntry entry, TelescopeLogGroupContent content) {
+        if (groups.size() >= maxGroups && !groups.containsKey(key)) {
+            sweep(storage, content.getFirstSeen());
+            if (groups.size() >= maxGroups) return;
+        }
+        Group previous = groups.put(key, new Group(entry, content, content.getFirstSeen() + windowMicros));
+        if (previous != null) close(storage, previous);
+    }
+
+    /**
+     * Closes every group whose window ended before {@code nowMicros}. Runs at
+     * most once per window unless the group limit forces it.
+     */
+    public void sweep(TelescopeStorage storage, long nowMicros) {
+        if (nowMicros < nextSweep && groups.size() < maxGroups) return;
+        nextSweep = nowMicros + windowMicros;
+        Iterator<Map.Entry<String, Group>> it = groups.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Group> e = it.next();
+            if (e.getValue().closesAt <= nowMicros && groups.remove(e.getKey(), e.getValue())) {
+                close(storage, e.getValue());
+            }
+        }
+    }
+
+    private void close(TelescopeStorage storage, Group group) {
+        if (group.content.getOccurrences() > 1) {
+            try {
+                storage.update(group.entry);
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    private record Group(TelescopeEntry entry, TelescopeLogGroupContent content, long closesAt) {
+    }
+}
@@ -3,79 +3,286 @@ package dev.springtelescope.watcher;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.ThrowableProxyUtil;
-import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import dev.springtelescope.TelescopeProperties;
 import dev.springtelescope.context.TelescopeBatchContext;
 import dev.springtelescope.context.TelescopeUserProvider;
+import dev.springtelescope.id.TelescopeIds;
+import dev.springtelescope.model.TelescopeClock;
 import dev.springtelescope.model.TelescopeEntry;
 import dev.springtelescope.model.TelescopeEntryType;
+import dev.springtelescope.model.TelescopeLogContent;
+import dev.springtelescope.model.TelescopeLogGroupContent;
+import dev.springtelescope.sampling.TelescopeSampler;
 import dev.springtelescope.storage.TelescopeStorage;
 
-import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
-public class TelescopeLogAppender extends AppenderBase<ILoggingEvent> {
+/**
+ * Captures application log events as LOG entries.
+ * <p>
+ * Built on {@link UnsynchronizedAppenderBase} so logging threads never
+ * contend on the appender. The logging thread only filters, samples and
+ * snapshots what is bound to it (thread name, MDC, batch, user); message
+ * formatting, stack rendering and entry creation happen on a single
+ * background writer fed through a bounded lock-free queue. When the queue is
+ * full the event is dropped, or recorded on the logging thread with
+ * {@link TelescopeProperties.LogOverflowPolicy#CALLER_RUNS}.
+ * <p>
+ * Inside a tail-sampled batch the snapshot is held by the batch as a
+ * {@link TelescopeBatchContext.Deferred} entry and handed to the writer only
+ * if the batch is kept, so events of discarded batches are never formatted.
+ * <p>
+ * With a {@link TelescopeLogAggregator} set, repeated events are folded into
+ * one entry per logger and message pattern and window.
+ * <p>
+ * Messages are formatted on the writer, so a mutable argument changed right
+ * after the log call may be rendered with its new state.
+ */
+public class TelescopeLogAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private static final int MAX_CACHED_LOGGERS = 4096;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
 
     private static volatile TelescopeStorage storage;
     private static volatile TelescopeUserProvider userProvider;
+    private static volatile TelescopeSampler sampler = TelescopeSampler.keepAll();
     private static volatile String basePackage = "";
+    private static final ConcurrentHashMap<String, Boolean> ACCEPTED_LOGGERS = new ConcurrentHashMap<>();
+
+    private final ConcurrentLinkedQueue<PendingEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private boolean async = true;
+    private int queueSize = 8192;
+    private TelescopeProperties.LogOverflowPolicy overflowPolicy = TelescopeProperties.LogOverflowPolicy.DROP;
+    private TelescopeLogAggregator aggregator;
+    private volatile Thread writer;
+    private volatile boolean writerParked;
 
-    public static void configure(TelescopeStorage storage, TelescopeUserProvider userProvider, String basePackage) {
+    public static void configure(TelescopeStorage storage, TelescopeUserProvider userProvider,
+                                 TelescopeSampler sampler, String basePackage) {
         TelescopeLogAppender.storage = storage;
         TelescopeLogAppender.userProvider = userProvider;
+        TelescopeLogAppender.sampler = (sampler != null) ? sampler : TelescopeSampler.keepAll();
         TelescopeLogAppender.basePackage = (basePackage != null) ? basePackage : "";
+        ACCEPTED_LOGGERS.clear();
+    }
+
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = Math.max(1, queueSize);
+    }
+
+    public void setOverflowPolicy(TelescopeProperties.LogOverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Groups repeated events by logger and message pattern; {@code null}
+     * records every event as its own entry.
+     */
+    public void setAggregator(TelescopeLogAggregator aggregator) {
+        this.aggregator = aggregator;
+    }
+
+    /**
+     * Events discarded because the hand-off queue was full.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) return;
+        if (async) {
+            Thread thread = new Thread(this::drain, "telescope-log-writer");
+            thread.setDaemon(true);
+            writer = thread;
+            super.start();
+            thread.start();
+        } else {
+            super.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) return;
+        super.stop();
+        Thread thread = writer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer = null;
+        }
     }
 
     @Override
     protected void append(ILoggingEvent event) {
+        TelescopeStorage storage = TelescopeLogAppender.storage;
         if (storage == null || !storage.isEnabled()) return;
 
         if (event.getLevel().toInt() < Level.INFO_INT) return;
 
-        String loggerName = event.getLoggerName();
+        if (!accepts(event.getLoggerName())) return;
 
-        // Skip telescope's own logs to avoid infinite loops
-        if (loggerName.startsWith("dev.springtelescope")) return;
-
-        // Only capture application logs if basePackage is configured
-        if (!basePackage.isEmpty() && !loggerName.startsWith(basePackage)) return;
+        boolean error = event.getLevel().toInt() >= Level.ERROR_INT;
+        if (!sampler.sample(TelescopeEntryType.LOG, error)) return;
 
         try {
-            Map<String, Object> content = new LinkedHashMap<>();
-            content.put("level", event.getLevel().toString());
-            content.put("message", event.getFormattedMessage());
-            content.put("logger", loggerName);
-            content.put("thread", event.getThreadName());
-
-            if (event.getThrowableProxy() != null) {
-                content.put("exception", ThrowableProxyUtil.asString(event.getThrowableProxy()));
-            }
+            PendingEvent pending = capture(event, error);
+            if (TelescopeBatchContext.defer(rate -> submit(storage, pending.scaled(rate)))) return;
+            submit(storage, pending);
+        } catch (Exception ignored) {
+        }
+    }
 
-            if (event.getMDCPropertyMap() != null && !event.getMDCPropertyMap().isEmpty()) {
-                content.put("mdc", new LinkedHashMap<>(event.getMDCPropertyMap()));
+    /**
+     * Hands an event to the writer, or writes it on the calling thread when
+     * there is no writer or the queue is full with {@code CALLER_RUNS}.
+     */
+    private void submit(TelescopeStorage storage, PendingEvent pending) {
+        Thread writer = this.writer;
+        if (writer == null) {
+            write(storage, pending);
+            return;
+        }
+        if (queued.incrementAndGet() > queueSize) {
+            queued.decrementAndGet();
+            if (overflowPolicy == TelescopeProperties.LogOverflowPolicy.CALLER_RUNS) {
+                write(storage, pending);
+            } else {
+                dropped.increment();
             }
+            return;
+        }
+        queue.offer(pending);
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Accept/reject decision for a logger name, cached because the set of
+     * logger names in an application is small and stable.
+     */
+    static boolean accepts(String loggerName) {
+        Boolean cached = ACCEPTED_LOGGERS.get(loggerName);
+        if (cached != null) return cached;
+
+        // Skip telescope's own logs to avoid infinite loops, and only capture
+        // application logs if basePackage is configured
+        boolean accepted = !loggerName.startsWith("dev.springtelescope")
+                && (basePackage.isEmpty() || loggerName.startsWith(basePackage));
+        if (ACCEPTED_LOGGERS.size() < MAX_CACHED_LOGGERS) {
+            ACCEPTED_LOGGERS.put(loggerName, accepted);
+        }
+        return accepted;
+    }
+
+    /**
+     * Snapshots the state bound to the logging thread. Logback resolves the
+     * thread name and MDC lazily from the current thread, so they must be read
+     * here rather than on the writer.
+     */
+    private PendingEvent capture(ILoggingEvent event, boolean error) {
+        TelescopeBatchContext.Identity identity = TelescopeBatchContext.identity(userProvider);
+        return new PendingEvent(event, event.getThreadName(), event.getMDCPropertyMap(),
+                TelescopeBatchContext.get(), identity.userIdentifier(), identity.tenantId(), error,
+                TelescopeClock.nowMicros(), 1.0);
+    }
 
-            String userIdentifier = null;
-            String tenantId = null;
-            if (userProvider != null) {
-                try {
-                    userIdentifier = userProvider.getCurrentUserIdentifier();
-                    tenantId = userProvider.getCurrentTenantId();
-                } catch (Exception ignored) {
+    private void drain() {
+        while (true) {
+            PendingEvent pending = queue.poll();
+            if (pending == null) {
+                if (!isStarted()) return;
+                TelescopeLogAggregator aggregator = this.aggregator;
+                TelescopeStorage storage = TelescopeLogAppender.storage;
+                if (aggregator != null && storage != null) {
+                    aggregator.sweep(storage, TelescopeClock.nowMicros());
                 }
+                writerParked = true;
+                if (queue.isEmpty()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                writerParked = false;
+                continue;
+            }
+            queued.decrementAndGet();
+            TelescopeStorage storage = TelescopeLogAppender.storage;
+            if (storage == null) continue;
+            try {
+                write(storage, pending);
+            } catch (Exception ignored) {
             }
+        }
+    }
 
-            storage.store(TelescopeEntry.builder()
-                    .uuid(UUID.randomUUID().toString())
-                    .type(TelescopeEntryType.LOG)
-                    .createdAt(LocalDateTime.now())
-                    .batchId(TelescopeBatchContext.get())
-                    .content(content)
-                    .userIdentifier(userIdentifier)
-                    .tenantId(tenantId)
-                    .build());
-        } catch (Exception ignored) {
+    /**
+     * Builds and stores the entry for an event. With aggregation, an event
+     * matching an open group only updates that group's counts.
+     */
+    private void write(TelescopeStorage storage, PendingEvent pending) {
+        ILoggingEvent event = pending.event();
+        TelescopeLogAggregator aggregator = this.aggregator;
+        String key = null;
+        if (aggregator != null) {
+            aggregator.sweep(storage, pending.timestamp());
+            key = TelescopeLogAggregator.keyOf(event.getLoggerName(), event.getLevel().toString(), event.getMessage());
+            if (aggregator.join(key, pending.timestamp(), event.getArgumentArray())) return;
+        }
+
+        String exception = event.getThrowableProxy() != null
+                ? ThrowableProxyUtil.asString(event.getThrowableProxy()) : null;
+        Map<String, String> mdc = pending.mdc() != null && !pending.mdc().isEmpty()
+                ? new LinkedHashMap<>(pending.mdc()) : null;
+        TelescopeLogContent content = new TelescopeLogContent(event.getLevel().toString(),
+                event.getFormattedMessage(), event.getLoggerName(), pending.threadName(), exception, mdc);
+        TelescopeLogGroupContent group = aggregator != null
+                ? new TelescopeLogGroupContent(content, event.getMessage(), pending.timestamp(),
+                        aggregator.getMaxSamples(), event.getArgumentArray())
+                : null;
+
+        TelescopeEntry entry = TelescopeEntry.builder()
+                .uuid(TelescopeIds.next())
+                .type(TelescopeEntryType.LOG)
+                .timestamp(pending.timestamp())
+                .batchId(pending.batchId())
+                .typedContent(group != null ? group : content)
+                .userIdentifier(pending.userIdentifier())
+                .tenantId(pending.tenantId())
+                .sampleRate(sampler.getRate(TelescopeEntryType.LOG, pending.error()) * pending.rate())
+                .build();
+        storage.record(entry);
+        if (group != null) {
+            aggregator.open(storage, key, entry, group);
+        }
+    }
+
+    private record PendingEvent(ILoggingEvent event, String threadName, Map<String, String> mdc,
+                                String batchId, String userIdentifier, String tenantId, boolean error,
+                                long timestamp, double rate) {
+
+        PendingEvent scaled(double factor) {
+            return new PendingEvent(event, threadName, mdc, batchId, userIdentifier, tenantId, error,
+                    timestamp, rate * factor);
         }
     }
 }
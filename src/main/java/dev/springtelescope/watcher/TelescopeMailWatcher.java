@@ -2,8 +2,10 @@ package dev.springtelescope.watcher;
 
 import dev.springtelescope.context.TelescopeBatchContext;
 import dev.springtelescope.context.TelescopeUserProvider;
+import dev.springtelescope.id.TelescopeIds;
 import dev.springtelescope.model.TelescopeEntry;
 import dev.springtelescope.model.TelescopeEntryType;
+import dev.springtelescope.sampling.TelescopeSampler;
 import dev.springtelescope.storage.TelescopeStorage;
 import jakarta.mail.Message;
 import jakarta.mail.internet.InternetAddress;
@@ -13,7 +15,6 @@ import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.springframework.mail.SimpleMailMessage;
 
-import java.time.LocalDateTime;
 import java.util.*;
 
 @Aspect
@@ -21,15 +22,17 @@ public class TelescopeMailWatcher {
 
     private final TelescopeStorage storage;
     private final TelescopeUserProvider userProvider;
+    private final TelescopeSampler sampler;
 
-    public TelescopeMailWatcher(TelescopeStorage storage, TelescopeUserProvider userProvider) {
+    public TelescopeMailWatcher(TelescopeStorage storage, TelescopeUserProvider userProvider, TelescopeSampler sampler) {
         this.storage = storage;
         this.userProvider = userProvider;
+        this.sampler = sampler;
     }
 
     @Around("execution(* org.springframework.mail.MailSender.send(..))")
     public Object aroundSimpleSend(ProceedingJoinPoint joinPoint) throws Throwable {
-        if (storage.isEnabled() && joinPoint.getArgs() != null) {
+        if (storage.isEnabled() && joinPoint.getArgs() != null && sampler.sample(TelescopeEntryType.MAIL)) {
             for (Object arg : joinPoint.getArgs()) {
                 if (arg instanceof SimpleMailMessage msg) {
                     recordSimpleMail(msg);
@@ -40,12 +43,12 @@ public class TelescopeMailWatcher {
                 }
             }
         }
-        return joinPoint.proceed();
+        return timedProceed(joinPoint);
     }
 
     @Around("execution(* org.springframework.mail.javamail.JavaMailSender.send(..))")
     public Object aroundMimeSend(ProceedingJoinPoint joinPoint) throws Throwable {
-        if (storage.isEnabled() && joinPoint.getArgs() != null) {
+        if (storage.isEnabled() && joinPoint.getArgs() != null && sampler.sample(TelescopeEntryType.MAIL)) {
             for (Object arg : joinPoint.getArgs()) {
                 if (arg instanceof MimeMessage msg) {
                     recordMimeMessage(msg);
@@ -56,7 +59,16 @@ public class TelescopeMailWatcher {
                 }
             }
         }
-        return joinPoint.proceed();
+        return timedProceed(joinPoint);
+    }
+
+    private Object timedProceed(ProceedingJoinPoint joinPoint) throws Throwable {
+        long startNanos = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            TelescopeBatchContext.addTime(TelescopeEntryType.MAIL, System.nanoTime() - startNanos);
+        }
     }
 
     private void recordSimpleMail(SimpleMailMessage msg) {
@@ -132,23 +144,17 @@ public class TelescopeMailWatcher {
     }
 
     private void storeMailEntry(Map<String, Object> content, List<String> tags) {
-        String userIdentifier = null;
-        String tenantId = null;
-        try {
-            userIdentifier = userProvider.getCurrentUserIdentifier();
-            tenantId = userProvider.getCurrentTenantId();
-        } catch (Exception ignored) {
-        }
+        TelescopeBatchContext.Identity identity = TelescopeBatchContext.identity(userProvider);
 
-        storage.store(TelescopeEntry.builder()
-                .uuid(UUID.randomUUID().toString())
+        storage.record(TelescopeEntry.builder()
+                .uuid(TelescopeIds.next())
                 .type(TelescopeEntryType.MAIL)
-                .createdAt(LocalDateTime.now())
                 .batchId(TelescopeBatchContext.get())
                 .content(content)
-                .userIdentifier(userIdentifier)
-                .tenantId(tenantId)
+                .userIdentifier(identity.userIdentifier())
+                .tenantId(identity.tenantId())
                 .tags(tags)
+                .sampleRate(sampler.getRate(TelescopeEntryType.MAIL))
                 .build());
     }
 }
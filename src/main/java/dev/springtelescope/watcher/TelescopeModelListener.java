@@ -1,24 +1,57 @@
 package dev.springtelescope.watcher;
 
+import dev.springtelescope.TelescopeProperties;
 import dev.springtelescope.context.TelescopeBatchContext;
 import dev.springtelescope.context.TelescopeUserProvider;
+import dev.springtelescope.id.TelescopeIds;
 import dev.springtelescope.model.TelescopeEntry;
 import dev.springtelescope.model.TelescopeEntryType;
+import dev.springtelescope.sampling.TelescopeSampler;
 import dev.springtelescope.storage.TelescopeStorage;
+import org.hibernate.SessionEventListener;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.event.spi.*;
 import org.hibernate.persister.entity.EntityPersister;
 
-import java.time.LocalDateTime;
 import java.util.*;
 
+/**
+ * Records entity changes as MODEL entries.
+ * <p>
+ * Changes made inside a transaction are collected per session until the
+ * transaction completes. Up to {@code telescope.models.detail-threshold}
+ * changes are then sampled and recorded as one entry each; sampling waits
+ * until then so a transaction that turns out to be a bulk import uses no
+ * sampler budget. Larger transactions are always recorded as a single summary
+ * entry instead: counts per entity and action, a few sample IDs and how often
+ * each field changed. Changes of a rolled back transaction are still
+ * recorded, marked {@code committed: false} and tagged {@code rolled-back}.
+ * Changes outside a transaction are recorded as they happen.
+ * <p>
+ * Changed fields come from the dirty property indexes Hibernate computed
+ * during the flush; old and new state are only compared when Hibernate did
+ * not provide them.
+ */
 public class TelescopeModelListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
 
+    private static final ThreadLocal<List<ChangeSet>> CHANGE_SETS = ThreadLocal.withInitial(ArrayList::new);
+
     private static volatile TelescopeStorage storage;
     private static volatile TelescopeUserProvider userProvider;
+    private static volatile TelescopeSampler sampler = TelescopeSampler.keepAll();
+    private static volatile int detailThreshold = 50;
+    private static volatile int maxSampleIds = 5;
 
-    public static void configure(TelescopeStorage storage, TelescopeUserProvider userProvider) {
+    public static void configure(TelescopeStorage storage, TelescopeUserProvider userProvider, TelescopeSampler sampler,
+                                 TelescopeProperties.Models models) {
         TelescopeModelListener.storage = storage;
         TelescopeModelListener.userProvider = userProvider;
+        TelescopeModelListener.sampler = (sampler != null) ? sampler : TelescopeSampler.keepAll();
+        if (models != null) {
+            TelescopeModelListener.detailThreshold = Math.max(0, models.getDetailThreshold());
+            TelescopeModelListener.maxSampleIds = Math.max(0, models.getSampleIds());
+        }
     }
 
     public static boolean isConfigured() {
@@ -27,18 +60,18 @@ public class TelescopeModelListener implements PostInsertEventListener, PostUpda
 
     @Override
     public void onPostInsert(PostInsertEvent event) {
-        record("CREATED", event.getEntity(), event.getId(), event.getPersister(), null);
+        record("CREATED", event.getSession(), event.getEntity(), event.getId(), event.getPersister(), null, null, null);
     }
 
     @Override
     public void onPostUpdate(PostUpdateEvent event) {
-        List<String> changedFields = detectChangedFields(event);
-        record("UPDATED", event.getEntity(), event.getId(), event.getPersister(), changedFields);
+        record("UPDATED", event.getSession(), event.getEntity(), event.getId(), event.getPersister(),
+                event.getDirtyProperties(), event.getOldState(), event.getState());
     }
 
     @Override
     public void onPostDelete(PostDeleteEvent event) {
-        record("DELETED", event.getEntity(), event.getId(), event.getPersister(), null);
+        record("DELETED", event.getSession(), event.getEntity(), event.getId(), event.getPersister(), null, null, null);
     }
 
     @Override
@@ -46,8 +79,8 @@ public class TelescopeModelListener implements PostInsertEventListener, PostUpda
         return false;
     }
 
-    private void record(String action, Object entity, Object entityId, EntityPersister persister,
-                        List<String> changedFields) {
+    private void record(String action, EventSource session, Object entity, Object entityId, EntityPersister persister,
+                        int[] dirty, Object[] oldState, Object[] state) {
         if (storage == null || !storage.isEnabled()) return;
 
         String entityClass = entity.getClass().getName();
@@ -56,60 +89,249 @@ public class TelescopeModelListener implements PostInsertEventListener, PostUpda
         if (entityClass.contains(".telescope.") || entityClass.startsWith("dev.springtelescope")) return;
 
         try {
-            String entityName = entity.getClass().getSimpleName();
-
-            Map<String, Object> content = new LinkedHashMap<>();
-            content.put("entity", entityName);
-            content.put("entityClass", entityClass);
-            content.put("action", action);
-            content.put("entityId", entityId != null ? entityId.toString() : null);
-            if (changedFields != null && !changedFields.isEmpty()) {
-                content.put("changedFields", changedFields);
+            if (!session.isTransactionInProgress()) {
+                if (!sampler.sample(TelescopeEntryType.MODEL)) return;
+                storage.record(buildEntry(action, entity, entityId,
+                        changedFields(persister, dirtyIndexes(dirty, oldState, state)), TelescopeBatchContext.get(),
+                        TelescopeBatchContext.identity(userProvider)));
+                return;
             }
 
-            List<String> tags = new ArrayList<>();
-            tags.add("model:" + action.toLowerCase());
-            tags.add("entity:" + entityName);
-
-            String userIdentifier = null;
-            String tenantId = null;
-            if (userProvider != null) {
-                try {
-                    userIdentifier = userProvider.getCurrentUserIdentifier();
-                    tenantId = userProvider.getCurrentTenantId();
-                } catch (Exception ignored) {
-                }
+            int[] changed = dirtyIndexes(dirty, oldState, state);
+            ChangeSet changes = changeSet(session);
+            changes.count(action, entity, entityId, persister, changed);
+            if (changes.summarized) return;
+            if (changes.total > detailThreshold) {
+                changes.summarized = true;
+                changes.details.clear();
+            } else {
+                changes.details.add(buildEntry(action, entity, entityId,
+                        changedFields(persister, changed), changes.batchId, changes.identity));
             }
-
-            storage.store(TelescopeEntry.builder()
-                    .uuid(UUID.randomUUID().toString())
-                    .type(TelescopeEntryType.MODEL)
-                    .createdAt(LocalDateTime.now())
-                    .batchId(TelescopeBatchContext.get())
-                    .content(content)
-                    .userIdentifier(userIdentifier)
-                    .tenantId(tenantId)
-                    .tags(tags)
-                    .build());
         } catch (Exception ignored) {
         }
     }
 
-    private List<String> detectChangedFields(PostUpdateEvent event) {
+    /**
+     * The change set of the session's current transaction, registered to be
+     * recorded when the transaction completes.
+     */
+    private static ChangeSet changeSet(EventSource session) {
+        List<ChangeSet> open = CHANGE_SETS.get();
+        for (ChangeSet changes : open) {
+            if (changes.session == session) return changes;
+        }
+        ChangeSet changes = new ChangeSet(session, open, TelescopeBatchContext.get(),
+                TelescopeBatchContext.identity(userProvider));
+        open.add(changes);
+        session.getActionQueue().registerProcess(changes);
+        session.getEventListenerManager().addListener(changes);
+        return changes;
+    }
+
+    private static TelescopeEntry buildEntry(String action, Object entity, Object entityId, List<String> changedFields,
+                                             String batchId, TelescopeBatchContext.Identity identity) {
+        String entityName = entity.getClass().getSimpleName();
+
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("entity", entityName);
+        content.put("entityClass", entity.getClass().getName());
+        content.put("action", action);
+        content.put("entityId", entityId != null ? entityId.toString() : null);
+        if (changedFields != null && !changedFields.isEmpty()) {
+            content.put("changedFields", changedFields);
+        }
+
+        List<String> tags = new ArrayList<>();
+        tags.add("model:" + action.toLowerCase());
+        tags.add("entity:" + entityName);
+
+        return TelescopeEntry.builder()
+                .uuid(TelescopeIds.next())
+                .type(TelescopeEntryType.MODEL)
+                .batchId(batchId)
+                .content(content)
+                .userIdentifier(identity.userIdentifier())
+                .tenantId(identity.tenantId())
+                .tags(tags)
+                .sampleRate(sampler.getRate(TelescopeEntryType.MODEL))
+                .build();
+    }
+
+    /**
+     * Indexes of the changed properties: Hibernate's dirty properties, or
+     * those whose old and new state differ when it did not compute them.
+     */
+    private static int[] dirtyIndexes(int[] dirty, Object[] oldState, Object[] state) {
+        if (dirty != null || oldState == null || state == null) return dirty;
+        int[] changed = new int[state.length];
+        int count = 0;
+        for (int i = 0; i < state.length; i++) {
+            if (!Objects.equals(oldState[i], state[i])) {
+                changed[count++] = i;
+            }
+        }
+        return Arrays.copyOf(changed, count);
+    }
+
+    private static List<String> changedFields(EntityPersister persister, int[] dirty) {
+        String[] propertyNames = persister.getPropertyNames();
         List<String> changed = new ArrayList<>();
-        try {
-            String[] propertyNames = event.getPersister().getPropertyNames();
-            Object[] oldState = event.getOldState();
-            Object[] newState = event.getState();
-            if (oldState != null && newState != null) {
-                for (int i = 0; i < propertyNames.length; i++) {
-                    if (!Objects.equals(oldState[i], newState[i])) {
-                        changed.add(propertyNames[i]);
-                    }
-                }
+        if (dirty != null) {
+            for (int index : dirty) {
+                changed.add(propertyNames[index]);
             }
-        } catch (Exception ignored) {
         }
         return changed;
     }
+
+    private static void recordDetails(ChangeSet changes, boolean committed) {
+        for (TelescopeEntry entry : changes.details) {
+            if (!sampler.sample(TelescopeEntryType.MODEL)) continue;
+            entry.setSampleRate(sampler.getRate(TelescopeEntryType.MODEL));
+            entry.getContent().put("committed", committed);
+            if (!committed) entry.getTags().add("rolled-back");
+            storage.record(entry);
+        }
+    }
+
+    private static void recordSummary(ChangeSet changes, boolean committed) {
+        List<Map<String, Object>> entities = new ArrayList<>();
+        List<String> tags = new ArrayList<>();
+        tags.add("model:summary");
+        if (!committed) tags.add("rolled-back");
+        for (EntityChanges entity : changes.entities.values()) {
+            entities.add(entity.toMap());
+            tags.add("entity:" + entity.entityName);
+        }
+
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("entity", entities.size() == 1 ? changes.entities.values().iterator().next().entityName
+                : entities.size() + " entities");
+        content.put("action", "SUMMARY");
+        content.put("changes", changes.total);
+        content.put("committed", committed);
+        content.put("entities", entities);
+
+        storage.record(TelescopeEntry.builder()
+                .uuid(TelescopeIds.next())
+                .type(TelescopeEntryType.MODEL)
+                .batchId(changes.batchId)
+                .content(content)
+                .userIdentifier(changes.identity.userIdentifier())
+                .tenantId(changes.identity.tenantId())
+                .tags(tags)
+                .build());
+    }
+
+    /**
+     * Changes of one session within one transaction. Discarded if the session
+     * closes before the transaction completes.
+     */
+    private static final class ChangeSet implements AfterTransactionCompletionProcess, SessionEventListener {
+        private final EventSource session;
+        private final List<ChangeSet> owner;
+        private final String batchId;
+        private final TelescopeBatchContext.Identity identity;
+        private final Map<String, EntityChanges> entities = new LinkedHashMap<>();
+        private final List<TelescopeEntry> details = new ArrayList<>();
+        private long total;
+        private boolean summarized;
+
+        private ChangeSet(EventSource session, List<ChangeSet> owner, String batchId,
+                          TelescopeBatchContext.Identity identity) {
+            this.session = session;
+            this.owner = owner;
+            this.batchId = batchId;
+            this.identity = identity;
+        }
+
+        private void count(String action, Object entity, Object entityId, EntityPersister persister, int[] dirty) {
+            total++;
+            String entityClass = entity.getClass().getName();
+            EntityChanges changes = entities.get(entityClass);
+            if (changes == null) {
+                changes = new EntityChanges(entity.getClass().getSimpleName(), entityClass, persister.getPropertyNames());
+                entities.put(entityClass, changes);
+            }
+            changes.count(action, entityId, dirty);
+        }
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor session) {
+            owner.remove(this);
+            TelescopeStorage storage = TelescopeModelListener.storage;
+            if (storage == null || !storage.isEnabled()) return;
+            try {
+                if (summarized) {
+                    recordSummary(this, success);
+                } else {
+                    recordDetails(this, success);
+                }
+            } catch (Exception ignored) {
+            }
+        }
+
+        @Override
+        public void end() {
+            owner.remove(this);
+        }
+    }
+
+    /**
+     * Counts, sample IDs and changed-field histogram of one entity class.
+     */
+    private static final class EntityChanges {
+        private final String entityName;
+        private final String entityClass;
+        private final String[] propertyNames;
+        private final int[] fieldChanges;
+        private final List<String> sampleIds = new ArrayList<>();
+        private long created;
+        private long updated;
+        private long deleted;
+
+        private EntityChanges(String entityName, String entityClass, String[] propertyNames) {
+            this.entityName = entityName;
+            this.entityClass = entityClass;
+            this.propertyNames = propertyNames;
+            this.fieldChanges = new int[propertyNames.length];
+        }
+
+        private void count(String action, Object entityId, int[] dirty) {
+            switch (action) {
+                case "CREATED" -> created++;
+                case "UPDATED" -> updated++;
+                default -> deleted++;
+            }
+            if (dirty != null) {
+                for (int index : dirty) {
+                    fieldChanges[index]++;
+                }
+            }
+            if (entityId != null && sampleIds.size() < maxSampleIds) {
+                sampleIds.add(entityId.toString());
+            }
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("entity", entityName);
+            map.put("entityClass", entityClass);
+            map.put("created", created);
+            map.put("updated", updated);
+            map.put("deleted", deleted);
+            map.put("sampleIds", sampleIds);
+            Map<String, Integer> changedFields = new LinkedHashMap<>();
+            for (int i = 0; i < fieldChanges.length; i++) {
+                if (fieldChanges[i] > 0) {
+                    changedFields.put(propertyNames[i], fieldChanges[i]);
+                }
+            }
+            if (!changedFields.isEmpty()) {
+                map.put("changedFields", changedFields);
+            }
+            return map;
+        }
+    }
 }
@@ -0,0 +1,112 @@
+package dev.springtelescope.watcher;
+
+import dev.springtelescope.aggregate.TelescopeSqlFingerprinter;
+import dev.springtelescope.context.TelescopeRequestTimings;
+import dev.springtelescope.id.TelescopeIds;
+import dev.springtelescope.model.TelescopeEntry;
+import dev.springtelescope.model.TelescopeEntryType;
+import dev.springtelescope.model.TelescopeQueryContent;
+import dev.springtelescope.sampling.TelescopeSampler;
+import dev.springtelescope.storage.TelescopeStorage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detects N+1 selects: the same SELECT fingerprint executed at least
+ * {@code telescope.queries.n-plus-one-threshold} times within one request.
+ * <p>
+ * The likely entity is resolved from the table the statement reads, using the
+ * table-to-entity mapping registered by {@link TelescopeHibernateIntegrator};
+ * without Hibernate the table name is used.
+ */
+public class TelescopeNPlusOneDetector {
+
+    private static final Map<String, String> ENTITY_BY_TABLE = new ConcurrentHashMap<>();
+
+    private final TelescopeStorage storage;
+    private final TelescopeSampler sampler;
+    private final int threshold;
+
+    public TelescopeNPlusOneDetector(TelescopeStorage storage, TelescopeSampler sampler, int threshold) {
+        this.storage = storage;
+        this.sampler = sampler;
+        this.threshold = threshold;
+    }
+
+    static void registerEntityTable(String table, String entity) {
+        ENTITY_BY_TABLE.put(table.toLowerCase(), entity);
+    }
+
+    /**
+     * Returns the repeated statements of the request, most frequent first.
+     */
+    public List<Finding> detect(TelescopeRequestTimings timings) {
+        if (threshold <= 0) return List.of();
+        List<Finding> findings = new ArrayList<>();
+        for (TelescopeRequestTimings.QueryRepeat repeat : timings.getQueries()) {
+            long count = repeat.getCount();
+            if (count < threshold) continue;
+            String sql = repeat.getSql().trim();
+            if (!sql.regionMatches(true, 0, "select", 0, 6)) continue;
+            String table = tableOf(TelescopeSqlFingerprinter.normalize(sql));
+            String entity = table != null ? ENTITY_BY_TABLE.getOrDefault(table, table) : "unknown";
+            findings.add(new Finding(repeat.getFingerprint(), sql, count, repeat.getNanos(), entity));
+        }
+        findings.sort(Comparator.comparingLong(Finding::count).reversed());
+        return findings;
+    }
+
+    /**
+     * Stores one summary QUERY entry per finding under the request's batch.
+     */
+    public void record(String batchId, List<Finding> findings, String userIdentifier, String tenantId) {
+        for (Finding finding : findings) {
+            if (!sampler.sample(TelescopeEntryType.QUERY, true)) continue;
+            try {
+                TelescopeQueryContent content = TelescopeQueryContent.nPlusOne(finding.sql(), finding.fingerprint(),
+                        finding.count(), finding.nanos(), finding.entity());
+
+                List<String> tags = new ArrayList<>();
+                tags.add("n+1");
+                tags.add(finding.tag());
+
+                storage.record(TelescopeEntry.builder()
+                        .uuid(TelescopeIds.next())
+                        .type(TelescopeEntryType.QUERY)
+                        .batchId(batchId)
+                        .typedContent(content)
+                        .userIdentifier(userIdentifier)
+                        .tenantId(tenantId)
+                        .tags(tags)
+                        .sampleRate(sampler.getRate(TelescopeEntryType.QUERY, true))
+                        .build());
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    /**
+     * First table read by a normalized SELECT ({@code from <table>}).
+     */
+    static String tableOf(String fingerprint) {
+        int idx = fingerprint.indexOf(" from ");
+        if (idx < 0) return null;
+        int start = idx + " from ".length();
+        int end = start;
+        while (end < fingerprint.length() && fingerprint.charAt(end) != ' '
+                && fingerprint.charAt(end) != ',' && fingerprint.charAt(end) != ')') {
+            end++;
+        }
+        if (end == start) return null;
+        String table = fingerprint.substring(start, end).replace("\"", "").replace("`", "");
+        int dot = table.lastIndexOf('.');
+        return dot >= 0 ? table.substring(dot + 1) : table;
+    }
+
+    public record Finding(String fingerprint, String sql, long count, long nanos, String entity) {
+        public String tag() {
+            return "n+1:" + entity;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package dev.springtelescope.watcher;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.*;
+
+/**
+ * Extracts the properties of an event object into a map.
+ * <p>
+ * The getters of each class are resolved once into {@link MethodHandle}s and
+ * cached in a {@link ClassValue}, so publishing an event costs one handle
+ * call per property instead of a reflective method scan. Records contribute
+ * their components; other classes their {@code getX()} methods, excluding
+ * those declared by Spring or the JDK.
+ * <p>
+ * Values are rendered with {@code toString()}. Below {@code maxDepth}, values
+ * that are records or classes in the base package are expanded into nested
+ * maps instead. {@code maxSize} bounds the total characters rendered per
+ * event; properties beyond it are dropped and the payload is marked
+ * {@code _truncated}.
+ */
+public class TelescopePayloadExtractor {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<List<Accessor>> PLANS = new ClassValue<>() {
+        @Override
+        protected List<Accessor> computeValue(Class<?> type) {
+            return planFor(type);
+        }
+    };
+
+    private final int maxDepth;
+    private final int maxSize;
+    private final String basePackage;
+
+    public TelescopePayloadExtractor(int maxDepth, int maxSize, String basePackage) {
+        this.maxDepth = Math.max(1, maxDepth);
+        this.maxSize = Math.max(0, maxSize);
+        this.basePackage = basePackage != null ? basePackage : "";
+    }
+
+    /**
+     * Extracts the properties of {@code target}. JDK types, such as a
+     * {@code String} published as an event, are rendered whole under
+     * {@code value}.
+     */
+    public Map<String, Object> extract(Object target) {
+        int[] budget = {maxSize};
+        if (target.getClass().getName().startsWith("java.")) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("value", render(target, maxDepth, budget));
+            return payload;
+        }
+        return extract(target, 1, budget);
+    }
+
+    private Map<String, Object> extract(Object target, int depth, int[] budget) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        for (Accessor accessor : PLANS.get(target.getClass())) {
+            if (budget[0] <= 0) {
+                payload.put("_truncated", true);
+                break;
+            }
+            Object value;
+            try {
+                value = (Object) accessor.getter().invokeExact(target);
+            } catch (Throwable e) {
+                continue;
+            }
+            payload.put(accessor.name(), render(value, depth, budget));
+        }
+        return payload;
+    }
+
+    private Object render(Object value, int depth, int[] budget) {
+        if (value == null) return null;
+        if (depth < maxDepth && isExpandable(value.getClass())) {
+            return extract(value, depth + 1, budget);
+        }
+        String text = String.valueOf(value);
+        if (text.length() > budget[0]) {
+            text = text.substring(0, budget[0]) + "...";
+        }
+        budget[0] -= text.length();
+        return text;
+    }
+
+    private boolean isExpandable(Class<?> type) {
+        if (type.isEnum() || type.getName().startsWith("java.")) return false;
+        if (!type.isRecord() && (basePackage.isEmpty() || !type.getName().startsWith(basePackage))) return false;
+        return !PLANS.get(type).isEmpty();
+    }
+
+    private static List<Accessor> planFor(Class<?> type) {
+        Map<String, Accessor> accessors = new LinkedHashMap<>();
+        if (type.isRecord()) {
+            for (RecordComponent component : type.getRecordComponents()) {
+                add(accessors, component.getName(), component.getAccessor());
+            }
+            return List.copyOf(accessors.values());
+        }
+        for (Method method : type.getDeclaredMethods()) {
+            if (isGetter(method)) {
+                add(accessors, propertyName(method), method);
+            }
+        }
+        for (Method method : type.getMethods()) {
+            String owner = method.getDeclaringClass().getName();
+            if (isGetter(method) && !owner.startsWith("org.springframework.") && !owner.startsWith("java.")) {
+                add(accessors, propertyName(method), method);
+            }
+        }
+        return List.copyOf(accessors.values());
+    }
+
+    private static boolean isGetter(Method method) {
+        String name = method.getName();
+        return name.length() > 3 && name.startsWith("get") && method.getParameterCount() == 0
+                && method.getReturnType() != void.class && !Modifier.isStatic(method.getModifiers())
+                && !method.isBridge() && !method.isSynthetic()
+                && !name.equals("getClass") && !name.equals("getSource") && !name.equals("getTimestamp");
+    }
+
+    private static String propertyName(Method method) {
+        String name = method.getName();
+        return Character.toLowerCase(name.charAt(3)) + name.substring(4);
+    }
+
+    private static void add(Map<String, Accessor> accessors, String name, Method method) {
+        if (accessors.containsKey(name)) return;
+        try {
+            if (!method.trySetAccessible()) return;
+            accessors.put(name, new Accessor(name, LOOKUP.unreflect(method).asType(GETTER_TYPE)));
+        } catch (Exception ignored) {
+        }
+    }
+
+    private record Accessor(String name, MethodHandle getter) {
+    }
+}
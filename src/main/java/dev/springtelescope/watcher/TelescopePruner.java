@@ -1,11 +1,12 @@
 package dev.springtelescope.watcher;
 
 import dev.springtelescope.TelescopeProperties;
+import dev.springtelescope.model.TelescopeClock;
 import dev.springtelescope.storage.TelescopeStorage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 
-import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public class TelescopePruner {
@@ -20,7 +21,7 @@ public class TelescopePruner {
 
     @Scheduled(fixedRateString = "${telescope.prune-interval-ms:3600000}")
     public void prune() {
-        LocalDateTime cutoff = LocalDateTime.now().minusHours(properties.getPruneHours());
+        long cutoff = TelescopeClock.nowMicros() - TimeUnit.HOURS.toMicros(properties.getPruneHours());
         long pruned = storage.pruneOlderThan(cutoff);
         if (pruned > 0) {
             log.debug("Telescope pruned {} entries older than {} hours", pruned, properties.getPruneHours());
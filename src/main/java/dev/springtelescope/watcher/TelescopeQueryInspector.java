@@ -1,25 +1,29 @@
 package dev.springtelescope.watcher;
 
+import dev.springtelescope.aggregate.TelescopeQueryStats;
 import dev.springtelescope.context.TelescopeBatchContext;
 import dev.springtelescope.context.TelescopeUserProvider;
+import dev.springtelescope.id.TelescopeIds;
 import dev.springtelescope.model.TelescopeEntry;
 import dev.springtelescope.model.TelescopeEntryType;
+import dev.springtelescope.model.TelescopeQueryContent;
+import dev.springtelescope.sampling.TelescopeSampler;
 import dev.springtelescope.storage.TelescopeStorage;
 import org.hibernate.resource.jdbc.spi.StatementInspector;
 
-import java.time.LocalDateTime;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.UUID;
-
 public class TelescopeQueryInspector implements StatementInspector {
 
     private final TelescopeStorage storage;
     private final TelescopeUserProvider userProvider;
+    private final TelescopeSampler sampler;
+    private final TelescopeQueryStats queryStats;
 
-    public TelescopeQueryInspector(TelescopeStorage storage, TelescopeUserProvider userProvider) {
+    public TelescopeQueryInspector(TelescopeStorage storage, TelescopeUserProvider userProvider, TelescopeSampler sampler,
+                                   TelescopeQueryStats queryStats) {
         this.storage = storage;
         this.userProvider = userProvider;
+        this.sampler = sampler;
+        this.queryStats = queryStats;
     }
 
     @Override
@@ -30,33 +34,30 @@ public class TelescopeQueryInspector implements StatementInspector {
         if (trimmedSql.startsWith("select 1") || trimmedSql.startsWith("select version")) {
             return sql;
         }
-        if (trimmedSql.contains("telescope_entries")) {
+        if (trimmedSql.contains("telescope_entries") || trimmedSql.contains("telescope_traces")) {
+            return sql;
+        }
+        // Execution time is not known here; the aggregate only counts
+        String batchId = TelescopeBatchContext.get();
+        String fingerprint = queryStats.record(sql, -1, batchId);
+        TelescopeBatchContext.addQuery(fingerprint, sql, -1);
+        if (!sampler.sample(TelescopeEntryType.QUERY)) {
             return sql;
         }
 
         try {
-            Map<String, Object> content = new LinkedHashMap<>();
-            content.put("sql", sql.trim());
-            content.put("type", getSqlType(trimmedSql));
+            TelescopeQueryContent content = TelescopeQueryContent.untimed(sql.trim(), getSqlType(trimmedSql), fingerprint);
 
-            String userIdentifier = null;
-            String tenantId = null;
-            if (userProvider != null) {
-                try {
-                    userIdentifier = userProvider.getCurrentUserIdentifier();
-                    tenantId = userProvider.getCurrentTenantId();
-                } catch (Exception ignored) {
-                }
-            }
+            TelescopeBatchContext.Identity identity = TelescopeBatchContext.identity(userProvider);
 
-            storage.store(TelescopeEntry.builder()
-                    .uuid(UUID.randomUUID().toString())
+            storage.record(TelescopeEntry.builder()
+                    .uuid(TelescopeIds.next())
                     .type(TelescopeEntryType.QUERY)
-                    .createdAt(LocalDateTime.now())
-                    .batchId(TelescopeBatchContext.get())
-                    .content(content)
-                    .userIdentifier(userIdentifier)
-                    .tenantId(tenantId)
+                    .batchId(batchId)
+                    .typedContent(content)
+                    .userIdentifier(identity.userIdentifier())
+                    .tenantId(identity.tenantId())
+                    .sampleRate(sampler.getRate(TelescopeEntryType.QUERY))
                     .build());
         } catch (Exception ignored) {
         }
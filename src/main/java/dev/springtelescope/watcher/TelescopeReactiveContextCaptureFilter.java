@@ -0,0 +1,64 @@
+package dev.springtelescope.watcher;
+
+import dev.springtelescope.context.DefaultTelescopeUserProvider;
+import dev.springtelescope.context.TelescopeBatchContext;
+import dev.springtelescope.context.TelescopeUserProvider;
+import org.springframework.core.annotation.Order;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.security.Principal;
+
+/**
+ * Reactive counterpart of {@link TelescopeContextCaptureFilter}. Runs after
+ * Spring Security's {@code WebFilterChainProxy} (order -100), where the
+ * exchange principal is the authenticated user, and pins the identity on the
+ * batch in the Reactor {@code Context} and on the exchange for the request
+ * entry.
+ * <p>
+ * The user is the principal name; the tenant comes from
+ * {@code telescope.tenant-pattern} applied to the request path, or from a
+ * custom {@link TelescopeUserProvider}.
+ */
+@Order(0)
+public class TelescopeReactiveContextCaptureFilter implements WebFilter {
+
+    private final TelescopeUserProvider userProvider;
+
+    public TelescopeReactiveContextCaptureFilter(TelescopeUserProvider userProvider) {
+        this.userProvider = userProvider;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        Object batch = exchange.getAttribute(TelescopeWebFilter.SNAPSHOT_ATTRIBUTE);
+        if (!(batch instanceof TelescopeBatchContext.Snapshot snapshot)) {
+            return chain.filter(exchange);
+        }
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .defaultIfEmpty("")
+                .flatMap(user -> {
+                    TelescopeBatchContext.Identity identity = new TelescopeBatchContext.Identity(
+                            user.isEmpty() || "anonymousUser".equals(user) ? null : user, tenantId(exchange));
+                    exchange.getAttributes().put(TelescopeWebFilter.IDENTITY_ATTRIBUTE, identity);
+                    TelescopeBatchContext.Snapshot identified =
+                            new TelescopeBatchContext.Snapshot(snapshot.batchId(), snapshot.timings(), identity);
+                    return chain.filter(exchange)
+                            .contextWrite(context -> context.put(TelescopeBatchContext.CONTEXT_KEY, identified));
+                });
+    }
+
+    private String tenantId(ServerWebExchange exchange) {
+        try {
+            if (userProvider instanceof DefaultTelescopeUserProvider provider) {
+                return provider.getTenantId(exchange.getRequest().getPath().pathWithinApplication().value());
+            }
+            return userProvider.getCurrentTenantId();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
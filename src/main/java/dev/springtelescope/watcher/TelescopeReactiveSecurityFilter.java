@@ -0,0 +1,57 @@
+package dev.springtelescope.watcher;
+
+import dev.springtelescope.TelescopeProperties;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reactive counterpart of {@link TelescopeSecurityFilter}: protects Telescope
+ * endpoints with {@code telescope.access-token}, sent as a query parameter
+ * {@code ?token=...} or as a header {@code X-Telescope-Token: ...}.
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+public class TelescopeReactiveSecurityFilter implements WebFilter {
+
+    private static final byte[] DENIED = "{\"success\":false,\"message\":\"Telescope access denied. Provide a valid token.\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final String basePath;
+    private final String accessToken;
+
+    public TelescopeReactiveSecurityFilter(TelescopeProperties properties) {
+        this.basePath = properties.getBasePath();
+        this.accessToken = properties.getAccessToken();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (accessToken == null || accessToken.isBlank()
+                || !request.getPath().pathWithinApplication().value().startsWith(basePath)) {
+            return chain.filter(exchange);
+        }
+
+        String tokenParam = request.getQueryParams().getFirst("token");
+        String tokenHeader = request.getHeaders().getFirst("X-Telescope-Token");
+        if (accessToken.equals(tokenParam) || accessToken.equals(tokenHeader)) {
+            return chain.filter(exchange);
+        }
+
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.FORBIDDEN);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        DataBuffer body = response.bufferFactory().wrap(DENIED);
+        return response.writeWith(Mono.just(body));
+    }
+}
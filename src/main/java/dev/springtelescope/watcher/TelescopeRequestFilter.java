@@ -2,109 +2,245 @@ package dev.springtelescope.watcher;
 
 import dev.springtelescope.TelescopeProperties;
 import dev.springtelescope.context.TelescopeBatchContext;
+import dev.springtelescope.context.TelescopeRequestTimings;
+import dev.springtelescope.id.TelescopeIds;
 import dev.springtelescope.model.TelescopeEntry;
 import dev.springtelescope.model.TelescopeEntryType;
+import dev.springtelescope.model.TelescopeRequestContent;
+import dev.springtelescope.sampling.TelescopeOverloadGovernor;
+import dev.springtelescope.sampling.TelescopeSampler;
+import dev.springtelescope.sampling.TelescopeTailSampler;
 import dev.springtelescope.storage.TelescopeStorage;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
-import org.springframework.web.util.ContentCachingRequestWrapper;
-import org.springframework.web.util.ContentCachingResponseWrapper;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Order(Ordered.HIGHEST_PRECEDENCE + 10)
 public class TelescopeRequestFilter extends OncePerRequestFilter {
 
+    static final String BATCH_ID_ATTRIBUTE = "telescope.batchId";
+    static final String TIMINGS_ATTRIBUTE = "telescope.timings";
+    private static final String RESPONSE_WRAPPER_ATTRIBUTE = "telescope.responseWrapper";
+
     private final TelescopeStorage storage;
-    private final Set<String> ignoredPrefixes;
+    private final TelescopeSampler sampler;
+    private final TelescopeTailSampler tailSampler;
+    private final TelescopeOverloadGovernor governor;
+    private final TelescopeRouteRules routeRules;
+    private final int maxBodyBytes;
+    private final TelescopeCapturePolicy capturePolicy;
+    private final TelescopeNPlusOneDetector nPlusOneDetector;
 
-    public TelescopeRequestFilter(TelescopeStorage storage, TelescopeProperties properties) {
+    public TelescopeRequestFilter(TelescopeStorage storage, TelescopeSampler sampler,
+                                  TelescopeTailSampler tailSampler, TelescopeOverloadGovernor governor,
+                                  TelescopeProperties properties) {
         this.storage = storage;
-        Set<String> prefixes = new HashSet<>(properties.getIgnoredPrefixes());
-        prefixes.add(properties.getBasePath());
-        this.ignoredPrefixes = Collections.unmodifiableSet(prefixes);
+        this.sampler = sampler;
+        this.tailSampler = tailSampler;
+        this.governor = governor;
+        this.routeRules = new TelescopeRouteRules(properties);
+        this.maxBodyBytes = properties.getMaxBodyBytes();
+        this.capturePolicy = new TelescopeCapturePolicy(properties.getCapture());
+        this.nPlusOneDetector = new TelescopeNPlusOneDetector(storage, sampler,
+                properties.getQueries().getNPlusOneThreshold());
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // Async dispatches re-enter the filter so the batch context spans the whole request
+        return false;
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
 
+        if (isAsyncDispatch(request)) {
+            doFilterAsyncDispatch(request, response, chain);
+            return;
+        }
+
         String path = request.getRequestURI();
         String contextPath = request.getContextPath();
         if (contextPath != null && !contextPath.isEmpty()) {
             path = path.substring(contextPath.length());
         }
 
-        if (shouldIgnore(path) || !storage.isEnabled()) {
+        TelescopeRouteRules.Decision route = routeRules.resolve(path);
+        double routeRate = route.getSampleRate();
+        if (route.isIgnored() || !storage.isEnabled() || governor.isPaused()
+                || (routeRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= routeRate)) {
             chain.doFilter(request, response);
             return;
         }
 
-        String batchId = UUID.randomUUID().toString();
+        TelescopeRequestTimings timings = new TelescopeRequestTimings(System.nanoTime());
+        String batchId = TelescopeIds.next();
         TelescopeBatchContext.set(batchId);
+        TelescopeBatchContext.setTimings(timings);
+        request.setAttribute(BATCH_ID_ATTRIBUTE, batchId);
+        request.setAttribute(TIMINGS_ATTRIBUTE, timings);
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(BATCH_ID_ATTRIBUTE, CALLABLE_BATCH_PROPAGATION);
+        boolean staging = tailSampler.begin();
 
-        ContentCachingRequestWrapper wrappedRequest = new ContentCachingRequestWrapper(request);
-        ContentCachingResponseWrapper wrappedResponse = new ContentCachingResponseWrapper(response);
+        // Metadata-only routes, and bodies shed under load, skip the capturing wrappers entirely
+        boolean captureBodies = route.capturesBodies() && governor.capturesBodies() && maxBodyBytes > 0;
+        HttpServletRequest wrappedRequest = captureBodies
+                ? new TelescopeCapturingRequestWrapper(request, maxBodyBytes, capturePolicy) : request;
+        HttpServletResponse wrappedResponse = captureBodies
+                ? new TelescopeCapturingResponseWrapper(response, maxBodyBytes, capturePolicy) : response;
+        if (wrappedResponse instanceof TelescopeCapturingResponseWrapper) {
+            request.setAttribute(RESPONSE_WRAPPER_ATTRIBUTE, wrappedResponse);
+        }
 
-        long startTime = System.currentTimeMillis();
+        boolean failed = false;
 
         try {
             chain.doFilter(wrappedRequest, wrappedResponse);
+        } catch (ServletException | IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        } finally {
+            if (!failed && isAsyncStarted(wrappedRequest)) {
+                // DeferredResult, Callable, WebAsyncTask, SSE: record once the async processing completes
+                if (wrappedResponse instanceof TelescopeCapturingResponseWrapper capturingResponse) {
+                    // The body is written later, possibly on another thread
+                    capturingResponse.skipCapture("async");
+                }
+                TelescopeBatchContext.Staged staged = staging ? tailSampler.detach() : null;
+                wrappedRequest.getAsyncContext().addListener(
+                        new CompletionListener(wrappedRequest, wrappedResponse, batchId, timings, routeRate, staged));
+            } else {
+                finish(wrappedRequest, wrappedResponse, batchId, timings, routeRate, failed, staging);
+            }
+            TelescopeBatchContext.clear();
+        }
+    }
+
+    private void doFilterAsyncDispatch(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Object batchId = request.getAttribute(BATCH_ID_ATTRIBUTE);
+        if (!(batchId instanceof String id)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        TelescopeBatchContext.set(id);
+        if (request.getAttribute(TIMINGS_ATTRIBUTE) instanceof TelescopeRequestTimings timings) {
+            TelescopeBatchContext.setTimings(timings);
+        }
+        try {
+            chain.doFilter(request, response);
         } finally {
-            long duration = System.currentTimeMillis() - startTime;
-            String capturedUser = (String) wrappedRequest.getAttribute("telescope.userIdentifier");
-            String capturedTenant = (String) wrappedRequest.getAttribute("telescope.tenantId");
-            recordRequest(wrappedRequest, wrappedResponse, batchId, duration, capturedUser, capturedTenant);
-            wrappedResponse.copyBodyToResponse();
+            if (request.getAttribute(RESPONSE_WRAPPER_ATTRIBUTE) instanceof TelescopeCapturingResponseWrapper wrapper) {
+                wrapper.flushWriter();
+            }
             TelescopeBatchContext.clear();
         }
     }
 
-    private void recordRequest(ContentCachingRequestWrapper request,
-                               ContentCachingResponseWrapper response,
-                               String batchId, long duration,
+    private void finish(HttpServletRequest request, HttpServletResponse response, String batchId,
+                        TelescopeRequestTimings timings, double routeRate, boolean failed, boolean staging) {
+        long endNanos = System.nanoTime();
+        long durationNanos = endNanos - timings.getStartNanos();
+        long duration = durationNanos / 1_000_000;
+        if (response instanceof TelescopeCapturingResponseWrapper capturingResponse) {
+            capturingResponse.flushWriter();
+        }
+        String capturedUser = (String) request.getAttribute("telescope.userIdentifier");
+        String capturedTenant = (String) request.getAttribute("telescope.tenantId");
+        long captureStart = System.nanoTime();
+        // An exception escaping the chain becomes a 500 only after this filter returns
+        int status = (failed && response.getStatus() < 400) ? 500 : response.getStatus();
+        List<TelescopeNPlusOneDetector.Finding> nPlusOne = nPlusOneDetector.detect(timings);
+        recordRequest(request, response, batchId, status, timings, endNanos, routeRate, nPlusOne,
+                capturedUser, capturedTenant);
+        nPlusOneDetector.record(batchId, nPlusOne, capturedUser, capturedTenant);
+        if (staging) {
+            tailSampler.complete(storage, status, failed, duration);
+        }
+        governor.recordCapture(System.nanoTime() - captureStart);
+        governor.recordRequest(duration);
+    }
+
+    private void recordRequest(HttpServletRequest request,
+                               HttpServletResponse response,
+                               String batchId, int status, TelescopeRequestTimings timings,
+                               long endNanos, double routeRate,
+                               List<TelescopeNPlusOneDetector.Finding> nPlusOne,
                                String userIdentifier, String tenantId) {
+        boolean error = status >= 500;
+        if (!sampler.sample(TelescopeEntryType.REQUEST, error)) return;
+
         try {
-            Map<String, Object> content = new LinkedHashMap<>();
-            content.put("method", request.getMethod());
-            content.put("uri", request.getRequestURI());
-            content.put("queryString", request.getQueryString());
-            content.put("status", response.getStatus());
-            content.put("duration", duration);
-            content.put("ipAddress", request.getRemoteAddr());
-            content.put("contentType", request.getContentType());
-            content.put("responseContentType", response.getContentType());
-            content.put("requestHeaders", extractHeaders(request));
-            content.put("responseHeaders", extractResponseHeaders(response));
-
-            String requestBody = new String(request.getContentAsByteArray(), StandardCharsets.UTF_8);
-            if (requestBody.length() > 10000) {
-                requestBody = requestBody.substring(0, 10000) + "... [truncated]";
+            TelescopeRequestContent.TelescopeRequestContentBuilder content = TelescopeRequestContent.builder()
+                    .method(request.getMethod())
+                    .uri(request.getRequestURI())
+                    .queryString(request.getQueryString())
+                    .status(status)
+                    .durationNanos(endNanos - timings.getStartNanos())
+                    .timings(timings.toMap(endNanos))
+                    .ipAddress(request.getRemoteAddr())
+                    .contentType(request.getContentType())
+                    .responseContentType(response.getContentType());
+            if (governor.capturesHeaders()) {
+                content.requestHeaders(extractHeaders(request))
+                        .responseHeaders(extractResponseHeaders(response));
+            }
+
+            if (request instanceof TelescopeCapturingRequestWrapper capturingRequest) {
+                TelescopeBodyCapture capture = capturingRequest.getCapture();
+                content.requestCaptured(true)
+                        .requestBody(capturingRequest.getBodyAsString())
+                        .requestSize(capture.getTotalBytes())
+                        .requestBodySkipped(capture.isSkipped() ? capture.getSkipReason() : null);
             }
-            content.put("requestBody", requestBody);
 
-            String responseBody = new String(response.getContentAsByteArray(), StandardCharsets.UTF_8);
-            if (responseBody.length() > 10000) {
-                responseBody = responseBody.substring(0, 10000) + "... [truncated]";
+            if (response instanceof TelescopeCapturingResponseWrapper capturingResponse) {
+                TelescopeBodyCapture capture = capturingResponse.getCapture();
+                content.responseCaptured(true)
+                        .responseBody(capturingResponse.getBodyAsString())
+                        .responseSize(capture.getTotalBytes())
+                        .responseBodySkipped(capture.isSkipped() ? capture.getSkipReason() : null);
             }
-            content.put("responseBody", responseBody);
 
-            storage.store(TelescopeEntry.builder()
-                    .uuid(UUID.randomUUID().toString())
+            List<String> tags = new ArrayList<>();
+            if (!nPlusOne.isEmpty()) {
+                List<Map<String, Object>> repeated = new ArrayList<>();
+                for (TelescopeNPlusOneDetector.Finding finding : nPlusOne) {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("entity", finding.entity());
+                    item.put("count", finding.count());
+                    item.put("fingerprint", finding.fingerprint());
+                    repeated.add(item);
+                    if (!tags.contains(finding.tag())) tags.add(finding.tag());
+                }
+                content.nPlusOne(repeated);
+            }
+
+            storage.record(TelescopeEntry.builder()
+                    .uuid(TelescopeIds.next())
                     .type(TelescopeEntryType.REQUEST)
-                    .createdAt(LocalDateTime.now())
                     .batchId(batchId)
-                    .content(content)
+                    .typedContent(content.build())
                     .userIdentifier(userIdentifier)
                     .tenantId(tenantId)
+                    .tags(tags)
+                    .sampleRate(routeRate * sampler.getRate(TelescopeEntryType.REQUEST, error))
                     .build());
         } catch (Exception ignored) {
         }
@@ -125,7 +261,7 @@ public class TelescopeRequestFilter extends OncePerRequestFilter {
         return headers;
     }
 
-    private Map<String, String> extractResponseHeaders(ContentCachingResponseWrapper response) {
+    private Map<String, String> extractResponseHeaders(HttpServletResponse response) {
         Map<String, String> headers = new LinkedHashMap<>();
         for (String name : response.getHeaderNames()) {
             headers.put(name, response.getHeader(name));
@@ -133,7 +269,81 @@ public class TelescopeRequestFilter extends OncePerRequestFilter {
         return headers;
     }
 
-    private boolean shouldIgnore(String path) {
-        return ignoredPrefixes.stream().anyMatch(path::startsWith);
+
+    /**
+     * Records the request once async processing completes, times out or fails,
+     * with the final status and the full duration.
+     */
+    private class CompletionListener implements AsyncListener {
+
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final String batchId;
+        private final TelescopeRequestTimings timings;
+        private final double routeRate;
+        private final TelescopeBatchContext.Staged staged;
+        private volatile boolean failed;
+
+        CompletionListener(HttpServletRequest request, HttpServletResponse response, String batchId,
+                           TelescopeRequestTimings timings, double routeRate, TelescopeBatchContext.Staged staged) {
+            this.request = request;
+            this.response = response;
+            this.batchId = batchId;
+            this.timings = timings;
+            this.routeRate = routeRate;
+            this.staged = staged;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            TelescopeBatchContext.set(batchId);
+            try {
+                if (staged != null) {
+                    tailSampler.resume(staged);
+                }
+                finish(request, response, batchId, timings, routeRate, failed, staged != null);
+            } finally {
+                TelescopeBatchContext.clear();
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // A new async cycle drops registered listeners; stay attached until the request completes
+            event.getAsyncContext().addListener(this);
+        }
     }
+
+    /**
+     * Carries the batch id and request timings onto the thread that runs a controller's {@code Callable}
+     * or {@code WebAsyncTask}.
+     */
+    private static final CallableProcessingInterceptor CALLABLE_BATCH_PROPAGATION = new CallableProcessingInterceptor() {
+        @Override
+        public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+            Object batchId = request.getAttribute(BATCH_ID_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (batchId instanceof String id) {
+                TelescopeBatchContext.set(id);
+            }
+            Object timings = request.getAttribute(TIMINGS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (timings instanceof TelescopeRequestTimings requestTimings) {
+                TelescopeBatchContext.setTimings(requestTimings);
+            }
+        }
+
+        @Override
+        public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+            TelescopeBatchContext.clear();
+        }
+    };
 }
@@ -0,0 +1,49 @@
+package dev.springtelescope.watcher;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Adds the {@link TelescopeHttpClientInterceptor} to {@link RestTemplate}
+ * beans created directly rather than through {@code RestTemplateBuilder},
+ * which the builder customizer does not reach.
+ * <p>
+ * Registered only with {@code telescope.http-client.rest-template-beans=true}:
+ * adding an interceptor makes a template wrap its request factory in an
+ * {@code InterceptingClientHttpRequestFactory}, which buffers every request
+ * body in memory, a change a template built with {@code new} did not opt into.
+ * <p>
+ * As with the cache manager post-processor, the watcher is looked up only
+ * after all singletons exist; until then the interceptor passes calls through.
+ */
+public class TelescopeRestTemplatePostProcessor implements BeanPostProcessor, SmartInitializingSingleton {
+
+    private final TelescopeHttpClientInterceptor interceptor = new TelescopeHttpClientInterceptor("RestTemplate");
+    private final ObjectProvider<TelescopeHttpClientWatcher> watcher;
+
+    public TelescopeRestTemplatePostProcessor(ObjectProvider<TelescopeHttpClientWatcher> watcher) {
+        this.watcher = watcher;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof RestTemplate restTemplate) {
+            for (ClientHttpRequestInterceptor existing : restTemplate.getInterceptors()) {
+                if (existing instanceof TelescopeHttpClientInterceptor) return bean;
+            }
+            restTemplate.getInterceptors().add(interceptor);
+        }
+        return bean;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        TelescopeHttpClientWatcher telescopeWatcher = watcher.getIfAvailable();
+        if (telescopeWatcher != null) {
+            interceptor.activate(telescopeWatcher);
+        }
+    }
+}
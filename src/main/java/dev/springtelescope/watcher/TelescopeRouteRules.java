@@ -0,0 +1,229 @@
+package dev.springtelescope.watcher;
+
+import dev.springtelescope.TelescopeProperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Per-route capture decisions, compiled once at startup.
+ * <p>
+ * Literal prefixes ({@code ignored-prefixes}, {@code capture.metadata-only-prefixes}
+ * and route patterns without wildcards other than a trailing {@code /**}) live in
+ * a character trie; the remaining Ant-style patterns ({@code *}, {@code **},
+ * {@code ?}) are matched by a small backtracking matcher over the path
+ * characters. Neither allocates while matching. When several rules match, the
+ * one declared first wins: the Telescope base path, then {@code telescope.routes}
+ * in order, then the legacy prefix lists.
+ * <p>
+ * Decisions are not cached: the filters run before handler mapping, so only
+ * the raw path is known, and a cache keyed on it would fill up with one-off
+ * paths such as {@code /orders/123}.
+ */
+public class TelescopeRouteRules {
+
+    public static final Decision CAPTURE_BODIES = new Decision(TelescopeProperties.CaptureMode.BODIES, 1.0);
+
+    private final TrieNode root = new TrieNode();
+    private final PatternRule[] patterns;
+
+    public TelescopeRouteRules(TelescopeProperties properties) {
+        List<PatternRule> patternRules = new ArrayList<>();
+        int order = 0;
+
+        addPrefix(properties.getBasePath(), false, order++,
+                new Decision(TelescopeProperties.CaptureMode.IGNORE, 1.0));
+
+        for (TelescopeProperties.RouteRule rule : properties.getRoutes()) {
+            if (rule.getPattern() == null || rule.getPattern().isBlank()) continue;
+            String pattern = rule.getPattern().trim();
+            Decision decision = new Decision(rule.getCapture(), rule.getSampleRate());
+            String literal = pattern.endsWith("/**") ? pattern.substring(0, pattern.length() - 3) : null;
+            if (literal != null && !hasWildcard(literal)) {
+                addPrefix(literal, true, order++, decision);
+            } else if (!hasWildcard(pattern)) {
+                addExact(pattern, order++, decision);
+            } else {
+                patternRules.add(new PatternRule(pattern, order++, decision));
+            }
+        }
+
+        Decision ignore = new Decision(TelescopeProperties.CaptureMode.IGNORE, 1.0);
+        for (String prefix : properties.getIgnoredPrefixes()) {
+            addPrefix(prefix, false, order++, ignore);
+        }
+        Decision metadata = new Decision(TelescopeProperties.CaptureMode.METADATA, 1.0);
+        for (String prefix : properties.getCapture().getMetadataOnlyPrefixes()) {
+            addPrefix(prefix, false, order++, metadata);
+        }
+
+        this.patterns = patternRules.toArray(new PatternRule[0]);
+    }
+
+    /**
+     * Resolves the capture decision for a context-relative request path.
+     */
+    public Decision resolve(String path) {
+        int bestOrder = Integer.MAX_VALUE;
+        Decision best = CAPTURE_BODIES;
+
+        // Trie walk: every node passed is a matching prefix candidate
+        TrieNode node = root;
+        int length = path.length();
+        for (int i = 0; ; i++) {
+            if (node.prefixDecision != null && node.prefixOrder < bestOrder
+                    && (!node.segmentBoundary || i == length || path.charAt(i) == '/')) {
+                bestOrder = node.prefixOrder;
+                best = node.prefixDecision;
+            }
+            if (i == length) {
+                if (node.exactDecision != null && node.exactOrder < bestOrder) {
+                    bestOrder = node.exactOrder;
+                    best = node.exactDecision;
+                }
+                break;
+            }
+            node = node.child(path.charAt(i));
+            if (node == null) break;
+        }
+
+        for (PatternRule rule : patterns) {
+            if (rule.order >= bestOrder) break;
+            if (matches(rule.pattern, 0, path, 0)) {
+                return rule.decision;
+            }
+        }
+        return best;
+    }
+
+    private void addPrefix(String prefix, boolean segmentBoundary, int order, Decision decision) {
+        if (prefix == null || prefix.isEmpty()) return;
+        TrieNode node = insert(prefix);
+        if (node.prefixDecision == null || order < node.prefixOrder) {
+            node.prefixDecision = decision;
+            node.prefixOrder = order;
+            node.segmentBoundary = segmentBoundary;
+        }
+    }
+
+    private void addExact(String path, int order, Decision decision) {
+        TrieNode node = insert(path);
+        if (node.exactDecision == null || order < node.exactOrder) {
+            node.exactDecision = decision;
+            node.exactOrder = order;
+        }
+    }
+
+    private TrieNode insert(String key) {
+        TrieNode node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.childOrCreate(key.charAt(i));
+        }
+        return node;
+    }
+
+    private static boolean hasWildcard(String pattern) {
+        return pattern.indexOf('*') >= 0 || pattern.indexOf('?') >= 0;
+    }
+
+    /**
+     * Ant-style match: {@code ?} is one character, {@code *} is any run of
+     * characters within a segment, {@code **} spans segments.
+     */
+    static boolean matches(String pattern, int pi, String path, int si) {
+        int plen = pattern.length();
+        int slen = path.length();
+        while (pi < plen) {
+            char c = pattern.charAt(pi);
+            if (c == '*') {
+                if (pi + 1 < plen && pattern.charAt(pi + 1) == '*') {
+                    pi += 2;
+                    if (pi == plen) return true;
+                    boolean slashFollows = pattern.charAt(pi) == '/';
+                    for (int k = si; k <= slen; k++) {
+                        if (matches(pattern, pi, path, k)) return true;
+                        // "/**/" may also match zero segments
+                        if (slashFollows && k == si && matches(pattern, pi + 1, path, k)) return true;
+                    }
+                    return false;
+                }
+                pi++;
+                for (int k = si; ; k++) {
+                    if (matches(pattern, pi, path, k)) return true;
+                    if (k == slen || path.charAt(k) == '/') return false;
+                }
+            }
+            if (si >= slen) {
+                // A trailing "/**" also matches the bare parent path
+                return pattern.startsWith("/**", pi) && pi + 3 == plen;
+            }
+            char s = path.charAt(si);
+            if (c == '?' ? s == '/' : s != c) return false;
+            pi++;
+            si++;
+        }
+        return si == slen;
+    }
+
+    /**
+     * Immutable per-rule decision, shared by every request that matches it.
+     */
+    public static final class Decision {
+        private final TelescopeProperties.CaptureMode mode;
+        private final double sampleRate;
+
+        Decision(TelescopeProperties.CaptureMode mode, double sampleRate) {
+            this.mode = mode != null ? mode : TelescopeProperties.CaptureMode.BODIES;
+            this.sampleRate = Math.max(0.0, Math.min(1.0, sampleRate));
+        }
+
+        public TelescopeProperties.CaptureMode getMode() {
+            return mode;
+        }
+
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public boolean isIgnored() {
+            return mode == TelescopeProperties.CaptureMode.IGNORE;
+        }
+
+        public boolean capturesBodies() {
+            return mode == TelescopeProperties.CaptureMode.BODIES;
+        }
+    }
+
+    private record PatternRule(String pattern, int order, Decision decision) {
+    }
+
+    private static final class TrieNode {
+        private char[] keys = new char[0];
+        private TrieNode[] children = new TrieNode[0];
+        private Decision prefixDecision;
+        private int prefixOrder;
+        private boolean segmentBoundary;
+        private Decision exactDecision;
+        private int exactOrder;
+
+        TrieNode child(char c) {
+            char[] k = keys;
+            for (int i = 0; i < k.length; i++) {
+                if (k[i] == c) return children[i];
+            }
+            return null;
+        }
+
+        TrieNode childOrCreate(char c) {
+            TrieNode existing = child(c);
+            if (existing != null) return existing;
+            int n = keys.length;
+            keys = Arrays.copyOf(keys, n + 1);
+            children = Arrays.copyOf(children, n + 1);
+            keys[n] = c;
+            children[n] = new TrieNode();
+            return children[n];
+        }
+    }
+}
@@ -1,43 +1,101 @@
 package dev.springtelescope.watcher;
 
+import dev.springtelescope.TelescopeProperties;
+import dev.springtelescope.aggregate.TelescopeScheduleStats;
 import dev.springtelescope.context.TelescopeBatchContext;
+import dev.springtelescope.context.TelescopeRequestTimings;
+import dev.springtelescope.context.TelescopeUserProvider;
+import dev.springtelescope.id.TelescopeIds;
 import dev.springtelescope.model.TelescopeEntry;
 import dev.springtelescope.model.TelescopeEntryType;
+import dev.springtelescope.sampling.TelescopeSampler;
+import dev.springtelescope.sampling.TelescopeTailSampler;
 import dev.springtelescope.storage.TelescopeStorage;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.util.ClassUtils;
 
-import java.time.LocalDateTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Records each run of a {@code @Scheduled} method as a SCHEDULE entry under
+ * its own batch, and feeds the per-job {@link TelescopeScheduleStats}.
+ * <p>
+ * The job's trigger is read from its annotation on the first run. Fixed rates
+ * and delays must be literal values and cron expressions must not use
+ * placeholders; otherwise overruns are not detected for that job.
+ * <p>
+ * A job invoked directly from a request or another job runs under its own
+ * batch; the caller's batch and tail-sampling staging area are put back once
+ * the job returns.
+ * <p>
+ * Queries are counted per run as they are per request, so a job that repeats
+ * the same SELECT is reported by the {@link TelescopeNPlusOneDetector}.
+ */
 @Aspect
 public class TelescopeScheduleAspect {
 
     private final TelescopeStorage storage;
+    private final TelescopeUserProvider userProvider;
+    private final TelescopeSampler sampler;
+    private final TelescopeTailSampler tailSampler;
+    private final TelescopeScheduleStats scheduleStats;
+    private final TelescopeNPlusOneDetector nPlusOneDetector;
 
-    public TelescopeScheduleAspect(TelescopeStorage storage) {
+    public TelescopeScheduleAspect(TelescopeStorage storage, TelescopeUserProvider userProvider, TelescopeSampler sampler,
+                                   TelescopeTailSampler tailSampler, TelescopeScheduleStats scheduleStats,
+                                   TelescopeProperties properties) {
         this.storage = storage;
+        this.userProvider = userProvider;
+        this.sampler = sampler;
+        this.tailSampler = tailSampler;
+        this.scheduleStats = scheduleStats;
+        this.nPlusOneDetector = new TelescopeNPlusOneDetector(storage, sampler,
+                properties.getQueries().getNPlusOneThreshold());
     }
 
-    @Around("@annotation(org.springframework.scheduling.annotation.Scheduled)")
-    public Object aroundScheduled(ProceedingJoinPoint joinPoint) throws Throwable {
+    @Around("@annotation(scheduled)")
+    public Object aroundScheduled(ProceedingJoinPoint joinPoint, Scheduled scheduled) throws Throwable {
         if (!storage.isEnabled()) {
             return joinPoint.proceed();
         }
 
         // Skip telescope's own scheduled tasks to avoid circular recording
-        String targetClass = joinPoint.getTarget().getClass().getName();
-        if (targetClass.startsWith("dev.springtelescope")) {
+        Class<?> targetClass = ClassUtils.getUserClass(joinPoint.getTarget().getClass());
+        if (targetClass.getName().startsWith("dev.springtelescope")) {
             return joinPoint.proceed();
         }
 
-        String batchId = UUID.randomUUID().toString();
+        TelescopeBatchContext.Snapshot outer = TelescopeBatchContext.current();
+        TelescopeBatchContext.Staged outerStaged = TelescopeBatchContext.isStaging()
+                ? TelescopeBatchContext.stopStaging() : null;
+        String batchId = TelescopeIds.next();
+        TelescopeBatchContext.restore(null);
         TelescopeBatchContext.set(batchId);
+        // A job has no authentication step to wait for; resolve its identity once, even if anonymous
+        TelescopeBatchContext.Identity identity = TelescopeBatchContext.identity(userProvider);
+        TelescopeBatchContext.setIdentity(identity);
+        boolean staging = tailSampler.begin();
 
-        long startTime = System.currentTimeMillis();
+        String method = joinPoint.getSignature().getName();
+        TelescopeScheduleStats.Job job = scheduleStats.job(targetClass.getName() + "." + method,
+                key -> triggerOf(scheduled));
+        long startMillis = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        TelescopeRequestTimings timings = new TelescopeRequestTimings(startNanos);
+        TelescopeBatchContext.setTimings(timings);
+        boolean overlapping = job.start(startMillis);
         String status = "completed";
         String exception = null;
 
@@ -48,26 +106,103 @@ public class TelescopeScheduleAspect {
             exception = t.getClass().getSimpleName() + ": " + t.getMessage();
             throw t;
         } finally {
-            long duration = System.currentTimeMillis() - startTime;
-
-            Map<String, Object> content = new LinkedHashMap<>();
-            content.put("class", joinPoint.getTarget().getClass().getSimpleName());
-            content.put("method", joinPoint.getSignature().getName());
-            content.put("status", status);
-            content.put("duration", duration);
-            if (exception != null) {
-                content.put("exception", exception);
-            }
+            long durationNanos = System.nanoTime() - startNanos;
+            long duration = durationNanos / 1_000_000;
+            boolean failed = exception != null;
+            boolean overrun = job.finish(startMillis, durationNanos, failed, batchId);
+            boolean exceedsDelay = job.exceedsDelay(durationNanos);
+            List<TelescopeNPlusOneDetector.Finding> nPlusOne = nPlusOneDetector.detect(timings);
+
+            if (sampler.sample(TelescopeEntryType.SCHEDULE, failed || overrun)) {
+                Map<String, Object> content = new LinkedHashMap<>();
+                content.put("class", targetClass.getSimpleName());
+                content.put("method", method);
+                content.put("status", status);
+                content.put("duration", duration);
+                content.put("durationNanos", durationNanos);
+                if (overrun) {
+                    content.put("overrun", true);
+                }
+                if (exceedsDelay) {
+                    content.put("exceedsDelay", true);
+                }
+                if (overlapping) {
+                    content.put("overlapping", true);
+                }
+                if (exception != null) {
+                    content.put("exception", exception);
+                }
 
-            storage.store(TelescopeEntry.builder()
-                    .uuid(UUID.randomUUID().toString())
-                    .type(TelescopeEntryType.SCHEDULE)
-                    .createdAt(LocalDateTime.now())
-                    .batchId(batchId)
-                    .content(content)
-                    .build());
+                List<String> tags = new ArrayList<>();
+                if (overrun) tags.add("overrun");
+                if (exceedsDelay) tags.add("exceeds-delay");
+                if (overlapping) tags.add("overlap");
+                if (!nPlusOne.isEmpty()) {
+                    List<Map<String, Object>> repeated = new ArrayList<>();
+                    for (TelescopeNPlusOneDetector.Finding finding : nPlusOne) {
+                        Map<String, Object> item = new LinkedHashMap<>();
+                        item.put("entity", finding.entity());
+                        item.put("count", finding.count());
+                        item.put("fingerprint", finding.fingerprint());
+                        repeated.add(item);
+                        if (!tags.contains(finding.tag())) tags.add(finding.tag());
+                    }
+                    content.put("nPlusOne", repeated);
+                }
 
+                storage.record(TelescopeEntry.builder()
+                        .uuid(TelescopeIds.next())
+                        .type(TelescopeEntryType.SCHEDULE)
+                        .batchId(batchId)
+                        .content(content)
+                        .tags(tags)
+                        .sampleRate(sampler.getRate(TelescopeEntryType.SCHEDULE, failed || overrun))
+                        .build());
+            }
+            nPlusOneDetector.record(batchId, nPlusOne, identity.userIdentifier(), identity.tenantId());
+
+            if (staging) {
+                tailSampler.complete(storage, 0, failed, duration);
+            }
             TelescopeBatchContext.clear();
+            TelescopeBatchContext.restore(outer);
+            if (outerStaged != null) {
+                TelescopeBatchContext.resumeStaging(outerStaged);
+            }
+        }
+    }
+
+    static TelescopeScheduleStats.Trigger triggerOf(Scheduled scheduled) {
+        try {
+            String cron = scheduled.cron();
+            if (!cron.isEmpty() && !Scheduled.CRON_DISABLED.equals(cron)) {
+                CronExpression expression = CronExpression.parse(cron);
+                ZoneId zone = scheduled.zone().isEmpty() ? ZoneId.systemDefault() : ZoneId.of(scheduled.zone());
+                return new TelescopeScheduleStats.Trigger("cron " + cron, start -> {
+                    ZonedDateTime next = expression.next(Instant.ofEpochMilli(start).atZone(zone));
+                    return next != null ? next.toInstant().toEpochMilli() : -1;
+                });
+            }
+            long rate = millis(scheduled.fixedRate(), scheduled.fixedRateString(), scheduled.timeUnit());
+            if (rate > 0) {
+                return new TelescopeScheduleStats.Trigger("fixedRate " + rate + "ms", start -> start + rate);
+            }
+            long delay = millis(scheduled.fixedDelay(), scheduled.fixedDelayString(), scheduled.timeUnit());
+            if (delay > 0) {
+                return TelescopeScheduleStats.Trigger.fixedDelay(delay);
+            }
+        } catch (Exception ignored) {
+        }
+        return TelescopeScheduleStats.Trigger.UNKNOWN;
+    }
+
+    private static long millis(long value, String text, TimeUnit unit) {
+        if (value > 0) return unit.toMillis(value);
+        if (text == null || text.isBlank()) return -1;
+        try {
+            return unit.toMillis(Long.parseLong(text.trim()));
+        } catch (NumberFormatException e) {
+            return Duration.parse(text.trim()).toMillis();
         }
     }
 }
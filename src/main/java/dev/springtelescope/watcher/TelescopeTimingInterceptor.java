@@ -0,0 +1,67 @@
+package dev.springtelescope.watcher;
+
+import dev.springtelescope.context.TelescopeBatchContext;
+import dev.springtelescope.context.TelescopeRequestTimings;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Marks the MVC phases of a request on its {@link TelescopeRequestTimings}:
+ * handler start ({@code preHandle}), handler end ({@code beforeBodyWrite} for
+ * {@code @ResponseBody} handlers, {@code postHandle} for views) and completion
+ * ({@code afterCompletion}). The request filter turns the marks into the
+ * {@code timings} breakdown on the REQUEST entry.
+ * <p>
+ * Requests the filter does not record carry no timings, so every hook is a
+ * single thread-local read for them.
+ */
+@ControllerAdvice
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class TelescopeTimingInterceptor implements HandlerInterceptor, ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        TelescopeRequestTimings timings = TelescopeBatchContext.getTimings();
+        if (timings != null) timings.markHandlerStart();
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        TelescopeRequestTimings timings = TelescopeBatchContext.getTimings();
+        if (timings != null) timings.markHandlerEnd();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        TelescopeRequestTimings timings = TelescopeBatchContext.getTimings();
+        if (timings != null) timings.markCompletion();
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        TelescopeRequestTimings timings = TelescopeBatchContext.getTimings();
+        if (timings != null) timings.markHandlerEnd();
+        return body;
+    }
+}
@@ -0,0 +1,65 @@
+package dev.springtelescope.watcher;
+
+import dev.springtelescope.context.TelescopeBatchContext;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Times calls made with {@code WebClient}.
+ * <p>
+ * The batch is taken from the Reactor {@code Context} of the subscriber, as
+ * written by {@link TelescopeWebFilter}, or from the subscribing thread when
+ * the client is blocked on from a servlet request. The call is recorded when
+ * the response body completes or is cancelled; a call cancelled before any
+ * response arrived (e.g. by a timeout) is recorded as failed.
+ */
+public class TelescopeWebClientFilter implements ExchangeFilterFunction {
+
+    private static final String URI_TEMPLATE_ATTRIBUTE = WebClient.class.getName() + ".uriTemplate";
+
+    private final TelescopeHttpClientWatcher watcher;
+
+    public TelescopeWebClientFilter(TelescopeHttpClientWatcher watcher) {
+        this.watcher = watcher;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.deferContextual(context -> {
+            TelescopeBatchContext.Snapshot batch = context.getOrDefault(TelescopeBatchContext.CONTEXT_KEY, null);
+            String uriTemplate = request.attribute(URI_TEMPLATE_ATTRIBUTE).map(Object::toString).orElse(null);
+            TelescopeHttpClientWatcher.Call call = watcher.start("WebClient", request.method().name(), request.url(),
+                    uriTemplate, request.headers().getContentLength(), batch);
+            if (call == null) {
+                return next.exchange(request);
+            }
+            return next.exchange(request)
+                    .map(response -> {
+                        call.headersReceived();
+                        int status = response.statusCode().value();
+                        AtomicLong bytes = new AtomicLong();
+                        return response.mutate()
+                                .body(body -> body
+                                        .doOnNext(buffer -> bytes.addAndGet(buffer.readableByteCount()))
+                                        // Before the signal reaches the caller, so the time counts
+                                        // towards a request that completes right after
+                                        .doOnTerminate(() -> call.finish(status, bytes.get(), null))
+                                        .doOnCancel(() -> call.finish(status, bytes.get(), null)))
+                                .build();
+                    })
+                    .doOnError(e -> call.finish(0, 0, e))
+                    .doOnCancel(() -> {
+                        if (!call.hasResponse()) {
+                            call.finish(0, 0, new CancellationException("Cancelled before a response was received"));
+                        }
+                    });
+        });
+    }
+}
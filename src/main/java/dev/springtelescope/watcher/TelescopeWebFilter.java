@@ -0,0 +1,322 @@
+package dev.springtelescope.watcher;
+
+import dev.springtelescope.TelescopeProperties;
+import dev.springtelescope.context.TelescopeBatchContext;
+import dev.springtelescope.context.TelescopeRequestTimings;
+import dev.springtelescope.id.TelescopeIds;
+import dev.springtelescope.model.TelescopeEntry;
+import dev.springtelescope.model.TelescopeEntryType;
+import dev.springtelescope.model.TelescopeRequestContent;
+import dev.springtelescope.sampling.TelescopeOverloadGovernor;
+import dev.springtelescope.sampling.TelescopeSampler;
+import dev.springtelescope.storage.TelescopeStorage;
+import org.reactivestreams.Publisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Reactive counterpart of {@link TelescopeRequestFilter} for WebFlux
+ * applications.
+ * <p>
+ * Nothing here blocks or waits for a body: request and response bodies are
+ * copied into a bounded {@link TelescopeBodyCapture} as their buffers pass
+ * through, and the entry is recorded when the exchange completes. The batch
+ * travels in the Reactor {@code Context} under
+ * {@link TelescopeBatchContext#CONTEXT_KEY}; with automatic context
+ * propagation enabled it is also restored into the thread-locals watchers
+ * read.
+ * <p>
+ * Tail sampling is not applied: its staging area is bound to a single
+ * thread, which a reactive request does not have.
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class TelescopeWebFilter implements WebFilter {
+
+    static final String SNAPSHOT_ATTRIBUTE = "telescope.batch";
+    static final String IDENTITY_ATTRIBUTE = "telescope.identity";
+
+    private final TelescopeStorage storage;
+    private final TelescopeSampler sampler;
+    private final TelescopeOverloadGovernor governor;
+    private final TelescopeExceptionRecorder exceptionRecorder;
+    private final TelescopeRouteRules routeRules;
+    private final int maxBodyBytes;
+    private final TelescopeCapturePolicy capturePolicy;
+    private final TelescopeNPlusOneDetector nPlusOneDetector;
+
+    public TelescopeWebFilter(TelescopeStorage storage, TelescopeSampler sampler, TelescopeOverloadGovernor governor,
+                              TelescopeExceptionRecorder exceptionRecorder, TelescopeProperties properties) {
+        this.storage = storage;
+        this.sampler = sampler;
+        this.governor = governor;
+        this.exceptionRecorder = exceptionRecorder;
+        this.routeRules = new TelescopeRouteRules(properties);
+        this.maxBodyBytes = properties.getMaxBodyBytes();
+        this.capturePolicy = new TelescopeCapturePolicy(properties.getCapture());
+        this.nPlusOneDetector = new TelescopeNPlusOneDetector(storage, sampler,
+                properties.getQueries().getNPlusOneThreshold());
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        TelescopeRouteRules.Decision route = routeRules.resolve(path);
+        double routeRate = route.getSampleRate();
+        if (route.isIgnored() || !storage.isEnabled() || governor.isPaused()
+                || (routeRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= routeRate)) {
+            return chain.filter(exchange);
+        }
+
+        TelescopeRequestTimings timings = new TelescopeRequestTimings(System.nanoTime());
+        TelescopeBatchContext.Snapshot snapshot = new TelescopeBatchContext.Snapshot(TelescopeIds.next(), timings, null);
+        exchange.getAttributes().put(SNAPSHOT_ATTRIBUTE, snapshot);
+
+        // Metadata-only routes, and bodies shed under load, skip the capturing decorators entirely
+        ServerWebExchange observed = exchange;
+        if (route.capturesBodies() && governor.capturesBodies() && maxBodyBytes > 0) {
+            observed = exchange.mutate()
+                    .request(new CapturingRequest(exchange.getRequest()))
+                    .response(new CapturingResponse(exchange.getResponse()))
+                    .build();
+        }
+
+        Completion completion = new Completion(observed, snapshot, routeRate);
+        return chain.filter(observed)
+                .doOnError(completion::failed)
+                .doFinally(completion::finish)
+                .contextWrite(context -> context.put(TelescopeBatchContext.CONTEXT_KEY, snapshot));
+    }
+
+    /**
+     * Records the exchange once its processing completes, fails or is
+     * cancelled by the client.
+     */
+    private final class Completion {
+
+        private final ServerWebExchange exchange;
+        private final TelescopeBatchContext.Snapshot snapshot;
+        private final double routeRate;
+        private int errorStatus;
+
+        Completion(ServerWebExchange exchange, TelescopeBatchContext.Snapshot snapshot, double routeRate) {
+            this.exchange = exchange;
+            this.snapshot = snapshot;
+            this.routeRate = routeRate;
+        }
+
+        void failed(Throwable error) {
+            // The error handler sets the response status only after the filter chain
+            errorStatus = error instanceof ErrorResponse response ? response.getStatusCode().value() : 500;
+            if (exceptionRecorder != null && errorStatus >= 500 && error instanceof Exception ex) {
+                ServerHttpRequest request = exchange.getRequest();
+                TelescopeBatchContext.Snapshot previous = TelescopeBatchContext.current();
+                TelescopeBatchContext.restore(withIdentity());
+                try {
+                    exceptionRecorder.record(ex, request.getMethod().name(), request.getPath().value());
+                } finally {
+                    TelescopeBatchContext.restore(previous);
+                }
+            }
+        }
+
+        void finish(SignalType signal) {
+            long endNanos = System.nanoTime();
+            TelescopeRequestTimings timings = snapshot.timings();
+            long durationNanos = endNanos - timings.getStartNanos();
+            long duration = durationNanos / 1_000_000;
+            try {
+                TelescopeBatchContext.Identity identity = withIdentity().identity();
+                long captureStart = System.nanoTime();
+                HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+                int status = errorStatus > 0 ? errorStatus : statusCode != null ? statusCode.value() : 200;
+                List<TelescopeNPlusOneDetector.Finding> nPlusOne = nPlusOneDetector.detect(timings);
+                recordRequest(status, signal == SignalType.CANCEL, endNanos, nPlusOne, identity);
+                nPlusOneDetector.record(snapshot.batchId(), nPlusOne, identity.userIdentifier(), identity.tenantId());
+                governor.recordCapture(System.nanoTime() - captureStart);
+                governor.recordRequest(duration);
+            } catch (Exception ignored) {
+            }
+        }
+
+        private TelescopeBatchContext.Snapshot withIdentity() {
+            Object identity = exchange.getAttribute(IDENTITY_ATTRIBUTE);
+            return new TelescopeBatchContext.Snapshot(snapshot.batchId(), snapshot.timings(),
+                    identity instanceof TelescopeBatchContext.Identity id ? id : TelescopeBatchContext.Identity.NONE);
+        }
+
+        private void recordRequest(int status, boolean cancelled, long endNanos,
+                                   List<TelescopeNPlusOneDetector.Finding> nPlusOne,
+                                   TelescopeBatchContext.Identity identity) {
+            boolean error = status >= 500;
+            if (!sampler.sample(TelescopeEntryType.REQUEST, error)) return;
+
+            ServerHttpRequest request = exchange.getRequest();
+            ServerHttpResponse response = exchange.getResponse();
+            InetSocketAddress remote = request.getRemoteAddress();
+            MediaType requestType = request.getHeaders().getContentType();
+            MediaType responseType = response.getHeaders().getContentType();
+            TelescopeRequestContent.TelescopeRequestContentBuilder content = TelescopeRequestContent.builder()
+                    .method(request.getMethod().name())
+                    .uri(request.getPath().value())
+                    .queryString(request.getURI().getRawQuery())
+                    .status(status)
+                    .durationNanos(endNanos - snapshot.timings().getStartNanos())
+                    .timings(snapshot.timings().toMap(endNanos))
+                    .ipAddress(remote != null ? remote.getHostString() : null)
+                    .contentType(requestType != null ? requestType.toString() : null)
+                    .responseContentType(responseType != null ? responseType.toString() : null);
+            if (governor.capturesHeaders()) {
+                content.requestHeaders(extractHeaders(request.getHeaders(), true))
+                        .responseHeaders(extractHeaders(response.getHeaders(), false));
+            }
+
+            if (request instanceof CapturingRequest capturingRequest) {
+                TelescopeBodyCapture capture = capturingRequest.capture;
+                content.requestCaptured(true)
+                        .requestBody(capture.isSkipped() ? null : capture.toString(StandardCharsets.UTF_8))
+                        .requestSize(capture.getTotalBytes())
+                        .requestBodySkipped(capture.isSkipped() ? capture.getSkipReason() : null);
+            }
+
+            if (response instanceof CapturingResponse capturingResponse) {
+                TelescopeBodyCapture capture = capturingResponse.capture;
+                content.responseCaptured(true)
+                        .responseBody(capture.isSkipped() ? null : capture.toString(StandardCharsets.UTF_8))
+                        .responseSize(capture.getTotalBytes())
+                        .responseBodySkipped(capture.isSkipped() ? capture.getSkipReason() : null);
+            }
+
+            List<String> tags = new ArrayList<>();
+            if (cancelled) tags.add("cancelled");
+            if (!nPlusOne.isEmpty()) {
+                List<Map<String, Object>> repeated = new ArrayList<>();
+                for (TelescopeNPlusOneDetector.Finding finding : nPlusOne) {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("entity", finding.entity());
+                    item.put("count", finding.count());
+                    item.put("fingerprint", finding.fingerprint());
+                    repeated.add(item);
+                    if (!tags.contains(finding.tag())) tags.add(finding.tag());
+                }
+                content.nPlusOne(repeated);
+            }
+
+            storage.record(TelescopeEntry.builder()
+                    .uuid(TelescopeIds.next())
+                    .type(TelescopeEntryType.REQUEST)
+                    .batchId(snapshot.batchId())
+                    .typedContent(content.build())
+                    .userIdentifier(identity.userIdentifier())
+                    .tenantId(identity.tenantId())
+                    .tags(tags)
+                    .sampleRate(routeRate * sampler.getRate(TelescopeEntryType.REQUEST, error))
+                    .build());
+        }
+    }
+
+    private static Map<String, String> extractHeaders(HttpHeaders source, boolean mask) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        source.forEach((name, values) -> {
+            if (mask && (name.equalsIgnoreCase("authorization") || name.equalsIgnoreCase("cookie"))) {
+                headers.put(name, "***");
+            } else {
+                headers.put(name, values.size() == 1 ? values.get(0) : String.join(", ", values));
+            }
+        });
+        return headers;
+    }
+
+    private static void copy(DataBuffer buffer, TelescopeBodyCapture capture) {
+        try (DataBuffer.ByteBufferIterator buffers = buffer.readableByteBuffers()) {
+            while (buffers.hasNext()) {
+                capture.write(buffers.next());
+            }
+        }
+    }
+
+    /**
+     * Copies the request body as the handler consumes it.
+     */
+    private final class CapturingRequest extends ServerHttpRequestDecorator {
+
+        private final TelescopeBodyCapture capture = new TelescopeBodyCapture(maxBodyBytes);
+
+        CapturingRequest(ServerHttpRequest delegate) {
+            super(delegate);
+            MediaType type = delegate.getHeaders().getContentType();
+            String skipReason = capturePolicy.checkContentType(type != null ? type.toString() : null);
+            if (skipReason == null) {
+                skipReason = capturePolicy.checkContentLength(delegate.getHeaders().getContentLength());
+            }
+            if (skipReason != null) {
+                capture.skip(skipReason);
+            }
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            return super.getBody().doOnNext(buffer -> copy(buffer, capture));
+        }
+    }
+
+    /**
+     * Copies the response body as it is written. Streamed responses (SSE,
+     * {@code Flux} of chunks flushed one by one) are recorded as metadata only.
+     */
+    private final class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private final TelescopeBodyCapture capture = new TelescopeBodyCapture(maxBodyBytes);
+
+        CapturingResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            checkHeaders();
+            if (capture.isSkipped()) return super.writeWith(body);
+            // A Mono body keeps its type so the server can still set Content-Length
+            return super.writeWith(body instanceof Mono<? extends DataBuffer> mono
+                    ? mono.doOnNext(buffer -> copy(buffer, capture))
+                    : Flux.from(body).doOnNext(buffer -> copy(buffer, capture)));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            capture.skip("streaming");
+            return super.writeAndFlushWith(body);
+        }
+
+        private void checkHeaders() {
+            HttpHeaders headers = getDelegate().getHeaders();
+            MediaType type = headers.getContentType();
+            String skipReason = capturePolicy.checkContentType(type != null ? type.toString() : null);
+            if (skipReason == null) {
+                skipReason = capturePolicy.checkContentLength(headers.getContentLength());
+            }
+            if (skipReason != null) {
+                capture.skip(skipReason);
+            }
+        }
+    }
+}
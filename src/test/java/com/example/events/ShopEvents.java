@@ -0,0 +1,18 @@
+package com.example.events;
+
+import java.math.BigDecimal;
+
+/**
+ * Application events published as plain objects, outside Telescope's own
+ * package so the event watcher does not exclude them.
+ */
+public final class ShopEvents {
+
+    private ShopEvents() {}
+
+    public record Customer(String id, String email) {
+    }
+
+    public record OrderPlaced(String orderId, Customer customer, BigDecimal total) {
+    }
+}
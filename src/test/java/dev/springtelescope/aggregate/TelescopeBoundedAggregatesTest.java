@@ -0,0 +1,68 @@
+package dev.springtelescope.aggregate;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TelescopeBoundedAggregatesTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<String, Long> seen = new ConcurrentHashMap<>();
+    private final TelescopeBoundedAggregates<String> aggregates =
+            new TelescopeBoundedAggregates<>(16, seen::get);
+
+    @Test
+    void evictsLeastRecentEighthWhenFull() {
+        for (int i = 0; i < 16; i++) {
+            touch("key-" + i);
+        }
+        touch("key-0");
+        touch("key-1");
+
+        touch("key-16");
+
+        assertThat(aggregates.size()).isEqualTo(15);
+        assertThat(aggregates.get("key-0")).isPresent();
+        assertThat(aggregates.get("key-1")).isPresent();
+        assertThat(aggregates.get("key-2")).isEmpty();
+        assertThat(aggregates.get("key-3")).isEmpty();
+        assertThat(aggregates.get("key-16")).isPresent();
+    }
+
+    @Test
+    void neverExceedsBoundUnderConcurrentInserts() throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t * 10_000;
+            Thread thread = new Thread(() -> {
+                int max = 0;
+                for (int i = 0; i < 2_000; i++) {
+                    touch("key-" + (offset + i));
+                    max = Math.max(max, aggregates.size());
+                }
+                synchronized (sizes) {
+                    sizes.add(max);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(sizes).hasSize(8).allSatisfy(size -> assertThat(size).isLessThanOrEqualTo(16));
+    }
+
+    private void touch(String key) {
+        seen.put(key, clock.incrementAndGet());
+        aggregates.getOrCreate(key, k -> k);
+    }
+}
@@ -0,0 +1,56 @@
+package dev.springtelescope.context;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TelescopeExecutorPostProcessorTest {
+
+    private final TelescopeExecutorPostProcessor postProcessor = new TelescopeExecutorPostProcessor();
+
+    @AfterEach
+    void tearDown() {
+        TelescopeBatchContext.clear();
+    }
+
+    @Test
+    void wrapsSpringExecutorKeepingItsTypeAndPropagatesBatch() throws Exception {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.initialize();
+        try {
+            Object bean = postProcessor.postProcessAfterInitialization(executor, "taskExecutor");
+            assertThat(bean).isInstanceOf(ThreadPoolTaskExecutor.class)
+                    .isInstanceOf(TelescopeContextExecutors.Wrapped.class);
+
+            TelescopeBatchContext.set("batch-async");
+            String seen = ((ThreadPoolTaskExecutor) bean).submit(TelescopeBatchContext::get).get(5, TimeUnit.SECONDS);
+            assertThat(seen).isEqualTo("batch-async");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void leavesJdkAndScheduledExecutorsAlone() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        ScheduledThreadPoolExecutor scheduled = new ScheduledThreadPoolExecutor(1);
+        ForkJoinPool forkJoin = new ForkJoinPool(1);
+        try {
+            assertThat(postProcessor.postProcessAfterInitialization(pool, "pool")).isSameAs(pool);
+            assertThat(postProcessor.postProcessAfterInitialization(scheduled, "scheduled")).isSameAs(scheduled);
+            assertThat(postProcessor.postProcessAfterInitialization(forkJoin, "forkJoin")).isSameAs(forkJoin);
+        } finally {
+            pool.shutdown();
+            scheduled.shutdown();
+            forkJoin.shutdown();
+        }
+    }
+}
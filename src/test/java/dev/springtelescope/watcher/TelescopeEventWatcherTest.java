@@ -0,0 +1,67 @@
+package dev.springtelescope.watcher;
+
+import com.example.events.ShopEvents;
+import dev.springtelescope.TelescopeProperties;
+import dev.springtelescope.model.TelescopeEntry;
+import dev.springtelescope.model.TelescopeEntryType;
+import dev.springtelescope.sampling.TelescopeSampler;
+import dev.springtelescope.storage.InMemoryTelescopeStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TelescopeEventWatcherTest {
+
+    private final InMemoryTelescopeStorage storage = new InMemoryTelescopeStorage(100);
+    private AnnotationConfigApplicationContext context;
+
+    @BeforeEach
+    void setUp() {
+        TelescopeProperties properties = new TelescopeProperties();
+        properties.setBasePackage("com.example");
+        TelescopeEventWatcher watcher = new TelescopeEventWatcher(storage, () -> null,
+                TelescopeSampler.keepAll(), properties);
+
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(TelescopeEventWatcher.class, () -> watcher);
+        context.refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void capturesComponentsOfPublishedRecord() {
+        context.publishEvent(new ShopEvents.OrderPlaced("A-42",
+                new ShopEvents.Customer("c-7", "jane@example.com"), new BigDecimal("99.90")));
+
+        List<TelescopeEntry> entries = storage.getByType(TelescopeEntryType.EVENT, 0, 10);
+        assertThat(entries).hasSize(1);
+        Map<String, Object> content = entries.get(0).getContent();
+        assertThat(content).containsEntry("event", "OrderPlaced")
+                .containsEntry("eventClass", ShopEvents.OrderPlaced.class.getName());
+
+        Map<String, Object> payload = (Map<String, Object>) content.get("payload");
+        assertThat(payload).containsEntry("orderId", "A-42").containsEntry("total", "99.90");
+        assertThat((Map<String, Object>) payload.get("customer"))
+                .containsEntry("id", "c-7")
+                .containsEntry("email", "jane@example.com");
+    }
+
+    @Test
+    void skipsPayloadsOutsideBasePackage() {
+        context.publishEvent("not an application event");
+
+        assertThat(storage.getByType(TelescopeEntryType.EVENT, 0, 10)).isEmpty();
+    }
+}
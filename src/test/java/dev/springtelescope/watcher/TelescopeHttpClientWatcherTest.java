@@ -0,0 +1,194 @@
+package dev.springtelescope.watcher;
+
+import com.sun.net.httpserver.HttpServer;
+import dev.springtelescope.aggregate.TelescopeHttpClientStats;
+import dev.springtelescope.context.TelescopeBatchContext;
+import dev.springtelescope.model.TelescopeEntry;
+import dev.springtelescope.model.TelescopeEntryType;
+import dev.springtelescope.sampling.TelescopeSampler;
+import dev.springtelescope.storage.InMemoryTelescopeStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Hooks;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TelescopeHttpClientWatcherTest {
+
+    private static final byte[] ITEMS = "[{\"id\":1},{\"id\":2}]".getBytes(StandardCharsets.UTF_8);
+
+    private final InMemoryTelescopeStorage storage = new InMemoryTelescopeStorage(100);
+    private final TelescopeHttpClientWatcher watcher = new TelescopeHttpClientWatcher(storage, () -> null,
+            TelescopeSampler.keepAll(), new TelescopeHttpClientStats(10));
+    // Holds /slow open until the test ends, so no handler is interrupted at shutdown
+    private final CountDownLatch release = new CountDownLatch(1);
+    private HttpServer server;
+    private ExecutorService executor;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/items", exchange -> {
+            exchange.sendResponseHeaders(200, ITEMS.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(ITEMS);
+            }
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                if (release.await(5, TimeUnit.SECONDS)) {
+                    exchange.sendResponseHeaders(204, -1);
+                }
+            } catch (Exception ignored) {
+            } finally {
+                exchange.close();
+            }
+        });
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TelescopeBatchContext.clear();
+        Hooks.resetOnErrorDropped();
+        release.countDown();
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    @Test
+    void recordsRestTemplateCallUnderCurrentBatch() {
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.getInterceptors().add(new TelescopeHttpClientInterceptor(watcher, "RestTemplate"));
+        TelescopeBatchContext.set("batch-rest-template");
+
+        String body = restTemplate.getForObject(baseUrl + "/items", String.class);
+
+        assertThat(body).isEqualTo(new String(ITEMS, StandardCharsets.UTF_8));
+        TelescopeEntry entry = single();
+        assertThat(entry.getBatchId()).isEqualTo("batch-rest-template");
+        assertThat(entry.getContent())
+                .containsEntry("client", "RestTemplate")
+                .containsEntry("method", "GET")
+                .containsEntry("path", "/items")
+                .containsEntry("status", 200)
+                .containsEntry("responseBytes", (long) ITEMS.length);
+        assertThat(entry.getTags()).doesNotContain("failed");
+    }
+
+    @Test
+    void recordsRestClientCallUnderCurrentBatch() {
+        RestClient restClient = RestClient.builder()
+                .requestInterceptor(new TelescopeHttpClientInterceptor(watcher, "RestClient"))
+                .build();
+        TelescopeBatchContext.set("batch-rest-client");
+
+        byte[] body = restClient.get().uri(baseUrl + "/items").retrieve().body(byte[].class);
+
+        assertThat(body).isEqualTo(ITEMS);
+        TelescopeEntry entry = single();
+        assertThat(entry.getBatchId()).isEqualTo("batch-rest-client");
+        assertThat(entry.getContent())
+                .containsEntry("client", "RestClient")
+                .containsEntry("status", 200)
+                .containsEntry("responseBytes", (long) ITEMS.length);
+    }
+
+    @Test
+    void recordsWebClientCallUnderContextBatch() {
+        WebClient webClient = WebClient.builder()
+                .clientConnector(new JdkClientHttpConnector())
+                .filter(new TelescopeWebClientFilter(watcher))
+                .build();
+        TelescopeBatchContext.set("batch-web-client");
+        TelescopeBatchContext.Snapshot batch = TelescopeBatchContext.current();
+        TelescopeBatchContext.clear();
+
+        String body = webClient.get().uri(baseUrl + "/items").retrieve().bodyToMono(String.class)
+                .contextWrite(context -> context.put(TelescopeBatchContext.CONTEXT_KEY, batch))
+                .block(Duration.ofSeconds(5));
+
+        assertThat(body).isEqualTo(new String(ITEMS, StandardCharsets.UTF_8));
+        TelescopeEntry entry = single();
+        assertThat(entry.getBatchId()).isEqualTo("batch-web-client");
+        assertThat(entry.getContent())
+                .containsEntry("client", "WebClient")
+                .containsEntry("status", 200)
+                .containsEntry("responseBytes", (long) ITEMS.length);
+    }
+
+    @Test
+    void recordsRestTemplateReadTimeoutAsFailed() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setReadTimeout(200);
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add(new TelescopeHttpClientInterceptor(watcher, "RestTemplate"));
+        TelescopeBatchContext.set("batch-timeout");
+
+        assertThatThrownBy(() -> restTemplate.getForObject(baseUrl + "/slow", String.class))
+                .isInstanceOf(ResourceAccessException.class);
+
+        TelescopeEntry entry = single();
+        assertThat(entry.getBatchId()).isEqualTo("batch-timeout");
+        assertThat(entry.getTags()).contains("failed");
+        assertThat(entry.getContent())
+                .containsEntry("status", null)
+                .containsKey("error");
+    }
+
+    @Test
+    void recordsWebClientTimeoutAsFailed() {
+        // The JDK connector fails the cancelled exchange after its subscriber is gone
+        List<Throwable> dropped = new CopyOnWriteArrayList<>();
+        Hooks.onErrorDropped(dropped::add);
+        WebClient webClient = WebClient.builder()
+                .clientConnector(new JdkClientHttpConnector())
+                .filter(new TelescopeWebClientFilter(watcher))
+                .build();
+
+        assertThatThrownBy(() -> webClient.get().uri(baseUrl + "/slow").retrieve().toBodilessEntity()
+                .timeout(Duration.ofMillis(200))
+                .block(Duration.ofSeconds(5)))
+                .hasCauseInstanceOf(TimeoutException.class);
+
+        TelescopeEntry entry = single();
+        assertThat(entry.getTags()).contains("failed");
+        assertThat((String) entry.getContent().get("error")).contains("CancellationException");
+        assertThat(dropped).allSatisfy(e -> assertThat(e).hasCauseInstanceOf(CancellationException.class));
+    }
+
+    private TelescopeEntry single() {
+        List<TelescopeEntry> entries = storage.getByType(TelescopeEntryType.HTTP_CLIENT, 0, 10,
+                null, null, null, null);
+        assertThat(entries).hasSize(1);
+        Map<String, Object> content = entries.get(0).getContent();
+        assertThat(content).containsEntry("host", "127.0.0.1:" + server.getAddress().getPort());
+        return entries.get(0);
+    }
+}
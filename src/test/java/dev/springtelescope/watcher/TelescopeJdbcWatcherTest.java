@@ -0,0 +1,175 @@
+package dev.springtelescope.watcher;
+
+import com.zaxxer.hikari.HikariDataSource;
+import dev.springtelescope.aggregate.TelescopeQueryStats;
+import dev.springtelescope.model.TelescopeEntry;
+import dev.springtelescope.model.TelescopeEntryType;
+import dev.springtelescope.model.TelescopeQueryContent;
+import dev.springtelescope.sampling.TelescopeSampler;
+import dev.springtelescope.storage.InMemoryTelescopeStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TelescopeJdbcWatcherTest {
+
+    private final InMemoryTelescopeStorage storage = new InMemoryTelescopeStorage(100);
+    private final TelescopeQueryStats queryStats = new TelescopeQueryStats(100);
+    private final TelescopeJdbcWatcher watcher = new TelescopeJdbcWatcher();
+    private HikariDataSource pool;
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:jdbc-watcher;DB_CLOSE_DELAY=-1");
+        pool.setMaximumPoolSize(2);
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("create table item (id bigint primary key, name varchar(50))");
+            statement.execute("create table telescope_entries (uuid varchar(36) primary key)");
+            statement.execute("create alias sleep for 'java.lang.Thread.sleep'");
+        }
+        dataSource = watcher.wrap(pool);
+        watcher.activate(storage, () -> null, TelescopeSampler.keepAll(), queryStats, 50);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("drop all objects");
+        }
+        pool.close();
+    }
+
+    @Test
+    void recordsBatchSizeRowsAffectedAndConnectionWait() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement insert = connection.prepareStatement("insert into item (id, name) values (?, ?)")) {
+                for (int i = 1; i <= 3; i++) {
+                    insert.setLong(1, i);
+                    insert.setString(2, "item-" + i);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            try (PreparedStatement update = connection.prepareStatement("update item set name = ? where id > ?")) {
+                update.setString(1, "renamed");
+                update.setLong(2, 1);
+                update.executeUpdate();
+            }
+        }
+
+        TelescopeQueryContent insert = query("insert into item");
+        assertThat(insert.batchSize()).isEqualTo(3);
+        assertThat(insert.rows()).isEqualTo(3);
+        assertThat(insert.durationNanos()).isPositive();
+        assertThat(insert.connectionWaitNanos()).isPositive();
+
+        TelescopeQueryContent update = query("update item");
+        assertThat(update.rows()).isEqualTo(2);
+        assertThat(update.batchSize()).isZero();
+        // Reported once, on the first statement of the connection
+        assertThat(update.connectionWaitNanos()).isZero();
+        assertThat(queryStats.size()).isEqualTo(2);
+    }
+
+    @Test
+    void countsRowsFetchedOnceResultSetIsRead() throws Exception {
+        insertItems(4);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement select = connection.prepareStatement("select id from item where id <= ?")) {
+            select.setLong(1, 3);
+            ResultSet rows = select.executeQuery();
+            while (rows.next()) {
+                assertThat(storage.countByType(TelescopeEntryType.QUERY)).isZero();
+            }
+            // Read to the end: recorded without waiting for close
+            assertThat(storage.countByType(TelescopeEntryType.QUERY)).isEqualTo(1);
+        }
+
+        TelescopeQueryContent select = query("select id from item");
+        assertThat(select.type()).isEqualTo("SELECT");
+        assertThat(select.rows()).isEqualTo(3);
+        assertThat(storage.countByType(TelescopeEntryType.QUERY)).isEqualTo(1);
+    }
+
+    @Test
+    void recordsUnclosedResultSetWhenConnectionCloses() throws Exception {
+        insertItems(4);
+        Connection connection = dataSource.getConnection();
+        ResultSet rows = connection.createStatement().executeQuery("select name from item");
+        rows.next();
+        assertThat(storage.countByType(TelescopeEntryType.QUERY)).isZero();
+
+        connection.close();
+
+        assertThat(query("select name from item").rows()).isEqualTo(1);
+    }
+
+    @Test
+    void flagsSlowStatements() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("call sleep(80)");
+            statement.execute("select 2");
+        }
+
+        TelescopeEntry slow = entry("call sleep");
+        assertThat(((TelescopeQueryContent) slow.getTypedContent()).slow()).isTrue();
+        assertThat(slow.getTags()).contains("slow");
+        assertThat(query("select 2").slow()).isFalse();
+    }
+
+    @Test
+    void ignoresTelescopeStorageStatements() throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insert = connection.prepareStatement("insert into telescope_entries (uuid) values (?)")) {
+            insert.setString(1, "a");
+            insert.executeUpdate();
+        }
+
+        assertThat(storage.countByType(TelescopeEntryType.QUERY)).isZero();
+        assertThat(queryStats.size()).isZero();
+    }
+
+    @Test
+    void recordsOnceThroughNestedWrappedDataSources() throws Exception {
+        DataSource outer = watcher.wrap(new TransactionAwareDataSourceProxy(dataSource));
+        try (Connection connection = outer.getConnection();
+             PreparedStatement update = connection.prepareStatement("update item set name = 'x'")) {
+            update.executeUpdate();
+        }
+
+        assertThat(storage.countByType(TelescopeEntryType.QUERY)).isEqualTo(1);
+        assertThat(queryStats.getTop("count", 1).get(0)).containsEntry("count", 1L);
+    }
+
+    private void insertItems(int count) throws Exception {
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            for (int i = 1; i <= count; i++) {
+                statement.execute("insert into item (id, name) values (" + i + ", 'item-" + i + "')");
+            }
+        }
+    }
+
+    private TelescopeQueryContent query(String sqlPrefix) {
+        return (TelescopeQueryContent) entry(sqlPrefix).getTypedContent();
+    }
+
+    private TelescopeEntry entry(String sqlPrefix) {
+        List<TelescopeEntry> matches = storage.getByType(TelescopeEntryType.QUERY, 0, 100).stream()
+                .filter(e -> ((TelescopeQueryContent) e.getTypedContent()).sql().startsWith(sqlPrefix))
+                .toList();
+        assertThat(matches).hasSize(1);
+        return matches.get(0);
+    }
+}